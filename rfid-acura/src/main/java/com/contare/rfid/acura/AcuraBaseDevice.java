@@ -3,6 +3,8 @@ package com.contare.rfid.acura;
 import com.contare.rfid.devices.BufferedRfidDevice;
 import com.contare.rfid.devices.RfidDevice;
 
+import java.util.concurrent.Executor;
+
 public abstract class AcuraBaseDevice extends BufferedRfidDevice implements RfidDevice {
 
     private static final String OS = System.getProperty("os.name").toLowerCase();
@@ -10,6 +12,10 @@ public abstract class AcuraBaseDevice extends BufferedRfidDevice implements Rfid
     private static final int minPower = 0;
     private static final int maxPower = 100;
 
+    protected AcuraBaseDevice(final Executor executor) {
+        super(executor);
+    }
+
     @Override
     public int getMinPower() {
         return minPower;
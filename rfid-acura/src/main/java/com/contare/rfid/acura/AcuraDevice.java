@@ -2,14 +2,15 @@ package com.contare.rfid.acura;
 
 import com.contare.rfid.devices.RfidDevice;
 import com.contare.rfid.exceptions.RfidDeviceException;
+import com.contare.rfid.objects.Epc;
 import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.utils.Rssi;
 import com.thingmagic.*;
 import org.jboss.logging.Logger;
 
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.Executor;
-import java.util.function.Consumer;
 
 public class AcuraDevice extends AcuraBaseDevice {
 
@@ -20,14 +21,12 @@ public class AcuraDevice extends AcuraBaseDevice {
     private volatile Reader reader;
     private RfidDevice.Options opts;
 
-    private final Executor executor;
-    private volatile Consumer<RfidDevice.Event> _callback;
     private volatile ReadListener listener;
     private boolean connected = false;
     private boolean reading = false;
 
     public AcuraDevice(final Executor executor) {
-        this.executor = executor;
+        super(executor);
     }
 
     @Override
@@ -38,6 +37,7 @@ public class AcuraDevice extends AcuraBaseDevice {
         Objects.requireNonNull(serialPort, "serial port must not be null");
 
         this.opts = opts;
+        configure(opts);
 
         final String arg = (OS.contains("linux"))
             ? String.format("tmr:///dev/%s", serialPort)
@@ -45,7 +45,7 @@ public class AcuraDevice extends AcuraBaseDevice {
 
         try {
             reader = Reader.create(arg);
-            reader.connect();
+            call("connect", () -> reader.connect());
             connected = true;
             return true;
         } catch (ReaderException e) {
@@ -59,7 +59,7 @@ public class AcuraDevice extends AcuraBaseDevice {
             if (!isConnected()) {
                 throw new RfidDeviceException("Device is not connected");
             }
-            reader.destroy();
+            call("destroy", reader::destroy);
             connected = false;
         }
     }
@@ -79,11 +79,6 @@ public class AcuraDevice extends AcuraBaseDevice {
         return false;
     }
 
-    @Override
-    public void setCallback(final Consumer<RfidDevice.Event> callback) {
-        _callback = callback;
-    }
-
     @Override
     public boolean startInventory() throws RfidDeviceException {
         if (!connected) {
@@ -96,21 +91,20 @@ public class AcuraDevice extends AcuraBaseDevice {
 
         try {
             // connect all antennas
-            final int[] antennas = (int[]) reader.paramGet(TMConstants.TMR_PARAM_ANTENNA_CONNECTEDPORTLIST);
+            final int[] antennas = (int[]) paramGet(TMConstants.TMR_PARAM_ANTENNA_CONNECTEDPORTLIST);
             final SimpleReadPlan plan = new SimpleReadPlan(antennas, TagProtocol.GEN2, null, null, 1_000);
-            reader.paramSet(TMConstants.TMR_PARAM_READ_PLAN, plan);
+            paramSet(TMConstants.TMR_PARAM_READ_PLAN, plan);
 
             // Create and add tag listener
             listener = (_reader, data) -> {
-                final String rfid = data.getTag().epcString();
-                if (_uniques.add(rfid)) {
-                    final String rssi = Integer.toString(data.getRssi());
-                    final Integer antenna = data.getAntenna();
-                    final TagMetadata tag = new TagMetadata(rfid, null, rssi, antenna);
-                    if (_buffer.add(tag)) {
-                        executor.execute(() -> {
-                            _callback.accept(new TagEvent(tag));
-                        });
+                final long nanos = System.nanoTime();
+                final Epc epc = Epc.of(data.getTag().epcBytes());
+                final short rssi = Rssi.fromDbm(data.getRssi());
+                final int antenna = data.getAntenna();
+                if (!isBuffered(epc, rssi, antenna, nanos)) {
+                    final TagMetadata tag = new TagMetadata(epc, null, rssi, antenna, nanos);
+                    if (buffer(tag)) {
+                        publish(tag);
                     }
                 }
             };
@@ -125,7 +119,7 @@ public class AcuraDevice extends AcuraBaseDevice {
             });
 
             // search for tags in the background
-            reader.startReading();
+            call("startReading", reader::startReading);
 
             reading = true;
 
@@ -147,11 +141,12 @@ public class AcuraDevice extends AcuraBaseDevice {
             }
 
             if (reader != null) {
-                reader.stopReading();
+                call("stopReading", reader::stopReading);
                 reader.removeReadListener(listener);
             }
 
             reading = false;
+            flush();
 
             return true;
         } catch (RfidDeviceException e) {
@@ -176,7 +171,7 @@ public class AcuraDevice extends AcuraBaseDevice {
 
             final Gen2.Kill operation = new Gen2.Kill(value);
 
-            final Object result = reader.executeTagOp(operation, filter);
+            final Object result = query("executeTagOp", () -> reader.executeTagOp(operation, filter));
             logger.debugf("Kill result: %s", result);
 
             return true;
@@ -190,19 +185,19 @@ public class AcuraDevice extends AcuraBaseDevice {
         try {
             if (reader != null) {
                 if (connected) {
-                    final Object minFrequency = reader.paramGet(TMConstants.TMR_PARAM_REGION_MINIMUM_FREQUENCY);
+                    final Object minFrequency = paramGet(TMConstants.TMR_PARAM_REGION_MINIMUM_FREQUENCY);
                     logger.debugf("minimum frequency = '%s'", minFrequency);
 
-                    final int quantizationStep = (int) reader.paramGet(TMConstants.TMR_PARAM_REGION_QUANTIZATION_STEP);
+                    final int quantizationStep = (int) paramGet(TMConstants.TMR_PARAM_REGION_QUANTIZATION_STEP);
                     logger.debugf("quantization step = '%d'", quantizationStep);
 
-                    final int[] hopTable = (int[]) reader.paramGet(TMConstants.TMR_PARAM_REGION_HOPTABLE);
+                    final int[] hopTable = (int[]) paramGet(TMConstants.TMR_PARAM_REGION_HOPTABLE);
                     logger.debugf("hop table = '%s'", Arrays.toString(hopTable));
 
-                    final int[] supportedRegions = (int[]) reader.paramGet(TMConstants.TMR_PARAM_REGION_SUPPORTEDREGIONS);
+                    final int[] supportedRegions = (int[]) paramGet(TMConstants.TMR_PARAM_REGION_SUPPORTEDREGIONS);
                     logger.debugf("supported regions = '%s'", supportedRegions);
 
-                    final Reader.Region region = (Reader.Region) reader.paramGet(TMConstants.TMR_PARAM_REGION_ID);
+                    final Reader.Region region = (Reader.Region) paramGet(TMConstants.TMR_PARAM_REGION_ID);
                     logger.debugf("region = '%s'", region);
                 }
             }
@@ -220,16 +215,16 @@ public class AcuraDevice extends AcuraBaseDevice {
         try {
             if (reader != null) {
                 final Reader.Region region = freq.getRegion();
-                reader.paramSet(TMConstants.TMR_PARAM_REGION_ID, region);
+                paramSet(TMConstants.TMR_PARAM_REGION_ID, region);
 
                 final int step = freq.getStep();
                 if (step > 0) {
-                    reader.paramSet(TMConstants.TMR_PARAM_REGION_QUANTIZATION_STEP, step);
+                    paramSet(TMConstants.TMR_PARAM_REGION_QUANTIZATION_STEP, step);
                 }
 
                 final int[] table = freq.getTable();
                 if (table != null) {
-                    reader.paramSet(TMConstants.TMR_PARAM_REGION_HOPTABLE, table);
+                    paramSet(TMConstants.TMR_PARAM_REGION_HOPTABLE, table);
                 }
 
                 return true;
@@ -246,11 +241,11 @@ public class AcuraDevice extends AcuraBaseDevice {
         try {
             if (reader != null) {
                 if (connected) {
-                    final Object maxpower = reader.paramGet(TMConstants.TMR_PARAM_RADIO_POWERMAX);
-                    final Object minpower = reader.paramGet(TMConstants.TMR_PARAM_RADIO_POWERMIN);
+                    final Object maxpower = paramGet(TMConstants.TMR_PARAM_RADIO_POWERMAX);
+                    final Object minpower = paramGet(TMConstants.TMR_PARAM_RADIO_POWERMIN);
                     logger.debugf("maxpower = '%s', minpower = '%s'", maxpower, minpower);
 
-                    final int value = (int) reader.paramGet(TMConstants.TMR_PARAM_RADIO_READPOWER);
+                    final int value = (int) paramGet(TMConstants.TMR_PARAM_RADIO_READPOWER);
                     return (value / 100);
                 }
             }
@@ -265,7 +260,7 @@ public class AcuraDevice extends AcuraBaseDevice {
         try {
             if (reader != null) {
                 if (connected) {
-                    reader.paramSet(TMConstants.TMR_PARAM_RADIO_READPOWER, value * 100);
+                    paramSet(TMConstants.TMR_PARAM_RADIO_READPOWER, value * 100);
                     return true;
                 }
             }
@@ -297,7 +292,19 @@ public class AcuraDevice extends AcuraBaseDevice {
             disconnect();
         } catch (RfidDeviceException e) {
             logger.errorf(e, "Failed to close device.");
+        } finally {
+            closeDispatch();
         }
     }
 
+    // HELPERS
+
+    private Object paramGet(final String key) throws ReaderException {
+        return query("paramGet " + key, () -> reader.paramGet(key));
+    }
+
+    private void paramSet(final String key, final Object value) throws ReaderException {
+        call("paramSet " + key, () -> reader.paramSet(key, value));
+    }
+
 }
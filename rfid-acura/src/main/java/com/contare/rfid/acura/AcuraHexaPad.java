@@ -2,16 +2,21 @@ package com.contare.rfid.acura;
 
 import com.contare.rfid.devices.RfidDevice;
 import com.contare.rfid.exceptions.RfidDeviceException;
+import com.contare.rfid.jfr.SdkCallEvent;
+import com.contare.rfid.jfr.TagIngestEvent;
+import com.contare.rfid.objects.Epc;
 import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.utils.Hex;
+import com.contare.rfid.utils.Rssi;
 import com.fazecast.jSerialComm.SerialPort;
 import org.jboss.logging.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.concurrent.Executor;
-import java.util.function.Consumer;
 
 public class AcuraHexaPad extends AcuraBaseDevice {
 
@@ -21,18 +26,31 @@ public class AcuraHexaPad extends AcuraBaseDevice {
     private static final String CMD_GET_POWER = "readpower";
     private static final String CMD_SET_POWER = "readpower%d";
 
+    private static final int READ_TIMEOUT_MS = 250;     // longest a reader thread waits for data before checking if it must stop
+    private static final int LINE_BUFFER_SIZE = 4096;   // longest run of bytes kept while waiting for a line end
+
+    private static final ReadFields<CharSequence> LINE_FIELDS = new ReadFields<>() {
+        @Override
+        public short rssi(final CharSequence line) {
+            return parseRssi(line);
+        }
+
+        @Override
+        public int antenna(final CharSequence line) {
+            return parseAntenna(line);
+        }
+    };
+
     private final Logger logger = Logger.getLogger(AcuraHexaPad.class.getName());
 
     private volatile SerialPort comm;
     private RfidDevice.Options opts;
 
     private volatile Thread _thread;
-    private final Executor executor;
-    private volatile Consumer<RfidDevice.Event> _callback;
-    private boolean reading = false;
+    private volatile boolean reading = false;
 
     public AcuraHexaPad(final Executor executor) {
-        this.executor = executor;
+        super(executor);
     }
 
     @Override
@@ -54,6 +72,7 @@ public class AcuraHexaPad extends AcuraBaseDevice {
         }
 
         this.opts = opts;
+        configure(opts);
 
         final String path = (OS.contains("linux"))
             ? String.format("/dev/%s", serialPort)
@@ -61,6 +80,8 @@ public class AcuraHexaPad extends AcuraBaseDevice {
 
         comm = SerialPort.getCommPort(path);
         comm.setBaudRate(opts.getBaudRate());
+        // reads wait for the first byte instead of returning empty, so the reader thread sleeps while idle
+        comm.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, READ_TIMEOUT_MS, 0);
 
         return comm.openPort();
     }
@@ -110,11 +131,6 @@ public class AcuraHexaPad extends AcuraBaseDevice {
         return false;
     }
 
-    @Override
-    public void setCallback(final Consumer<RfidDevice.Event> callback) {
-        _callback = callback;
-    }
-
     @Override
     public boolean startInventory() throws RfidDeviceException {
         if (comm != null) {
@@ -124,45 +140,9 @@ public class AcuraHexaPad extends AcuraBaseDevice {
 
                 reading = true;
 
-                _thread = new Thread(() -> {
-                    final InputStream in = comm.getInputStream();
-                    while (reading) {
-                        try {
-                            final int available = in.available();
-                            if (available > 0) {
-                                final byte[] buffer = new byte[1024];
-
-                                final int read = in.read(buffer);
-                                logger.debugf("Read '%d' bytes", read);
-
-                                final String data = new String(buffer, 0, read);
-                                logger.debugf("Read data '%s'", data);
-
-                                final String[] lines = data.split("\r\n");
-                                for (String line : lines) {
-                                    final TagMetadata tag = parseTagMetadata(line);
-                                    if (tag != null && tag.getRfid() != null) {
-                                        if (_uniques.add(tag.getRfid())) {
-                                            if (_buffer.add(tag)) {
-                                                executor.execute(() -> {
-                                                    _callback.accept(new TagEvent(tag));
-                                                });
-                                            } else {
-                                                logger.warnf("Duplicate tag found for '%s'", tag.getRfid());
-                                            }
-                                        } else {
-                                            logger.debugf("Tag '%s' already read.", tag.getRfid());
-                                        }
-                                    }
-                                }
-                            }
-                        } catch (IOException e) {
-                            logger.errorf(e, "Failed to read data.");
-                        }
-                    }
-                });
-
+                _thread = new Thread(this::readLoop, "hexapad-reader");
                 _thread.start();
+                return true;
             }
         }
         return false;
@@ -180,10 +160,21 @@ public class AcuraHexaPad extends AcuraBaseDevice {
             }
         }
 
-        if (_thread != null) {
-            if (_thread.isAlive()) {
-                _thread.interrupt();
+        final Thread thread = _thread;
+        if (thread != null) {
+            if (thread.isAlive()) {
                 reading = false;
+                thread.interrupt();
+                // the reader may be inside a read, its last lines must make it into the flushed batch
+                try {
+                    thread.join(2L * READ_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (thread.isAlive()) {
+                    logger.warnf("Reader thread did not stop within %d ms.", 2 * READ_TIMEOUT_MS);
+                }
+                flush();
                 return true;
             }
         }
@@ -278,11 +269,80 @@ public class AcuraHexaPad extends AcuraBaseDevice {
             disconnect();
         } catch (RfidDeviceException e) {
             logger.errorf(e, "Failed to close device.");
+        } finally {
+            closeDispatch();
         }
     }
 
     // HELPERS
+    /**
+     * Reader thread: blocks on the serial port for at most {@link #READ_TIMEOUT_MS} per read, appends the
+     * bytes after the unfinished line kept from the previous read and parses every complete line in place.
+     */
+    private void readLoop() {
+        final byte[] bytes = new byte[LINE_BUFFER_SIZE];
+        final AsciiLine line = new AsciiLine(bytes);
+        int length = 0;
+        while (reading) {
+            final int read = comm.readBytes(bytes, bytes.length - length, length);
+            if (read < 0) {
+                logger.errorf("Failed to read data from serial port '%s'.", comm.getSystemPortName());
+                reading = false;
+                break;
+            } else if (read == 0) {
+                continue;
+            }
+
+            final TagIngestEvent ingest = beginIngest();
+            final int end = length + read;
+            int start = 0;
+            int lines = 0;
+            int tags = 0;
+            // only the new bytes may hold a line end, the kept ones were scanned by the previous read
+            for (int i = length; i < end; i++) {
+                if (bytes[i] != '\n') continue;
+                line.set(start, i);
+                start = i + 1;
+                if (line.length() == 0) continue;
+                lines++;
+                try {
+                    if (ingest(line)) {
+                        tags++;
+                    }
+                } catch (Exception e) {
+                    // a failing line must not end the reader thread
+                    logger.errorf(e, "Error processing tag metadata: '%s'", line);
+                }
+            }
+            endIngest(ingest, lines, tags);
+
+            // keep the unfinished line at the front, dropping it if it fills the buffer without an end
+            length = end - start;
+            if (length == bytes.length) {
+                logger.warnf("Discarded %d bytes without a line end.", length);
+                length = 0;
+            } else if (length > 0 && start > 0) {
+                System.arraycopy(bytes, start, bytes, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Parses one line and delivers its tag when it is new, as {@link #readLoop()} does for every line.
+     *
+     * @param line - '{epc}#{rssi}#{antenna}' line, without its end.
+     * @return whether the line delivered a new tag.
+     */
+    protected boolean ingest(final CharSequence line) {
+        final TagMetadata tag = parseTagMetadata(line);
+        if (tag == null || !buffer(tag)) return false;
+        publish(tag);
+        return true;
+    }
+
     private String sendCommand(final String cmd) throws RfidDeviceException {
+        final SdkCallEvent call = beginSdkCall(cmd);
+        boolean succeeded = false;
         try {
             final InputStream in = comm.getInputStream();
 
@@ -303,22 +363,37 @@ public class AcuraHexaPad extends AcuraBaseDevice {
             final int len = in.read(buffer);
             final String result = new String(buffer, 0, len).trim();
             logger.debugf("Response: " + result);
+            succeeded = !result.toLowerCase().contains("error");
             return result;
         } catch (IOException e) {
             throw new RfidDeviceException(e, "Error while sending command to serial port.");
         } catch (InterruptedException e) {
             throw new RfidDeviceException(e);
+        } finally {
+            endSdkCall(call, succeeded);
         }
     }
 
-    private TagMetadata parseTagMetadata(final String data) {
+    /**
+     * Parses a '{epc}#{rssi}#{antenna}' line; rssi and antenna are optional.
+     * Returns null for invalid lines and for EPCs already in the buffer. Only the EPC is parsed before the
+     * buffer lookup; rssi and antenna are parsed for the first read of a tag, and for duplicates only to
+     * aggregate them into the buffer slot.
+     */
+    private TagMetadata parseTagMetadata(final CharSequence data) {
         try {
-            final String[] parts = data.split("#");
-            if (parts.length >= 1 && parts[0].matches("[a-fA-F0-9]+")) {
-                final String epc = parts[0].trim().toUpperCase();
-                final String rssi = (parts.length >= 2) ? parts[1].trim() : null;
-                final Integer antenna = (parts.length >= 3) ? Integer.parseInt(parts[2].trim()) : null;
-                return new TagMetadata(epc, null, rssi, antenna);
+            final long nanos = System.nanoTime();
+            final int first = indexOf(data, '#', 0);
+            final int epcStart = skipSpaces(data, 0, first);
+            final int epcEnd = trimSpaces(data, epcStart, first);
+            if (Hex.isHex(data, epcStart, epcEnd)) {
+                final Epc epc = Epc.fromHex(data, epcStart, epcEnd);
+                if (isBuffered(epc, data, LINE_FIELDS, nanos)) {
+                    logger.debugf("Tag '%s' already read.", epc);
+                    return null;
+                }
+
+                return new TagMetadata(epc, null, parseRssi(data), parseAntenna(data), nanos);
             } else {
                 logger.warnf("Unable to parse tag metadata: '%s'", data);
             }
@@ -330,4 +405,81 @@ public class AcuraHexaPad extends AcuraBaseDevice {
         return null;
     }
 
+    private static short parseRssi(final CharSequence data) {
+        final int length = data.length();
+        final int first = indexOf(data, '#', 0);
+        if (first == length) return TagMetadata.RSSI_UNKNOWN;
+        final int second = indexOf(data, '#', first + 1);
+        final int start = skipSpaces(data, first + 1, second);
+        return Rssi.parse(data, start, trimSpaces(data, start, second));
+    }
+
+    private static int parseAntenna(final CharSequence data) {
+        final int length = data.length();
+        final int first = indexOf(data, '#', 0);
+        final int second = (first < length) ? indexOf(data, '#', first + 1) : length;
+        if (second == length) return TagMetadata.ANTENNA_UNKNOWN;
+        final int start = skipSpaces(data, second + 1, length);
+        return Integer.parseInt(data, start, trimSpaces(data, start, length), 10);
+    }
+
+    private static int indexOf(final CharSequence value, final char c, int from) {
+        final int length = value.length();
+        while (from < length && value.charAt(from) != c) from++;
+        return from;
+    }
+
+    private static int skipSpaces(final CharSequence value, int start, final int end) {
+        while (start < end && value.charAt(start) <= ' ') start++;
+        return start;
+    }
+
+    private static int trimSpaces(final CharSequence value, final int start, int end) {
+        while (end > start && value.charAt(end - 1) <= ' ') end--;
+        return end;
+    }
+
+    /**
+     * A line of the reader buffer seen as characters, without copying or decoding it; the trailing '\r' of a
+     * "\r\n" line end is left out.
+     */
+    private static final class AsciiLine implements CharSequence {
+
+        private final byte[] buffer;
+        private int offset;
+        private int length;
+
+        private AsciiLine(final byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private void set(final int start, int end) {
+            if (end > start && buffer[end - 1] == '\r') end--;
+            this.offset = start;
+            this.length = end - start;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            Objects.checkIndex(index, length);
+            return (char) (buffer[offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, offset, length, StandardCharsets.US_ASCII);
+        }
+
+    }
+
 }
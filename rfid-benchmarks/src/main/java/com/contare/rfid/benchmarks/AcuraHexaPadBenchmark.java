@@ -0,0 +1,68 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.acura.AcuraHexaPad;
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HexaPad '{epc}#{rssi}#{antenna}' line ingest: parsing, the dedup lookup and delivery of new tags.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AcuraHexaPadBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int population;
+
+    private Device device;
+    private String[] lines;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        device = new Device();
+        lines = new String[population];
+        for (int i = 0; i < population; i++) {
+            lines[i] = Epc.of96(0x30740000L, i).toHex() + "#-58.37#" + (1 + (i & 3));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        device.clearBuffer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        device.close();
+    }
+
+    @Benchmark
+    public boolean ingest() {
+        final int index = next;
+        next = (index + 1 == population) ? 0 : index + 1;
+        return device.read(lines[index]);
+    }
+
+    // ingests a line as the serial reader thread does, without a serial port
+    private static final class Device extends AcuraHexaPad {
+
+        private Device() {
+            super(Runnable::run);
+            configure(RfidDevice.Options.builder().build());
+        }
+
+        private boolean read(final String line) {
+            return ingest(line);
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.devices.FakeRfidDevice;
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Exposes the buffered read path the way adapters drive it.
+ */
+final class BenchDevice extends FakeRfidDevice {
+
+    BenchDevice() {
+        super();
+    }
+
+    BenchDevice(final Executor executor) {
+        super(executor, Load.builder().build());
+    }
+
+    /**
+     * Dedup, insert and publish, as an adapter does for every read.
+     */
+    boolean read(final Epc epc, final short rssi, final int antenna) {
+        final long nanos = System.nanoTime();
+        if (isBuffered(epc, rssi, antenna, nanos)) return false;
+        final TagMetadata tag = new TagMetadata(epc, null, rssi, antenna, nanos);
+        if (!buffer(tag)) return false;
+        publish(tag);
+        return true;
+    }
+
+    /**
+     * Dedup and insert without delivering, so only the buffer keeps the tag.
+     */
+    boolean store(final Epc epc, final short rssi, final int antenna) {
+        final long nanos = System.nanoTime();
+        if (isBuffered(epc, rssi, antenna, nanos)) return false;
+        return buffer(new TagMetadata(epc, null, rssi, antenna, nanos));
+    }
+
+    /**
+     * Hands a tag to the dispatch path, skipping dedup.
+     */
+    void deliver(final TagMetadata tag) {
+        publish(tag);
+    }
+
+}
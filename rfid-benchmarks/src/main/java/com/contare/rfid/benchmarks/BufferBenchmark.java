@@ -0,0 +1,85 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BufferedRfidDevice read path under contention: dedup lookup, insert of new tags and aggregation of
+ * repeated reads. The buffer is cleared every iteration, so each one starts with inserts and ends with
+ * repeated reads, as an inventory cycle does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BufferBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int population;
+
+    @Param({ "ONCE", "SLIDING" })
+    public RfidDevice.Dedup dedup;
+
+    private Epc[] epcs;
+    private BenchDevice device;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        @Setup
+        public void setup(final BufferBenchmark benchmark) {
+            next = ThreadLocalRandom.current().nextInt(benchmark.population);
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        epcs = Population.sgtin(population);
+        device = new BenchDevice();
+        device.connect(RfidDevice.Options.builder().dedup(dedup).build());
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        device.clearBuffer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        device.close();
+    }
+
+    private boolean read(final Cursor cursor) {
+        final int index = cursor.next;
+        cursor.next = (index + 1 == population) ? 0 : index + 1;
+        return device.read(epcs[index], (short) -5800, 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean read_1(final Cursor cursor) {
+        return read(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean read_4(final Cursor cursor) {
+        return read(cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean read_max(final Cursor cursor) {
+        return read(cursor);
+    }
+
+}
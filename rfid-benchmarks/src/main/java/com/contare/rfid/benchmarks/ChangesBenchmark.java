@@ -0,0 +1,116 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * BufferedRfidDevice read path under contention while a consumer follows the change log. With
+ * {@code cursor} a background thread drains {@code changesSince} in a loop, so the first read of a tag
+ * after each poll re-stamps it; without it only inserts are stamped. The buffer is cleared every
+ * iteration, as in {@link BufferBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangesBenchmark {
+
+    private static final int POLL_LIMIT = 1_024;
+    private static final long IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Param({ "100000" })
+    public int population;
+
+    @Param({ "false", "true" })
+    public boolean cursor;
+
+    private Epc[] epcs;
+    private BenchDevice device;
+    private Thread poller;
+    private volatile boolean polling;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        @Setup
+        public void setup(final ChangesBenchmark benchmark) {
+            next = ThreadLocalRandom.current().nextInt(benchmark.population);
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        epcs = Population.sgtin(population);
+        device = new BenchDevice();
+        device.connect(RfidDevice.Options.builder().build());
+    }
+
+    @Setup(Level.Iteration)
+    public void start() {
+        device.clearBuffer();
+        if (cursor) {
+            polling = true;
+            poller = new Thread(this::poll, "changes-poller");
+            poller.setDaemon(true);
+            poller.start();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() throws InterruptedException {
+        polling = false;
+        if (poller != null) {
+            poller.join();
+            poller = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        device.close();
+    }
+
+    private boolean read(final Cursor cursor) {
+        final int index = cursor.next;
+        cursor.next = (index + 1 == population) ? 0 : index + 1;
+        return device.read(epcs[index], (short) -5800, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean read_4(final Cursor cursor) {
+        return read(cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean read_max(final Cursor cursor) {
+        return read(cursor);
+    }
+
+    // HELPERS
+    private void poll() {
+        long sequence = 0;
+        while (polling) {
+            final List<TagStats> changes = device.changesSince(sequence, POLL_LIMIT);
+            if (changes.isEmpty()) {
+                LockSupport.parkNanos(IDLE_NANOS);
+            } else {
+                sequence = changes.get(changes.size() - 1).getSequence();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.cluster.ClusterDedup;
+import com.contare.rfid.devices.DeviceGroup;
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of deduplicating beyond a single reader: four readers merged by a {@link DeviceGroup},
+ * with and without a {@link ClusterDedup} behind it (no peers, so only the local digest and filter
+ * probes are measured). Every read is a new tag for its reader.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DedupBenchmark {
+
+    private static final int READERS = 4;
+
+    @Param({ "100000", "1000000" })
+    public int population;
+
+    @Param({ "false", "true" })
+    public boolean cluster;
+
+    private Epc[] epcs;
+    private BenchDevice[] devices;
+    private DeviceGroup group;
+    private ClusterDedup dedup;
+
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private BenchDevice device;
+        private int next;
+
+        @Setup
+        public void setup(final DedupBenchmark benchmark) {
+            device = benchmark.devices[ThreadLocalRandom.current().nextInt(READERS)];
+            next = ThreadLocalRandom.current().nextInt(benchmark.population);
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        epcs = Population.sgtin(population);
+        devices = new BenchDevice[READERS];
+        group = new DeviceGroup();
+        for (int i = 0; i < READERS; i++) {
+            devices[i] = new BenchDevice();
+            devices[i].connect(RfidDevice.Options.builder().build());
+            group.add(devices[i]);
+        }
+        if (cluster) {
+            dedup = new ClusterDedup(ClusterDedup.Options.builder().build());
+            group.setCluster(dedup);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        group.clearBuffer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        group.close();
+        if (dedup != null) {
+            dedup.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(READERS)
+    public boolean read(final Reader reader) {
+        final int index = reader.next;
+        reader.next = (index + 1 == population) ? 0 : index + 1;
+        return reader.device.read(epcs[index], (short) -5800, 1);
+    }
+
+}
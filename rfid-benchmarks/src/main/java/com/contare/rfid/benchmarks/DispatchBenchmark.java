@@ -0,0 +1,67 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Handoff of tag events from reader threads to the user callback on the executor or the ring, single
+ * or batched; every operation is one published tag, the backpressure is BLOCK.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    @Param({ "EXECUTOR", "RING" })
+    public RfidDevice.Handoff handoff;
+
+    @Param({ "SINGLE", "BATCH" })
+    public RfidDevice.Delivery delivery;
+
+    private ExecutorService executor;
+    private BenchDevice device;
+    private TagMetadata tag;
+    private final LongAdder delivered = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        device = new BenchDevice(executor);
+        device.connect(RfidDevice.Options.builder()
+            .handoff(handoff)
+            .delivery(delivery)
+            .batchLatency(5)
+            .build());
+        device.setCallback((event) -> delivered.increment());
+        tag = new TagMetadata(Epc.of96(0x30740000L, 1), null, (short) -5800, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        device.close();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void publish_1() {
+        device.deliver(tag);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void publish_4() {
+        device.deliver(tag);
+    }
+
+}
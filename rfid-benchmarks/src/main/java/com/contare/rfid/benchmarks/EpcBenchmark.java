@@ -0,0 +1,79 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.devices.FakeRfidDevice;
+import com.contare.rfid.objects.Epc;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EPC conversions on the read path (hex and bytes) and SGTIN-96 generation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EpcBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int population;
+
+    private Epc[] epcs;
+    private String[] hex;
+    private byte[][] bytes;
+    private final char[] chars = new char[Epc.MAX_LENGTH * 2];
+    private Epc base;
+    private int next;
+
+    @Setup
+    public void setup() {
+        epcs = Population.sgtin(population);
+        hex = Population.hex(epcs);
+        bytes = new byte[population][];
+        for (int i = 0; i < population; i++) {
+            bytes[i] = epcs[i].toBytes();
+        }
+        base = FakeRfidDevice.EpcGenerator.generateSgtinEpc("101010", 0);
+    }
+
+    private int next() {
+        final int index = next;
+        next = (index + 1 == population) ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public Epc fromHex() {
+        return Epc.fromHex(hex[next()]);
+    }
+
+    @Benchmark
+    public Epc fromBytes() {
+        return Epc.of(bytes[next()]);
+    }
+
+    @Benchmark
+    public int toHexBuffer() {
+        return epcs[next()].toHex(chars, 0);
+    }
+
+    @Benchmark
+    public String toHexString() {
+        // a fresh EPC, the hex string is cached after the first call
+        final Epc epc = epcs[next()];
+        return Epc.of96(epc.getHigh(), epc.getLow()).toHex();
+    }
+
+    @Benchmark
+    public String generateSgtin() {
+        return FakeRfidDevice.EpcGenerator.generateSgtin("101010", next());
+    }
+
+    @Benchmark
+    public Epc generateSgtinFromBase() {
+        return FakeRfidDevice.EpcGenerator.generateSgtinEpc(base, next());
+    }
+
+}
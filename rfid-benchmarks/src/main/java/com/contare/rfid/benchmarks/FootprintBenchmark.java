@@ -0,0 +1,80 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retained heap per unique tag in a device buffer: its table bucket, its change log entry and the slot that
+ * holds the EPC words, the reported read and the accumulators inline. Each invocation fills an empty device
+ * with the population and divides the heap growth, measured after a full collection on both sides, by the
+ * number of tags.
+ * <p>
+ * Reference figures (JDK 17, compressed oops, SerialGC), 100 000 / 1 000 000 tags:
+ * <ul>
+ *     <li>baseline, two concurrent key sets of {@link Epc} and tag metadata: 250 / 259 bytes per tag;</li>
+ *     <li>one inline slot per tag: 107 / 116 bytes per tag.</li>
+ * </ul>
+ * <p>
+ * Read the {@code bytesPerTag} secondary result; the primary score is the fill time, collections included.
+ * Counters are summed over iterations, hence a single measured one.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = { "-XX:+UseSerialGC" })
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    @Param({ "100000", "1000000" })
+    public int population;
+
+    private BenchDevice device;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long bytesPerTag;
+
+    }
+
+    @Setup(Level.Invocation)
+    public void open() throws Exception {
+        device = new BenchDevice();
+        device.connect(RfidDevice.Options.builder().build());
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws Exception {
+        device.close();
+        device = null;
+    }
+
+    @Benchmark
+    public BenchDevice fill(final Footprint footprint) {
+        final long before = usedHeap();
+        // a fresh epc per tag, as adapters decode one per read and the buffer keeps it
+        for (int i = 0; i < population; i++) {
+            device.store(Epc.of96(0x30740000L, i), (short) -5837, 1);
+        }
+        footprint.bytesPerTag = (usedHeap() - before) / population;
+        return device;
+    }
+
+    // HELPERS
+    private static long usedHeap() {
+        // a second collection picks up what the first one only finalized
+        System.gc();
+        System.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.devices.FakeRfidDevice;
+import com.contare.rfid.objects.Epc;
+
+/**
+ * Precomputed SGTIN-96 populations, so benchmarks measure the read path and not EPC generation.
+ */
+final class Population {
+
+    private Population() {
+        // no instantiation
+    }
+
+    static Epc[] sgtin(final int size) {
+        final Epc base = FakeRfidDevice.EpcGenerator.generateSgtinEpc("101010", 0);
+        final Epc[] epcs = new Epc[size];
+        for (int i = 0; i < size; i++) {
+            epcs[i] = FakeRfidDevice.EpcGenerator.generateSgtinEpc(base, i);
+        }
+        return epcs;
+    }
+
+    static String[] hex(final Epc[] epcs) {
+        final String[] values = new String[epcs.length];
+        for (int i = 0; i < epcs.length; i++) {
+            values[i] = epcs[i].toHex();
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.contare.rfid.benchmarks;
+
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the read objects handed to the callback.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TagMetadataBenchmark {
+
+    private Epc epc;
+    private long nanos;
+
+    @Setup
+    public void setup() {
+        epc = Population.sgtin(1)[0];
+        nanos = System.nanoTime();
+    }
+
+    @Benchmark
+    public TagMetadata construct() {
+        return new TagMetadata(epc, null, (short) -5837, 2, nanos);
+    }
+
+    @Benchmark
+    public TagMetadata constructAndStamp() {
+        return new TagMetadata(epc, null, (short) -5837, 2);
+    }
+
+}
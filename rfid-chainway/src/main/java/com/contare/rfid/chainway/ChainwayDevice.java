@@ -3,8 +3,10 @@ package com.contare.rfid.chainway;
 import com.contare.rfid.devices.BufferedRfidDevice;
 import com.contare.rfid.devices.RfidDevice;
 import com.contare.rfid.exceptions.RfidDeviceException;
+import com.contare.rfid.objects.Epc;
 import com.contare.rfid.objects.TagMetadata;
 import com.contare.rfid.utils.NativeLoader;
+import com.contare.rfid.utils.Rssi;
 import com.rscja.deviceapi.ConnectionState;
 import com.rscja.deviceapi.entity.Gen2Entity;
 import com.rscja.deviceapi.entity.UHFTAGInfo;
@@ -13,7 +15,6 @@ import org.jboss.logging.Logger;
 
 import java.io.IOException;
 import java.util.concurrent.ExecutorService;
-import java.util.function.Consumer;
 
 public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice implements RfidDevice {
 
@@ -24,8 +25,6 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
     protected final int _minPower = 0;
     protected final int _maxPower = 33;
 
-    protected final ExecutorService executor;
-    protected volatile Consumer<RfidDevice.Event> _callback;
     protected volatile RfidDevice.Status _status = RfidDevice.Status.DISCONNECTED;
     protected boolean isReading = false;
 
@@ -41,8 +40,8 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
     }
 
     protected ChainwayDevice(final T uhf, final ExecutorService executor, final Class<?> clazz) {
+        super(executor);
         this.uhf = uhf;
-        this.executor = executor;
         this.logger = Logger.getLogger(clazz);
     }
 
@@ -62,6 +61,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
     public boolean connect(final RfidDevice.Options opts) throws RfidDeviceException {
         try {
             this.opts = opts;
+            configure(opts);
 
             boolean connected = this.init(opts);
 
@@ -73,9 +73,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
                     _status = status;
 
                     // dispatch status change to user listener
-                    executor.execute(() -> {
-                        _callback.accept(new StatusEvent(status));
-                    });
+                    dispatch(new StatusEvent(status));
                 });
             }
 
@@ -92,7 +90,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
         uhf.setInventoryCallback(null);
 
         // free device resources
-        boolean freed = uhf.free();
+        boolean freed = check("free", uhf::free);
         if (freed) {
             logger.debugf("Device successfully freed");
         }
@@ -105,7 +103,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
 
     @Override
     public RfidDevice.Params getInventoryParameters() {
-        final Gen2Entity entity = uhf.getGen2();
+        final Gen2Entity entity = query("getGen2", uhf::getGen2, value -> value != null);
         // TODO: how do we transform Gen2Entity to RfidDevice.Params?
         return null;
     }
@@ -114,12 +112,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
     public boolean setInventoryParameters(final RfidDevice.Params params) {
         // TODO: how do we transform RfidDevice.Params to Gen2Entity?
         final Gen2Entity entity = null;
-        return uhf.setGen2(entity);
-    }
-
-    @Override
-    public void setCallback(final Consumer<RfidDevice.Event> callback) {
-        _callback = callback;
+        return check("setGen2", () -> uhf.setGen2(entity));
     }
 
     @Override
@@ -128,32 +121,31 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
             throw new RfidDeviceException("Device is already reading.");
         }
 
-        // final Consumer<TagMetadata> callback = Optional.ofNullable(_callback).orElse(_defaultCallback);
         uhf.setInventoryCallback((info) -> {
             try {
-                // convert chainway tag info to our common tag object
-                final TagMetadata tag = toTagMetadata(info);
-
-                // check if 'epc' is a new tag
-                if (_uniques.add(tag.rfid)) {
-                    // insert it into the buffer
-                    if (_buffer.add(tag)) {
-                        // dispatch tag to user callback
-                        executor.execute(() -> {
-                            _callback.accept(new TagEvent(tag));
-                        });
-                    } else {
-                        logger.warnf("Tag already in buffer: %s", tag);
-                    }
-                } else {
-                    logger.debugf("Tag already seen: %s", tag);
+                final long nanos = System.nanoTime();
+
+                // reject duplicates on the epc, rssi and antenna are only parsed to aggregate a duplicate
+                final Epc epc = toEpc(info);
+                if (isBuffered(epc, info, ChainwayTag.FIELDS, nanos)) {
+                    logger.debugf("Tag already seen: %s", epc);
+                    return;
+                }
+
+                // wrap chainway tag info, other fields are decoded on demand
+                final TagMetadata tag = new ChainwayTag(epc, info, nanos);
+
+                // insert it into the buffer
+                if (buffer(tag)) {
+                    // dispatch tag to user callback
+                    publish(tag);
                 }
             } catch (Exception e) {
                 logger.errorf("Error processing tag metadata: %s", e.getMessage());
             }
         });
 
-        boolean started = uhf.startInventoryTag();
+        boolean started = check("startInventoryTag", uhf::startInventoryTag);
         if (started) {
             logger.debugf("Device successfully started inventory");
         }
@@ -163,8 +155,9 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
 
     @Override
     public boolean stopInventory() {
-        boolean stopped = uhf.stopInventory();
+        boolean stopped = check("stopInventory", uhf::stopInventory);
         if (stopped) {
+            flush();
             logger.debugf("Device successfully stopped inventory");
         } else {
             logger.errorf("Device failed to stop inventory");
@@ -207,10 +200,10 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
                 throw new IllegalArgumentException("Filter data length must be greater than or equal to filter bit count");
             }
 
-            return uhf.killTag(filterPwd, filterBank, filterPtr, filterCnt, filterData);
+            return check("killTag", () -> uhf.killTag(filterPwd, filterBank, filterPtr, filterCnt, filterData));
         }
 
-        return uhf.killTag(filterPwd);
+        return check("killTag", () -> uhf.killTag(filterPwd));
     }
 
     @Override
@@ -222,7 +215,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
 
     @Override
     public RfidDevice.Frequency getFrequency() {
-        final int mask = uhf.getFrequencyMode();
+        final int mask = query("getFrequencyMode", uhf::getFrequencyMode, value -> value >= 0);
         final ChainwayFrequency value = ChainwayFrequency.of(mask);
         return value.toFrequency();
     }
@@ -230,7 +223,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
     @Override
     public boolean setFrequency(final RfidDevice.Frequency frequency) {
         final ChainwayFrequency value = ChainwayFrequency.of(frequency);
-        return uhf.setFrequencyMode((byte) value.getMask());
+        return check("setFrequencyMode", () -> uhf.setFrequencyMode((byte) value.getMask()));
     }
 
     @Override
@@ -241,24 +234,28 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
 
     @Override
     public boolean setBeep(final boolean enabled) {
-        return uhf.setBeep(enabled ? 1 : 0);
+        return check("setBeep", () -> uhf.setBeep(enabled ? 1 : 0));
     }
 
     @Override
     public boolean getBeep() {
-        final char[] result = uhf.getBeep();
+        final char[] result = query("getBeep", uhf::getBeep, value -> value != null);
         return result[0] == 1;
     }
 
     @Override
     public boolean setTagFocus(final boolean enabled) {
-        return uhf.setTagFocus(enabled);
+        return check("setTagFocus", () -> uhf.setTagFocus(enabled));
     }
 
     @Override
     public void close() throws Exception {
-        this.stopInventory();
-        this.disconnect();
+        try {
+            this.stopInventory();
+            this.disconnect();
+        } finally {
+            closeDispatch();
+        }
     }
 
     // OTHERS
@@ -269,7 +266,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return protocol.
      */
     public Protocol getProtocol() {
-        final int mask = uhf.getProtocol();
+        final int mask = query("getProtocol", uhf::getProtocol, value -> value >= 0);
         final Protocol value = Protocol.get(mask);
         if (value == null) {
             throw new UnsupportedOperationException(String.format("Unsupported protocol mask %d", mask));
@@ -284,7 +281,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return true if operation succeeded, false otherwise.
      */
     public boolean setProtocol(final Protocol value) {
-        return uhf.setProtocol(value.getMask());
+        return check("setProtocol", () -> uhf.setProtocol(value.getMask()));
     }
 
     /**
@@ -293,7 +290,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return RFLink
      */
     public RFLink getRFLink() {
-        final int mask = uhf.getRFLink();
+        final int mask = query("getRFLink", uhf::getRFLink, value -> value >= 0);
         final RFLink value = RFLink.get(mask);
         if (value == null) {
             throw new UnsupportedOperationException(String.format("Unsupported RFLink mask %d", mask));
@@ -308,20 +305,20 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return true if operation succeeded, false otherwise.
      */
     public boolean setRFLink(final RFLink value) {
-        return uhf.setRFLink(value.getMask());
+        return check("setRFLink", () -> uhf.setRFLink(value.getMask()));
     }
 
     public void setMode(final boolean epc, final boolean tid, final boolean user) {
         // EPC + TID + USER
         if (epc && tid && user) {
-            uhf.setEPCAndTIDUserMode(1, 1);
+            check("setEPCAndTIDUserMode", () -> uhf.setEPCAndTIDUserMode(1, 1));
         }
         // EPC + TID
         else if (epc && tid) {
-            uhf.setEPCAndTIDMode();
+            check("setEPCAndTIDMode", uhf::setEPCAndTIDMode);
         }
         // EPC
-        uhf.setEPCMode();
+        check("setEPCMode", uhf::setEPCMode);
     }
 
     /**
@@ -330,7 +327,8 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return true if continuous wave is 'on', false if is 'off'.
      */
     public boolean getContinuousWave() {
-        return uhf.getCW() == 1;
+        final int flag = query("getCW", uhf::getCW, value -> value >= 0);
+        return flag == 1;
     }
 
     /**
@@ -341,7 +339,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      */
     public boolean setContinuousWave(final boolean enabled) {
         final int flag = enabled ? 1 : 0; // 1 - on, 0 - off
-        final boolean updated = uhf.setCW(flag);
+        final boolean updated = check("setCW", () -> uhf.setCW(flag));
         if (updated) {
             logger.debugf("Continuous wave set to '%d' = '%s'", flag, (flag == 1) ? "on" : "off");
         }
@@ -355,7 +353,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return true if operation succeeded, false otherwise.
      */
     public boolean setFastID(final boolean enabled) {
-        return uhf.setFastID(enabled);
+        return check("setFastID", () -> uhf.setFastID(enabled));
     }
 
     /**
@@ -365,7 +363,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return true if operation succeeded, false otherwise.
      */
     public boolean setFreeHop(final float value) {
-        return uhf.setFreHop(value);
+        return check("setFreHop", () -> uhf.setFreHop(value));
     }
 
     /**
@@ -374,7 +372,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return
      */
     public void getPwm() {
-        final int[] array = uhf.getPwm();
+        final int[] array = query("getPwm", uhf::getPwm, value -> value != null);
         final int workTime = array[0];
         final int waitTime = array[1]; // return null on failure
     }
@@ -387,7 +385,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return true if operation succeeded, false otherwise.
      */
     public boolean setPwm(final int workTime, final int waitTime) {
-        return uhf.setPwm(workTime, waitTime);
+        return check("setPwm", () -> uhf.setPwm(workTime, waitTime));
     }
 
     /**
@@ -396,7 +394,8 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
      * @return module temperature. -1 means return failure.
      */
     public int getTemperature() {
-        return uhf.getTemperature();
+        final int temperature = query("getTemperature", uhf::getTemperature, value -> value != -1);
+        return temperature;
     }
 
     /**
@@ -422,7 +421,7 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
         if (data.length() * 4 < cnt) {
             throw new IllegalArgumentException("Filter data length must be greater than or equal to filter bit count");
         }
-        return uhf.setFilter(bank, ptr, cnt, data);
+        return check("setFilter", () -> uhf.setFilter(bank, ptr, cnt, data));
     }
 
     /**
@@ -471,15 +470,16 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
             if (filterData.length() * 4 < filterCnt) {
                 throw new IllegalArgumentException("Filter data length must be greater than or equal to filter bit count");
             }
-            return uhf.writeData(accessPwd, filterBank, filterPtr, filterCnt, filterData, bank, ptr, cnt, writeData);
+            return check("writeData", () -> uhf.writeData(accessPwd, filterBank, filterPtr, filterCnt, filterData, bank, ptr, cnt, writeData));
         }
-        return uhf.writeData(accessPwd, bank, ptr, cnt, writeData);
+        return check("writeData", () -> uhf.writeData(accessPwd, bank, ptr, cnt, writeData));
     }
 
     // HELPERS
-    private TagMetadata toTagMetadata(final UHFTAGInfo info) {
-        final Integer antenna = Integer.parseInt(info.getAnt());
-        return new TagMetadata(info.getEPC(), info.getTid(), info.getRssi(), antenna);
+    private Epc toEpc(final UHFTAGInfo info) {
+        // prefer the raw bytes delivered by the sdk, some transports only fill the hex string
+        final byte[] bytes = info.getEpcBytes();
+        return (bytes != null && bytes.length > 0) ? Epc.of(bytes) : Epc.fromHex(info.getEPC());
     }
 
     private RfidDevice.Status toStatus(final ConnectionState state) {
@@ -495,4 +495,56 @@ public abstract class ChainwayDevice<T extends IUHF> extends BufferedRfidDevice
         }
     }
 
+    // NESTED TYPES
+
+    /**
+     * Tag view over the sdk {@link UHFTAGInfo}, tid, rssi and antenna are parsed when first read.
+     */
+    private static final class ChainwayTag extends TagMetadata {
+
+        private static final ReadFields<UHFTAGInfo> FIELDS = new ReadFields<>() {
+            @Override
+            public short rssi(final UHFTAGInfo info) {
+                return ChainwayTag.rssi(info);
+            }
+
+            @Override
+            public int antenna(final UHFTAGInfo info) {
+                return ChainwayTag.antenna(info);
+            }
+        };
+
+        private final UHFTAGInfo info;
+
+        private ChainwayTag(final Epc epc, final UHFTAGInfo info, final long nanos) {
+            super(epc, nanos);
+            this.info = info;
+        }
+
+        @Override
+        protected String decodeTid() {
+            return info.getTid();
+        }
+
+        @Override
+        protected short decodeRssi() {
+            return rssi(info);
+        }
+
+        @Override
+        protected int decodeAntenna() {
+            return antenna(info);
+        }
+
+        private static short rssi(final UHFTAGInfo info) {
+            return Rssi.parse(info.getRssi());
+        }
+
+        private static int antenna(final UHFTAGInfo info) {
+            final String ant = info.getAnt();
+            return (ant == null || ant.isEmpty()) ? TagMetadata.ANTENNA_UNKNOWN : Integer.parseInt(ant);
+        }
+
+    }
+
 }
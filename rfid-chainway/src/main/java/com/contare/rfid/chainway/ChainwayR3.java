@@ -15,7 +15,7 @@ public class ChainwayR3 extends ChainwayDevice<RFIDWithUHFUsb> {
 
     @Override
     public boolean init(final RfidDevice.Options opts) throws RfidDeviceException {
-        boolean connected = uhf.init(null);
+        boolean connected = check("init", () -> uhf.init(null));
         if (connected) {
             logger.debugf("Device successfully connected");
         } else {
@@ -39,7 +39,8 @@ public class ChainwayR3 extends ChainwayDevice<RFIDWithUHFUsb> {
 
     @Override
     public int getPower() {
-        return uhf.getPower();
+        final int power = query("getPower", uhf::getPower, value -> value >= 0);
+        return power;
     }
 
     @Override
@@ -47,7 +48,7 @@ public class ChainwayR3 extends ChainwayDevice<RFIDWithUHFUsb> {
         if (value < _minPower || value > _maxPower) {
             throw new IllegalArgumentException(String.format("'power' must be between '%d' amd '%d'", _minPower, _maxPower));
         }
-        return uhf.setPower(value);
+        return check("setPower", () -> uhf.setPower(value));
     }
 
 }
@@ -29,7 +29,7 @@ public class ChainwayUR4 extends ChainwayDevice<RFIDWithUHFNetworkUR4> {
 
         this.antennas = opts.getAntennas();
 
-        boolean connected = uhf.init(ip, port);
+        boolean connected = check("init", () -> uhf.init(ip, port));
         if (connected) {
             logger.debugf("Device successfully connected to %s:%d", ip, port);
         } else {
@@ -44,7 +44,7 @@ public class ChainwayUR4 extends ChainwayDevice<RFIDWithUHFNetworkUR4> {
         for (int ant = 1; ant <= antennas; ant++) {
             final AntennaNameEnum antenna = AntennaNameEnum.getValue(ant);
             if (antenna != null) {
-                int power = uhf.getPower(antenna);
+                int power = query("getPower", () -> uhf.getPower(antenna), value -> value >= 0);
                 results.add(power);
             }
         }
@@ -62,7 +62,7 @@ public class ChainwayUR4 extends ChainwayDevice<RFIDWithUHFNetworkUR4> {
         for (int ant = 1; ant <= antennas; ant++) {
             final AntennaNameEnum antenna = AntennaNameEnum.getValue(ant);
             if (antenna != null) {
-                boolean updated = uhf.setPower(antenna, value);
+                boolean updated = check("setPower", () -> uhf.setPower(antenna, value));
                 if (!updated) {
                     return false;
                 }
@@ -86,7 +86,7 @@ public class ChainwayUR4 extends ChainwayDevice<RFIDWithUHFNetworkUR4> {
             final AntennaState state = new AntennaState(ant, enabled);
             value.add(state);
         }
-        return uhf.setAntenna(value);
+        return check("setAntenna", () -> uhf.setAntenna(value));
     }
 
     /**
@@ -95,7 +95,7 @@ public class ChainwayUR4 extends ChainwayDevice<RFIDWithUHFNetworkUR4> {
      * @return true if operation succeeded, false otherwise.
      */
     public boolean reset() {
-        return uhf.resetUHFSoft();
+        return check("resetUHFSoft", uhf::resetUHFSoft);
     }
 
 }
@@ -0,0 +1,124 @@
+package com.contare.rfid.buffer;
+
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.objects.TagStats;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * BufferSnapshot
+ * <p>
+ * - Stable view of the buffer: either a sealed epoch returned by a rotation, or a point in time view of
+ * the live buffer.
+ * - Backed by an {@link EpcTable.Snapshot} of the buffer table, which shares the table arrays; the live
+ * buffer copies a shared segment on its next write, nothing is copied when the snapshot is taken.
+ * - The set of tags never changes. The statistics of a tag of a live snapshot keep following its reads,
+ * each {@link TagStats} is consistent on its own.
+ */
+public final class BufferSnapshot {
+
+    private final long epoch;
+    private final EpcTable.Snapshot<TagSlot> slots;
+    private final long openedAt;
+    private final long takenAt;
+
+    /**
+     * @param epoch    - epoch number, starting at 0 for the first epoch of a device.
+     * @param slots    - buffer table snapshot.
+     * @param openedAt - {@link System#nanoTime()} when the epoch started.
+     * @param takenAt  - {@link System#nanoTime()} when the snapshot was taken (the epoch sealed).
+     */
+    public BufferSnapshot(final long epoch, final EpcTable.Snapshot<TagSlot> slots, final long openedAt, final long takenAt) {
+        this.epoch = epoch;
+        this.slots = slots;
+        this.openedAt = openedAt;
+        this.takenAt = takenAt;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getOpenedAt() {
+        return openedAt;
+    }
+
+    public long getTakenAt() {
+        return takenAt;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public boolean isEmpty() {
+        return slots.size() == 0;
+    }
+
+    public boolean contains(final Epc epc) {
+        return slots.get(epc) != null;
+    }
+
+    /**
+     * Returns the reported read of every tag of the snapshot.
+     *
+     * @return the tags of the snapshot.
+     */
+    public Set<TagMetadata> getTags() {
+        return new Tags();
+    }
+
+    /**
+     * Returns the statistics of a tag of the snapshot.
+     *
+     * @param epc - tag epc.
+     * @return the tag statistics, or null if the tag is not in the snapshot.
+     */
+    public TagStats getStats(final Epc epc) {
+        final TagSlot slot = slots.get(epc);
+        return (slot != null) ? slot.snapshot() : null;
+    }
+
+    /**
+     * Returns the statistics of every tag of the snapshot.
+     *
+     * @return the statistics of every tag.
+     */
+    public List<TagStats> getStats() {
+        final List<TagStats> list = new ArrayList<>(slots.size());
+        slots.forEach(slot -> list.add(slot.snapshot()));
+        return list;
+    }
+
+    // NESTED TYPES
+    private final class Tags extends AbstractSet<TagMetadata> {
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof TagMetadata)) return false;
+            final TagMetadata tag = (TagMetadata) o;
+            final TagSlot slot = slots.get(tag.getEpc());
+            return slot != null && slot.isReported(tag);
+        }
+
+        @Override
+        public Iterator<TagMetadata> iterator() {
+            final List<TagMetadata> list = new ArrayList<>(slots.size());
+            slots.forEach(slot -> list.add(slot.getTag()));
+            return Collections.unmodifiableList(list).iterator();
+        }
+
+        @Override
+        public int size() {
+            return slots.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.contare.rfid.buffer;
+
+import com.contare.rfid.objects.TagMetadata;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * BufferView
+ * <p>
+ * - Read only {@link java.util.Set} view of the reported read of every slot in a table.
+ * - Lookups go straight to the table; iteration copies the reads at the time it starts.
+ */
+public final class BufferView extends AbstractSet<TagMetadata> {
+
+    private final EpcTable<TagSlot> table;
+
+    public BufferView(final EpcTable<TagSlot> table) {
+        this.table = table;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if (!(o instanceof TagMetadata)) return false;
+        final TagMetadata tag = (TagMetadata) o;
+        final TagSlot slot = table.get(tag.getEpc());
+        return slot != null && slot.isReported(tag);
+    }
+
+    @Override
+    public Iterator<TagMetadata> iterator() {
+        final List<TagMetadata> list = new ArrayList<>(table.size());
+        table.forEach(slot -> list.add(slot.getTag()));
+        return Collections.unmodifiableList(list).iterator();
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+}
@@ -0,0 +1,326 @@
+package com.contare.rfid.buffer;
+
+import com.contare.rfid.objects.TagStats;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ChangeLog
+ * <p>
+ * - Orders the buffer slots of one epoch by their last change: every insert takes a new, monotonically
+ * increasing sequence, and so does an update of a slot that a consumer may already have read.
+ * - Append only: the slot of a sequence is stored at its position in a chunked array, so a stamp costs one
+ * atomic increment and one release store; stamping threads share no lock.
+ * - A slot moved to a newer sequence leaves a dead entry behind. A chunk is compacted to its live entries
+ * once three quarters of it are dead and dropped once all of it is, so the log is bounded by the buffer
+ * size, not by the number of reads.
+ * - Updates of a slot whose sequence is newer than anything handed out so far keep that sequence: every
+ * consumer will still see the slot, with its latest values. A repeated read therefore costs a single
+ * volatile read until the next poll.
+ * - A reader stops at the first sequence whose slot is not stored yet, so it never skips a stamp in flight.
+ */
+public final class ChangeLog {
+
+    // stamps a sealed log may still take after its successor opened: at most one per thread inside the epoch
+    private static final long ROTATION_GAP = 1L << 16;
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int COMPACT_AT = CHUNK_SIZE - (CHUNK_SIZE >>> 2);
+    private static final int MIN_DIRECTORY = 16;
+
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(TagSlot[].class);
+
+    private final long origin;                  // sequence preceding the first stamp of this log
+    private final AtomicLong sequence;
+    private final AtomicLong watermark;         // highest sequence a consumer may have read
+    private volatile Directory directory = new Directory(0, MIN_DIRECTORY);
+    private volatile int created;               // chunks created so far, always in order
+
+    public ChangeLog() {
+        this(0);
+    }
+
+    /**
+     * @param origin - sequence the first stamp follows.
+     */
+    public ChangeLog(final long origin) {
+        if (origin < 0) {
+            throw new IllegalArgumentException("'origin' must not be negative");
+        }
+        this.origin = origin;
+        this.sequence = new AtomicLong(origin);
+        this.watermark = new AtomicLong(origin);
+    }
+
+    /**
+     * Opens the log of the next epoch. Its sequences follow every sequence this log may still hand out to
+     * the stamps in flight when the epoch rotated.
+     *
+     * @return the log of the next epoch.
+     */
+    public ChangeLog successor() {
+        return new ChangeLog(sequence.get() + ROTATION_GAP);
+    }
+
+    /**
+     * Returns the sequence of the last change.
+     *
+     * @return the current sequence.
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Stamps a newly inserted slot.
+     *
+     * @param slot - slot to stamp.
+     */
+    public void stamp(final TagSlot slot) {
+        restamp(slot, true);
+    }
+
+    /**
+     * Records an update of the slot, re-stamping it only if a consumer may already have read it.
+     *
+     * @param slot - updated slot.
+     */
+    public void touch(final TagSlot slot) {
+        if (slot.sequence > watermark.get()) return;
+        restamp(slot, false);
+    }
+
+    /**
+     * Removes a slot that left the buffer.
+     *
+     * @param slot - removed slot.
+     */
+    public void remove(final TagSlot slot) {
+        synchronized (slot) {
+            final long previous = slot.sequence;
+            slot.sequence = -1;
+            if (previous > 0) {
+                release(previous);
+            }
+        }
+    }
+
+    /**
+     * Returns the slots inserted or updated after the given sequence, in sequence order.
+     * <p>
+     * Use the sequence of the last returned entry as the next cursor. A slot updated while the changes
+     * are read is returned at its newest position only.
+     *
+     * @param after - sequence already consumed (0 for everything).
+     * @param limit - maximum number of entries.
+     * @return the changed slots.
+     */
+    public List<TagStats> since(final long after, final int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("'limit' must be positive");
+        }
+        final long high = sequence.get();
+        // from now on an update of a slot up to high re-stamps it, this call may hand the slot out
+        for (long current = watermark.get(); current < high; current = watermark.get()) {
+            if (watermark.compareAndSet(current, high)) break;
+        }
+
+        final List<TagStats> list = new ArrayList<>(Math.min(limit, 1_024));
+        long next = Math.max(after, origin) + 1;
+        while (next <= high) {
+            final int index = chunkIndex(next);
+            // a chunk not created yet only holds stamps in flight
+            if (index >= created) break;
+            final long base = base(index);
+            final long end = Math.min(high, base + CHUNK_MASK);
+            final Chunk chunk = chunk(index);
+            // dropped: every entry of the chunk is dead
+            if (chunk != null) {
+                final Object entries = chunk.entries;
+                if (entries instanceof TagSlot[]) {
+                    final TagSlot[] slots = (TagSlot[]) entries;
+                    for (; next <= end; next++) {
+                        final TagSlot slot = (TagSlot) ENTRIES.getAcquire(slots, (int) (next - base));
+                        // stamp in flight, returned by the next call
+                        if (slot == null) return list;
+                        if (add(list, slot, next) && list.size() >= limit) return list;
+                    }
+                } else {
+                    final Sparse sparse = (Sparse) entries;
+                    int i = Arrays.binarySearch(sparse.offsets, (int) (next - base));
+                    for (i = (i < 0) ? -i - 1 : i; i < sparse.offsets.length && base + sparse.offsets[i] <= end; i++) {
+                        if (add(list, sparse.slots[i], base + sparse.offsets[i]) && list.size() >= limit) return list;
+                    }
+                }
+            }
+            next = end + 1;
+        }
+        return list;
+    }
+
+    // HELPERS
+    private void restamp(final TagSlot slot, final boolean insert) {
+        synchronized (slot) {
+            final long previous = slot.sequence;
+            // removed, or already re-stamped by a concurrent update
+            if (previous < 0 || (!insert && previous > watermark.get())) return;
+            final long next = sequence.incrementAndGet();
+            slot.sequence = next;
+            final int index = chunkIndex(next);
+            Chunk chunk = chunk(index);
+            if (chunk == null) {
+                chunk = create(index);
+            }
+            ENTRIES.setRelease((TagSlot[]) chunk.entries, (int) (next - base(index)), slot);
+            if (previous > 0) {
+                release(previous);
+            }
+        }
+    }
+
+    // the entry of the sequence is dead, the slot moved on or left the buffer
+    private void release(final long sequence) {
+        final int index = chunkIndex(sequence);
+        final Chunk chunk = chunk(index);
+        final int dead = (int) Chunk.DEAD.getAndAdd(chunk, 1) + 1;
+        if (dead == CHUNK_SIZE) {
+            drop(index);
+        } else if (dead >= COMPACT_AT && chunk.entries instanceof TagSlot[]) {
+            chunk.compact(base(index));
+        }
+    }
+
+    private boolean add(final List<TagStats> list, final TagSlot slot, final long sequence) {
+        // moved to a newer sequence, it is returned there
+        if (slot.sequence != sequence) return false;
+        final TagStats stats = slot.snapshot();
+        if (stats.getSequence() != sequence) return false;
+        list.add(stats);
+        return true;
+    }
+
+    private int chunkIndex(final long sequence) {
+        return (int) ((sequence - origin - 1) >>> CHUNK_SHIFT);
+    }
+
+    private long base(final int index) {
+        return origin + 1 + ((long) index << CHUNK_SHIFT);
+    }
+
+    private Chunk chunk(final int index) {
+        final Directory current = directory;
+        final int i = index - current.first;
+        return (i >= 0 && i < current.chunks.length()) ? current.chunks.get(i) : null;
+    }
+
+    // once per chunk: creates every chunk up to the given one, growing the directory when it is full
+    private synchronized Chunk create(final int index) {
+        Directory current = directory;
+        while (created <= index) {
+            final int next = created;
+            if (next - current.first >= current.chunks.length()) {
+                current = grow(current, next);
+                directory = current;
+            }
+            current.chunks.set(next - current.first, new Chunk());
+            created = next + 1;
+        }
+        return current.chunks.get(index - current.first);
+    }
+
+    // copies the chunks from the first one not dropped, so dropped chunks also leave the directory
+    private Directory grow(final Directory current, final int needed) {
+        int first = current.first;
+        while (first < created && current.chunks.get(first - current.first) == null) {
+            first++;
+        }
+        final Directory grown = new Directory(first, Math.max(MIN_DIRECTORY, (needed - first + 1) << 1));
+        for (int i = first; i < created; i++) {
+            grown.chunks.set(i - first, current.chunks.get(i - current.first));
+        }
+        return grown;
+    }
+
+    private synchronized void drop(final int index) {
+        final Directory current = directory;
+        current.chunks.set(index - current.first, null);
+    }
+
+    // NESTED TYPES
+    private static final class Directory {
+
+        private final int first;    // index of the chunk at position 0
+        private final AtomicReferenceArray<Chunk> chunks;
+
+        private Directory(final int first, final int capacity) {
+            this.first = first;
+            this.chunks = new AtomicReferenceArray<>(capacity);
+        }
+
+    }
+
+    private static final class Chunk {
+
+        private static final VarHandle DEAD;
+
+        static {
+            try {
+                DEAD = MethodHandles.lookup().findVarHandle(Chunk.class, "dead", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private volatile Object entries = new TagSlot[CHUNK_SIZE];  // TagSlot[] by offset, or Sparse
+        private volatile int dead;
+
+        /**
+         * Keeps only the live entries, once every entry of the chunk is stored. A concurrent reader keeps
+         * walking the array it already has, neither form changes after it is published.
+         */
+        private synchronized void compact(final long base) {
+            if (!(entries instanceof TagSlot[])) return;
+            final TagSlot[] slots = (TagSlot[]) entries;
+            int live = 0;
+            for (int i = 0; i < slots.length; i++) {
+                final TagSlot slot = (TagSlot) ENTRIES.getAcquire(slots, i);
+                // a stamp in flight, the next release retries
+                if (slot == null) return;
+                if (slot.sequence == base + i) live++;
+            }
+            // entries only die meanwhile, never come back
+            final int[] offsets = new int[live];
+            final TagSlot[] kept = new TagSlot[live];
+            int j = 0;
+            for (int i = 0; i < slots.length && j < live; i++) {
+                if (slots[i].sequence == base + i) {
+                    offsets[j] = i;
+                    kept[j++] = slots[i];
+                }
+            }
+            entries = new Sparse(Arrays.copyOf(offsets, j), Arrays.copyOf(kept, j));
+        }
+
+    }
+
+    private static final class Sparse {
+
+        private final int[] offsets;    // ascending
+        private final TagSlot[] slots;
+
+        private Sparse(final int[] offsets, final TagSlot[] slots) {
+            this.offsets = offsets;
+            this.slots = slots;
+        }
+
+    }
+
+}
@@ -0,0 +1,523 @@
+package com.contare.rfid.buffer;
+
+import com.contare.rfid.objects.Epc;
+
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * EpcTable
+ * <p>
+ * - Concurrent hash table keyed by {@link Epc}, used to deduplicate reads and to hold one slot per unique tag.
+ * - The table is split in lock striped segments; each segment is an open addressing (linear probing) table
+ * of the precomputed EPC hashes next to the entries. Entries carry their own EPC, so the table holds no key
+ * objects and probing only dereferences an entry whose hash matches.
+ * - Segments grow independently: a resize only locks the segment being resized, inserts into every
+ * other segment keep going (no stop-the-world rehash).
+ * - Lookups take no lock: each segment is a seqlock, writers bump a version around every change and a
+ * lookup retries when the version moved under it.
+ * - Iteration is weakly consistent, each segment is copied under its own lock.
+ * - {@link #snapshot()} shares the segment arrays instead of copying them: a segment marked shared is
+ * copied by its next write, so a snapshot costs one copy of each segment written after it, never a
+ * second index kept in step with the table.
+ *
+ * @param <V> the per-tag slot type.
+ */
+public final class EpcTable<V extends EpcTable.Entry> {
+
+    private static final int DEFAULT_SEGMENTS = 64;
+    private static final int DEFAULT_CAPACITY = 1_024;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+    private static final int FREE = 0;
+
+    private final Segment<V>[] segments;
+    private final int shift;
+
+    public EpcTable() {
+        this(DEFAULT_CAPACITY, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param capacity - expected number of unique tags.
+     * @param segments - number of lock stripes, rounded up to a power of two.
+     */
+    public EpcTable(final int capacity, final int segments) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("'capacity' must not be negative");
+        }
+        if (segments <= 0 || segments > (1 << 16)) {
+            throw new IllegalArgumentException("'segments' must be between 1 and 65536");
+        }
+
+        final int count = ceilPowerOfTwo(segments);
+        final int segmentCapacity = Math.max(MIN_SEGMENT_CAPACITY, ceilPowerOfTwo(capacity / count * 2));
+
+        this.segments = newSegments(count);
+        for (int i = 0; i < count; i++) {
+            this.segments[i] = new Segment<>(segmentCapacity);
+        }
+        this.shift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * Returns the slot mapped to the given EPC.
+     *
+     * @param key - tag epc.
+     * @return the slot, or null if the EPC is not in the table.
+     */
+    public V get(final Epc key) {
+        Objects.requireNonNull(key, "key must not be null");
+        return segmentFor(key.hashCode()).get(key);
+    }
+
+    /**
+     * Returns if the given EPC is in the table.
+     *
+     * @param key - tag epc.
+     * @return true if the EPC is in the table.
+     */
+    public boolean contains(final Epc key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the EPC to the given slot, unless it is already mapped.
+     *
+     * @param key   - tag epc.
+     * @param value - slot to insert.
+     * @return the slot already mapped to the EPC, or null if the given slot was inserted.
+     */
+    public V putIfAbsent(final Epc key, final V value) {
+        Objects.requireNonNull(key, "key must not be null");
+        Objects.requireNonNull(value, "value must not be null");
+        return segmentFor(key.hashCode()).putIfAbsent(key, value);
+    }
+
+    /**
+     * Removes the EPC from the table.
+     *
+     * @param key - tag epc.
+     * @return the removed slot, or null if the EPC was not in the table.
+     */
+    public V remove(final Epc key) {
+        Objects.requireNonNull(key, "key must not be null");
+        return segmentFor(key.hashCode()).remove(key, null);
+    }
+
+    /**
+     * Removes the EPC from the table, only if it is still mapped to the given slot.
+     *
+     * @param key      - tag epc.
+     * @param expected - slot expected to be mapped to the EPC (compared by identity).
+     * @return true if the slot was removed.
+     */
+    public boolean remove(final Epc key, final V expected) {
+        Objects.requireNonNull(key, "key must not be null");
+        Objects.requireNonNull(expected, "expected must not be null");
+        return segmentFor(key.hashCode()).remove(key, expected) != null;
+    }
+
+    /**
+     * Returns the number of unique EPCs in the table.
+     * <p>
+     * The value is a sum over the segments, it is not an atomic snapshot under concurrent inserts.
+     *
+     * @return the number of unique EPCs.
+     */
+    public int size() {
+        int total = 0;
+        for (Segment<V> segment : segments) {
+            total += segment.size();
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        for (Segment<V> segment : segments) {
+            if (segment.size() > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes every entry. Each segment drops its arrays instead of walking them.
+     */
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Visits every entry, one segment at a time.
+     *
+     * @param action - visitor.
+     */
+    public void forEach(final Consumer<? super V> action) {
+        Objects.requireNonNull(action, "action must not be null");
+        for (Segment<V> segment : segments) {
+            segment.forEach(action);
+        }
+    }
+
+    /**
+     * Returns a point in time view of the table, taken without copying any entry.
+     * <p>
+     * Each segment is captured under its own lock; later writes copy the captured segment first.
+     *
+     * @return the table snapshot.
+     */
+    public Snapshot<V> snapshot() {
+        final Slots[] captured = new Slots[segments.length];
+        int total = 0;
+        for (int i = 0; i < segments.length; i++) {
+            final Segment<V> segment = segments[i];
+            synchronized (segment) {
+                segment.shared = true;
+                captured[i] = segment.slots;
+                total += segment.size;
+            }
+        }
+        return new Snapshot<>(captured, total, shift);
+    }
+
+    // HELPERS
+    private Segment<V> segmentFor(final int hash) {
+        return segments[index(hash, shift)];
+    }
+
+    // segments use the upper bits, slots inside a segment use the lower bits
+    private static int index(final int hash, final int shift) {
+        return (shift == 32) ? 0 : hash >>> shift;
+    }
+
+    private static int stored(final int hash) {
+        return (hash == FREE) ? 1 : hash;
+    }
+
+    private static int find(final Slots slots, final Epc key) {
+        final int[] hashes = slots.hashes;
+        final int hash = stored(key.hashCode());
+        final int mask = hashes.length - 1;
+
+        // a lock-free probe may race a backward shift, so it is bounded to one lap of the table and
+        // tolerates an entry that is missing or moved: the version check discards the result
+        int index = hash & mask;
+        int current;
+        for (int probes = 0; probes <= mask && (current = hashes[index]) != FREE; probes++) {
+            if (current == hash) {
+                final Entry entry = (Entry) slots.entries[index];
+                if (entry != null && entry.hasEpc(key)) {
+                    return index;
+                }
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(final Object value) {
+        return (V) value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V extends Entry> Segment<V>[] newSegments(final int count) {
+        return new Segment[count];
+    }
+
+    private static int ceilPowerOfTwo(final int value) {
+        return (value <= 1) ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    // NESTED TYPES
+
+    /**
+     * Value stored in the table. It carries its own EPC, so the table keeps no key objects.
+     */
+    public interface Entry {
+
+        /**
+         * Returns if this entry belongs to the given EPC.
+         *
+         * @param epc - tag epc.
+         * @return true if the EPC is the one of this entry.
+         */
+        boolean hasEpc(Epc epc);
+
+    }
+
+    private static final class Segment<V extends Entry> {
+
+        private static final int OPTIMISTIC_READS = 4;
+
+        private volatile Slots slots;
+        private volatile int version; // odd while a write is in progress
+        private int size;
+        private int threshold;
+        private boolean shared;       // slots are referenced by a snapshot, copy before writing
+
+        private Segment(final int capacity) {
+            allocate(capacity);
+        }
+
+        /**
+         * Seqlock read: probes without the lock and keeps the result only if no write started or ended
+         * meanwhile, falling back to the lock after a few failed attempts so writes cannot starve it.
+         */
+        private V get(final Epc key) {
+            for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+                final int before = version;
+                if ((before & 1) == 0) {
+                    final Slots current = slots;
+                    final int index = find(current, key);
+                    final Object value = (index < 0) ? null : current.entries[index];
+                    // the probe reads must not move past the validating read
+                    VarHandle.acquireFence();
+                    if (version == before) {
+                        return cast(value);
+                    }
+                }
+                Thread.onSpinWait();
+            }
+            synchronized (this) {
+                final Slots current = slots;
+                final int index = find(current, key);
+                return (index < 0) ? null : cast(current.entries[index]);
+            }
+        }
+
+        private synchronized V putIfAbsent(final Epc key, final V value) {
+            final int index = find(slots, key);
+            if (index >= 0) {
+                return cast(slots.entries[index]);
+            }
+            beginWrite();
+            try {
+                if (size >= threshold) {
+                    resize(slots.hashes.length << 1);
+                } else {
+                    unshare();
+                }
+                slots.insert(stored(key.hashCode()), value);
+                size++;
+            } finally {
+                endWrite();
+            }
+            return null;
+        }
+
+        private synchronized V remove(final Epc key, final V expected) {
+            int index = find(slots, key);
+            if (index < 0) {
+                return null;
+            }
+
+            final V removed = cast(slots.entries[index]);
+            if (expected != null && removed != expected) {
+                return null;
+            }
+
+            beginWrite();
+            try {
+                unshare();
+                final Slots current = slots;
+                final int[] hashes = current.hashes;
+                final int mask = hashes.length - 1;
+                // backward shift deletion keeps probe sequences intact without tombstones
+                int next = (index + 1) & mask;
+                while (hashes[next] != FREE) {
+                    final int home = hashes[next] & mask;
+                    final boolean movable = (index <= next)
+                        ? (home <= index || home > next)
+                        : (home <= index && home > next);
+                    if (movable) {
+                        current.move(next, index);
+                        index = next;
+                    }
+                    next = (next + 1) & mask;
+                }
+                current.release(index);
+                size--;
+            } finally {
+                endWrite();
+            }
+            return removed;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized void clear() {
+            beginWrite();
+            try {
+                allocate(MIN_SEGMENT_CAPACITY);
+            } finally {
+                endWrite();
+            }
+        }
+
+        private void forEach(final Consumer<? super V> action) {
+            final Object[] copy;
+            synchronized (this) {
+                final Slots current = slots;
+                copy = new Object[size];
+                int j = 0;
+                for (int i = 0; i < current.hashes.length && j < copy.length; i++) {
+                    if (current.hashes[i] != FREE) {
+                        copy[j++] = current.entries[i];
+                    }
+                }
+            }
+            for (Object entry : copy) {
+                action.accept(cast(entry));
+            }
+        }
+
+        // writers hold the lock, the version only tells readers to retry
+        private void beginWrite() {
+            version++;
+            // the slot writes must not move ahead of the odd version
+            VarHandle.storeStoreFence();
+        }
+
+        private void endWrite() {
+            version++;
+        }
+
+        private void resize(final int capacity) {
+            final Slots old = slots;
+            final Slots grown = new Slots(capacity);
+            for (int i = 0; i < old.hashes.length; i++) {
+                if (old.hashes[i] != FREE) {
+                    grown.insert(old.hashes[i], old.entries[i]);
+                }
+            }
+            slots = grown;
+            threshold = threshold(capacity);
+            shared = false;
+        }
+
+        private void allocate(final int capacity) {
+            slots = new Slots(capacity);
+            threshold = threshold(capacity);
+            size = 0;
+            shared = false;
+        }
+
+        // a copy has the same entries at the same indexes, lock-free readers may switch to it at any time
+        private void unshare() {
+            if (shared) {
+                slots = slots.copy();
+                shared = false;
+            }
+        }
+
+        private static int threshold(final int capacity) {
+            return (capacity >>> 1) + (capacity >>> 2); // 75% load factor
+        }
+
+    }
+
+    /**
+     * Arrays of one segment, replaced together on resize so a lock-free reader never pairs arrays of
+     * different lengths.
+     */
+    private static final class Slots {
+
+        private final int[] hashes;       // 0 marks a free slot, stored hashes are never 0
+        private final Object[] entries;
+
+        private Slots(final int capacity) {
+            this(new int[capacity], new Object[capacity]);
+        }
+
+        private Slots(final int[] hashes, final Object[] entries) {
+            this.hashes = hashes;
+            this.entries = entries;
+        }
+
+        private void insert(final int hash, final Object entry) {
+            final int mask = hashes.length - 1;
+            int index = hash & mask;
+            while (hashes[index] != FREE) {
+                index = (index + 1) & mask;
+            }
+            hashes[index] = hash;
+            entries[index] = entry;
+        }
+
+        private void move(final int from, final int to) {
+            hashes[to] = hashes[from];
+            entries[to] = entries[from];
+        }
+
+        private void release(final int index) {
+            hashes[index] = FREE;
+            entries[index] = null;
+        }
+
+        private Slots copy() {
+            return new Slots(hashes.clone(), entries.clone());
+        }
+
+    }
+
+    /**
+     * Snapshot
+     * <p>
+     * - Point in time view of an {@link EpcTable}, sharing the segment arrays of the table at the time it
+     * was taken. The set of entries never changes.
+     *
+     * @param <V> the per-tag slot type.
+     */
+    public static final class Snapshot<V extends Entry> {
+
+        private final Slots[] segments;
+        private final int size;
+        private final int shift;
+
+        private Snapshot(final Slots[] segments, final int size, final int shift) {
+            this.segments = segments;
+            this.size = size;
+            this.shift = shift;
+        }
+
+        /**
+         * Returns the slot mapped to the given EPC when the snapshot was taken.
+         *
+         * @param key - tag epc.
+         * @return the slot, or null if the EPC is not in the snapshot.
+         */
+        public V get(final Epc key) {
+            Objects.requireNonNull(key, "key must not be null");
+            final Slots slots = segments[index(key.hashCode(), shift)];
+            final int index = find(slots, key);
+            return (index < 0) ? null : cast(slots.entries[index]);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Visits every entry of the snapshot.
+         *
+         * @param action - visitor.
+         */
+        public void forEach(final Consumer<? super V> action) {
+            Objects.requireNonNull(action, "action must not be null");
+            for (Slots slots : segments) {
+                for (int i = 0; i < slots.hashes.length; i++) {
+                    if (slots.hashes[i] != FREE) {
+                        action.accept(cast(slots.entries[i]));
+                    }
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.contare.rfid.buffer;
+
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.objects.TagStats;
+
+/**
+ * TagSlot
+ * <p>
+ * - Per-tag entry of the device buffer, the only object the buffer keeps per unique tag: the EPC words,
+ * the reported read and the accumulators of every later read, all inline.
+ * - The reported {@link TagMetadata} is rebuilt on demand; it is only kept as is when it does not fit the
+ * inline fields (a TID, an EPC longer than 128 bits or an antenna port beyond a byte).
+ * - Accumulators are primitives updated in place, recording a read does not allocate.
+ * - Updates and snapshots synchronize on the slot itself, so a snapshot never mixes two reads.
+ * - {@link #getLastSeen()} is also readable without locking, the timing wheel polls it on expiry.
+ * - The change sequence is owned by the {@link ChangeLog}, which also stamps under the slot lock.
+ */
+public final class TagSlot implements EpcTable.Entry {
+
+    private final long high;
+    private final long low;
+    private final long firstSeen;
+    private volatile long lastSeen;
+    private long reads;
+    private long rssiReads;
+    private long rssiSum;
+    private long antennas;
+    volatile long sequence;             // change log position, 0 = unstamped, -1 = removed
+    private final TagMetadata reported; // null when the read is rebuilt from the inline fields
+    private final short firstRssi;
+    private short minRssi = TagMetadata.RSSI_UNKNOWN;
+    private short maxRssi = TagMetadata.RSSI_UNKNOWN;
+    private final byte firstAntenna;
+    private final byte length;
+
+    public TagSlot(final TagMetadata tag) {
+        final Epc epc = tag.getEpc();
+        final int antenna = tag.getAntenna();
+        this.high = epc.getHigh();
+        this.low = epc.getLow();
+        this.length = (byte) epc.length();
+        this.firstSeen = tag.getNanos();
+        this.lastSeen = tag.getNanos();
+        this.firstRssi = tag.getRssi();
+        this.firstAntenna = (byte) antenna;
+        this.reported = (tag.getTid() != null || epc.isLong() || antenna != firstAntenna) ? tag : null;
+        accumulate(tag.getRssi(), antenna);
+    }
+
+    /**
+     * Returns the EPC of this tag.
+     *
+     * @return the tag epc.
+     */
+    public Epc getEpc() {
+        return (reported != null) ? reported.getEpc() : Epc.of(high, low, length);
+    }
+
+    @Override
+    public boolean hasEpc(final Epc epc) {
+        return epc.getLow() == low
+            && epc.getHigh() == high
+            && epc.length() == length
+            && (!epc.isLong() || epc.equals(reported.getEpc()));
+    }
+
+    /**
+     * Returns the read that was reported for this tag.
+     *
+     * @return the reported read.
+     */
+    public TagMetadata getTag() {
+        return (reported != null) ? reported : new TagMetadata(getEpc(), null, firstRssi, firstAntenna, firstSeen);
+    }
+
+    /**
+     * Returns if the given read is the one reported for this tag, as {@code tag.equals(getTag())} without
+     * rebuilding it.
+     *
+     * @param tag - tag read.
+     * @return true if the read is the reported one.
+     */
+    public boolean isReported(final TagMetadata tag) {
+        if (reported != null) {
+            return reported.equals(tag);
+        }
+        return tag.getNanos() == firstSeen
+            && tag.getRssi() == firstRssi
+            && tag.getAntenna() == firstAntenna
+            && tag.getTid() == null
+            && hasEpc(tag.getEpc());
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} of the last read of this tag.
+     *
+     * @return the last read time.
+     */
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    /**
+     * Returns the change sequence of the last insert or update of this tag.
+     *
+     * @return the change sequence, 0 if the slot was never stamped.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Records a repeated read of this tag.
+     *
+     * @param rssi    - rssi in centi-dBm, or {@link TagMetadata#RSSI_UNKNOWN}.
+     * @param antenna - antenna port, or {@link TagMetadata#ANTENNA_UNKNOWN}.
+     * @param nanos   - {@link System#nanoTime()} of the read.
+     */
+    public synchronized void record(final short rssi, final int antenna, final long nanos) {
+        accumulate(rssi, antenna);
+        if (nanos - lastSeen > 0) {
+            lastSeen = nanos;
+        }
+    }
+
+    /**
+     * Returns a consistent copy of the accumulators.
+     *
+     * @return the tag statistics.
+     */
+    public TagStats snapshot() {
+        final Epc epc = getEpc();
+        synchronized (this) {
+            return new TagStats(epc, reads, rssiReads, rssiSum, minRssi, maxRssi, firstSeen, lastSeen, antennas, sequence);
+        }
+    }
+
+    // HELPERS
+    private void accumulate(final short rssi, final int antenna) {
+        reads++;
+        if (rssi != TagMetadata.RSSI_UNKNOWN) {
+            if (rssiReads == 0 || rssi < minRssi) minRssi = rssi;
+            if (rssiReads == 0 || rssi > maxRssi) maxRssi = rssi;
+            rssiSum += rssi;
+            rssiReads++;
+        }
+        if (antenna >= 1 && antenna <= 64) {
+            antennas |= 1L << (antenna - 1);
+        }
+    }
+
+}
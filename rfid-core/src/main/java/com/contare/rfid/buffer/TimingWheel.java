@@ -0,0 +1,202 @@
+package com.contare.rfid.buffer;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * TimingWheel
+ * <p>
+ * - Hierarchical timing wheel (4 levels of 64 buckets) used to expire tags that were absent for a while.
+ * - Schedule, cancel and expire are O(1) per node; nodes are intrusive, so scheduling does not allocate.
+ * - Deadlines further than 64^4 ticks are parked on the top level and re-placed when it cascades.
+ * - Time only moves when {@link #advance(long, Consumer)} is called, there is no background thread.
+ * - Not thread safe, callers must serialize access.
+ *
+ * @param <N> node type.
+ */
+public final class TimingWheel<N extends TimingWheel.Node> {
+
+    private static final int BITS = 6;
+    private static final int SIZE = 1 << BITS;      // buckets per level
+    private static final int MASK = SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+    private final long origin;
+    private final Node[][] buckets = new Node[LEVELS][SIZE];
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickNanos - resolution of the wheel in nanoseconds.
+     * @param origin    - {@link System#nanoTime()} used as tick zero.
+     */
+    public TimingWheel(final long tickNanos, final long origin) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("'tickNanos' must be positive");
+        }
+        this.tickNanos = tickNanos;
+        this.origin = origin;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < SIZE; i++) {
+                final Node head = new Node();
+                head.prev = head;
+                head.next = head;
+                buckets[level][i] = head;
+            }
+        }
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Returns the number of scheduled nodes.
+     *
+     * @return the number of scheduled nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules (or re-schedules) a node to expire at the given time.
+     * The node expires on the first {@link #advance} call that reaches the tick after its deadline.
+     *
+     * @param node     - node to schedule.
+     * @param deadline - {@link System#nanoTime()} at which the node expires.
+     */
+    public void schedule(final N node, final long deadline) {
+        Objects.requireNonNull(node, "node must not be null");
+        final Node entry = node;
+        if (entry.isScheduled()) {
+            unlink(entry);
+        }
+        final long elapsed = deadline - origin;
+        final long tick = Math.floorDiv(elapsed, tickNanos) + ((Math.floorMod(elapsed, tickNanos) == 0) ? 0 : 1);
+        entry.tick = Math.max(tick, currentTick + 1);
+        place(entry);
+        size++;
+    }
+
+    /**
+     * Removes a node from the wheel.
+     *
+     * @param node - node to cancel.
+     * @return true if the node was scheduled.
+     */
+    public boolean cancel(final N node) {
+        if (!node.isScheduled()) return false;
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Moves the wheel up to the given time, handing every expired node to the consumer.
+     * The consumer may re-schedule the node it receives.
+     *
+     * @param now     - current {@link System#nanoTime()}.
+     * @param expired - consumer of expired nodes.
+     */
+    @SuppressWarnings("unchecked")
+    public void advance(final long now, final Consumer<? super N> expired) {
+        final long target = Math.floorDiv(now - origin, tickNanos);
+        while (currentTick < target) {
+            if (size == 0) {
+                // nothing scheduled: jump straight to the target tick
+                currentTick = target;
+                return;
+            }
+
+            currentTick++;
+
+            // cascade upper levels whose lower digits wrapped
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) break;
+                final Node head = buckets[level][(int) (currentTick >>> (BITS * level)) & MASK];
+                Node node = head.next;
+                head.next = head;
+                head.prev = head;
+                while (node != head) {
+                    final Node next = node.next;
+                    place(node);
+                    node = next;
+                }
+            }
+
+            // expire the current level 0 bucket
+            final Node head = buckets[0][(int) currentTick & MASK];
+            while (head.next != head) {
+                final Node node = head.next;
+                unlink(node);
+                expired.accept((N) node);
+            }
+        }
+    }
+
+    /**
+     * Removes every node.
+     */
+    public void clear() {
+        for (Node[] level : buckets) {
+            for (Node head : level) {
+                Node node = head.next;
+                while (node != head) {
+                    final Node next = node.next;
+                    node.prev = null;
+                    node.next = null;
+                    node = next;
+                }
+                head.next = head;
+                head.prev = head;
+            }
+        }
+        size = 0;
+    }
+
+    // HELPERS
+    private void place(final Node node) {
+        final long delta = Math.min(Math.max(node.tick - currentTick, 0), MAX_DELTA);
+        final long tick = currentTick + delta;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+
+        final Node head = buckets[level][(int) (tick >>> (BITS * level)) & MASK];
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private void unlink(final Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        size--;
+    }
+
+    // NESTED TYPES
+
+    /**
+     * Intrusive wheel entry, extend it to attach a payload.
+     */
+    public static class Node {
+
+        private Node prev;
+        private Node next;
+        private long tick;
+
+        public boolean isScheduled() {
+            return next != null;
+        }
+
+    }
+
+}
@@ -0,0 +1,362 @@
+package com.contare.rfid.cluster;
+
+import com.contare.rfid.objects.Epc;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Singular;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ClusterDedup
+ * <p>
+ * - Suppresses tags already claimed by another node of the cluster within a time window.
+ * - Every node pushes the 64-bit digests of the tags it claims to its peers over UDP, in small
+ * datagrams flushed every gossip interval; received digests go into a {@link RotatingBloomFilter}
+ * that forgets them after the window.
+ * - {@link #claim(Epc)} costs a digest and a few bit probes, no network round trip: it answers from what
+ * the peers already pushed. Two nodes reading a tag within the same gossip interval both report it, and
+ * a lost datagram lets a duplicate through; a Bloom false positive suppresses a new tag with a
+ * probability set by the filter size.
+ * - Meant to sit behind local dedup (a device buffer or a {@link com.contare.rfid.devices.DeviceGroup}),
+ * so only the first read of a tag on this node reaches it.
+ */
+public final class ClusterDedup implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(ClusterDedup.class);
+
+    private static final int MAGIC = 0x52464447;    // "RFDG"
+    private static final byte VERSION = 1;
+    private static final int HEADER = Integer.BYTES + Byte.BYTES + Long.BYTES + Short.BYTES;
+
+    private final Options options;
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private final RotatingBloomFilter remote;
+    private final List<SocketAddress> peers = new CopyOnWriteArrayList<>();
+    private final int capacity;
+
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder datagramsSent = new LongAdder();
+    private final LongAdder datagramsReceived = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+
+    private final Object pendingLock = new Object();
+    private long[] pending;
+    private int pendingCount;
+
+    private DatagramChannel channel;
+    private ScheduledExecutorService scheduler;
+    private Thread receiver;
+    private volatile boolean closed;
+
+    public ClusterDedup(final Options options) {
+        this.options = Objects.requireNonNull(options, "options must not be null");
+        if (options.getWindow() <= 0) {
+            throw new IllegalArgumentException("'window' must be positive");
+        }
+        if (options.getGossipInterval() <= 0) {
+            throw new IllegalArgumentException("'gossipInterval' must be positive");
+        }
+        if (options.getDatagramSize() < HEADER + Long.BYTES) {
+            throw new IllegalArgumentException("'datagramSize' must fit at least one digest");
+        }
+        this.remote = new RotatingBloomFilter(options.getFilterBits(), options.getProbes(), options.getGenerations());
+        this.capacity = Math.min((options.getDatagramSize() - HEADER) / Long.BYTES, Short.MAX_VALUE);
+        this.pending = new long[capacity];
+        for (InetSocketAddress peer : options.getPeers()) {
+            peers.add(peer);
+        }
+    }
+
+    /**
+     * Binds the gossip socket and starts the receiver and gossip threads.
+     *
+     * @return this node.
+     * @throws IOException if the socket cannot be bound.
+     */
+    public synchronized ClusterDedup start() throws IOException {
+        if (channel != null) {
+            throw new IllegalStateException("cluster dedup already started");
+        }
+        channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.bind(new InetSocketAddress(options.getHost(), options.getPort()));
+
+        receiver = new Thread(this::receive, "rfid-cluster-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor((r) -> {
+            final Thread thread = new Thread(r, "rfid-cluster-gossip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, options.getGossipInterval(), options.getGossipInterval(), TimeUnit.MILLISECONDS);
+        final long rotation = Math.max(1, options.getWindow() / (options.getGenerations() - 1));
+        scheduler.scheduleAtFixedRate(remote::rotate, rotation, rotation, TimeUnit.MILLISECONDS);
+
+        logger.debugf("Cluster dedup listening on %s.", channel.getLocalAddress());
+        return this;
+    }
+
+    /**
+     * Returns the address peers must send their digests to.
+     *
+     * @return the bound address.
+     * @throws IOException if the socket is closed.
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    public void addPeer(final InetSocketAddress peer) {
+        peers.add(Objects.requireNonNull(peer, "peer must not be null"));
+    }
+
+    public void removePeer(final InetSocketAddress peer) {
+        peers.remove(peer);
+    }
+
+    /**
+     * Claims a tag for this node.
+     *
+     * @param epc - tag epc, read for the first time on this node.
+     * @return true if no peer claimed the tag within the window, the tag is then announced to the peers.
+     */
+    public boolean claim(final Epc epc) {
+        final long digest = digest(epc);
+        if (remote.mightContain(digest)) {
+            suppressed.increment();
+            return false;
+        }
+        claimed.increment();
+        final long[] full;
+        synchronized (pendingLock) {
+            pending[pendingCount++] = digest;
+            if (pendingCount < capacity) return true;
+            full = pending;
+            pending = new long[capacity];
+            pendingCount = 0;
+        }
+        send(full, full.length);
+        return true;
+    }
+
+    /**
+     * Sends the digests claimed since the last gossip round.
+     */
+    public void flush() {
+        final long[] digests;
+        final int count;
+        synchronized (pendingLock) {
+            if (pendingCount == 0) return;
+            digests = pending;
+            count = pendingCount;
+            pending = new long[capacity];
+            pendingCount = 0;
+        }
+        send(digests, count);
+    }
+
+    /**
+     * Forgets every digest received from the peers.
+     */
+    public void clear() {
+        remote.clear();
+    }
+
+    /**
+     * @return number of tags claimed by this node.
+     */
+    public long getClaimed() {
+        return claimed.sum();
+    }
+
+    /**
+     * @return number of tags suppressed because a peer claimed them.
+     */
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    /**
+     * @return number of digests sent, once per peer.
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * @return number of digests received from the peers.
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getDatagramsSent() {
+        return datagramsSent.sum();
+    }
+
+    public long getDatagramsReceived() {
+        return datagramsReceived.sum();
+    }
+
+    /**
+     * @return number of datagrams that could not be sent, or were malformed on arrival.
+     */
+    public long getLost() {
+        return lost.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error while closing the cluster socket.", e);
+            }
+        }
+        if (receiver != null) {
+            try {
+                receiver.join(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the 64-bit digest of an EPC shared with the peers.
+     *
+     * @param epc - tag epc.
+     * @return the digest.
+     */
+    public static long digest(final Epc epc) {
+        long h = epc.getHigh() ^ ((long) epc.length() << 56);
+        if (epc.isLong()) {
+            // the words only hold the last 16 bytes, the hash covers the rest
+            h ^= ((long) epc.hashCode()) << 24;
+        }
+        return mix(epc.getLow() ^ mix(h));
+    }
+
+    // HELPERS
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void send(final long[] digests, final int count) {
+        if (channel == null || peers.isEmpty()) return;
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER + count * Long.BYTES);
+        buffer.putInt(MAGIC).put(VERSION).putLong(nodeId).putShort((short) count);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(digests[i]);
+        }
+        for (SocketAddress peer : peers) {
+            buffer.flip();
+            try {
+                channel.send(buffer, peer);
+                datagramsSent.increment();
+                sent.add(count);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                lost.increment();
+                logger.debugf(e, "Failed to send digests to %s.", peer);
+            }
+        }
+    }
+
+    private void receive() {
+        final ByteBuffer buffer = ByteBuffer.allocate(options.getDatagramSize());
+        while (!closed) {
+            buffer.clear();
+            try {
+                channel.receive(buffer);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                logger.debug("Failed to receive digests.", e);
+                continue;
+            }
+            buffer.flip();
+            if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                lost.increment();
+                continue;
+            }
+            // a node may list itself among its peers
+            if (buffer.getLong() == nodeId) continue;
+            final int count = buffer.getShort();
+            if (count < 0 || buffer.remaining() < count * Long.BYTES) {
+                lost.increment();
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                remote.add(buffer.getLong());
+            }
+            datagramsReceived.increment();
+            received.add(count);
+        }
+    }
+
+    // NESTED TYPES
+    @Data
+    @Builder(toBuilder = true)
+    public static class Options {
+
+        @Builder.Default
+        private final String host = "0.0.0.0";      // gossip socket address
+
+        @Builder.Default
+        private final int port = 0;                 // gossip socket port (0: any free port)
+
+        @Singular
+        private final List<InetSocketAddress> peers;    // gossip addresses of the other nodes
+
+        @Builder.Default
+        private final long window = 30_000;         // milliseconds a peer claim suppresses the tag
+
+        @Builder.Default
+        private final long gossipInterval = 50;     // milliseconds between two gossip rounds
+
+        @Builder.Default
+        private final int filterBits = 1 << 22;     // bloom filter bits per generation (512 KiB)
+
+        @Builder.Default
+        private final int probes = 4;               // bloom filter bits per digest
+
+        @Builder.Default
+        private final int generations = 4;          // bloom filter generations per window
+
+        @Builder.Default
+        private final int datagramSize = 1_400;     // maximum datagram size, below the path mtu
+
+    }
+
+}
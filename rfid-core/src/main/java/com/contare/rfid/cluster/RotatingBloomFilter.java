@@ -0,0 +1,115 @@
+package com.contare.rfid.cluster;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * RotatingBloomFilter
+ * <p>
+ * - Set of 64-bit digests that forgets old entries: a ring of Bloom filter generations, new digests go
+ * to the newest one, lookups check all of them, and {@link #rotate()} clears the oldest generation and
+ * makes it the newest.
+ * - A digest stays visible for at least {@code generations - 1} rotations and at most {@code generations}.
+ * - Probes are derived from the two halves of the digest (double hashing), so a digest is hashed once.
+ * - Lookups never lock; a lookup racing a rotation may miss the generation being cleared, i.e. a false
+ * negative on the oldest entries, never a false positive.
+ */
+public final class RotatingBloomFilter {
+
+    private final AtomicLongArray[] generations;
+    private final int mask;
+    private final int probes;
+
+    private volatile int head;
+
+    /**
+     * @param bits        - bits per generation, rounded up to a power of two.
+     * @param probes      - number of bits set per digest.
+     * @param generations - number of generations, at least 2.
+     */
+    public RotatingBloomFilter(final int bits, final int probes, final int generations) {
+        if (bits < Long.SIZE) {
+            throw new IllegalArgumentException("'bits' must be at least " + Long.SIZE);
+        }
+        if (probes < 1) {
+            throw new IllegalArgumentException("'probes' must be positive");
+        }
+        if (generations < 2) {
+            throw new IllegalArgumentException("'generations' must be at least 2");
+        }
+        final int size = (Integer.bitCount(bits) == 1) ? bits : Integer.highestOneBit(bits) << 1;
+        this.mask = size - 1;
+        this.probes = probes;
+        this.generations = new AtomicLongArray[generations];
+        for (int i = 0; i < generations; i++) {
+            this.generations[i] = new AtomicLongArray(size / Long.SIZE);
+        }
+    }
+
+    /**
+     * Adds a digest to the newest generation.
+     *
+     * @param digest - 64-bit digest.
+     */
+    public void add(final long digest) {
+        final AtomicLongArray words = generations[head];
+        int h = (int) digest;
+        final int step = (int) (digest >>> 32) | 1;
+        for (int i = 0; i < probes; i++, h += step) {
+            final int bit = h & mask;
+            final int word = bit >>> 6;
+            final long value = 1L << bit;
+            // most probes hit bits already set once the filter warms up, skip the atomic then
+            if ((words.get(word) & value) == 0) {
+                words.getAndAccumulate(word, value, (a, b) -> a | b);
+            }
+        }
+    }
+
+    /**
+     * Returns whether any generation may contain the digest.
+     *
+     * @param digest - 64-bit digest.
+     * @return false if the digest was definitely not added, true if it probably was.
+     */
+    public boolean mightContain(final long digest) {
+        for (AtomicLongArray words : generations) {
+            if (contains(words, digest)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops the oldest generation, the cleared generation receives the next digests.
+     */
+    public synchronized void rotate() {
+        final int next = (head + 1) % generations.length;
+        final AtomicLongArray words = generations[next];
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0);
+        }
+        head = next;
+    }
+
+    /**
+     * Clears every generation.
+     */
+    public synchronized void clear() {
+        for (AtomicLongArray words : generations) {
+            for (int i = 0; i < words.length(); i++) {
+                words.set(i, 0);
+            }
+        }
+    }
+
+    // HELPERS
+    private boolean contains(final AtomicLongArray words, final long digest) {
+        int h = (int) digest;
+        final int step = (int) (digest >>> 32) | 1;
+        for (int i = 0; i < probes; i++, h += step) {
+            final int bit = h & mask;
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+}
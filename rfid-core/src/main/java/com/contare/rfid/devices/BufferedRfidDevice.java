@@ -1,25 +1,1108 @@
 package com.contare.rfid.devices;
 
+import com.contare.rfid.buffer.BufferSnapshot;
+import com.contare.rfid.buffer.BufferView;
+import com.contare.rfid.buffer.ChangeLog;
+import com.contare.rfid.buffer.EpcTable;
+import com.contare.rfid.buffer.TagSlot;
+import com.contare.rfid.buffer.TimingWheel;
+import com.contare.rfid.dispatch.DispatchCounters;
+import com.contare.rfid.dispatch.EventPublisher;
+import com.contare.rfid.dispatch.EventQueue;
+import com.contare.rfid.dispatch.RingBuffer;
+import com.contare.rfid.dispatch.RingDispatcher;
+import com.contare.rfid.dispatch.StampedTagEvent;
+import com.contare.rfid.dispatch.TagBatcher;
+import com.contare.rfid.dispatch.WaitStrategy;
+import com.contare.rfid.jfr.DispatchWaitEvent;
+import com.contare.rfid.jfr.SdkCallEvent;
+import com.contare.rfid.jfr.TagIngestEvent;
+import com.contare.rfid.journal.ReadJournal;
+import com.contare.rfid.metrics.DeviceLatency;
+import com.contare.rfid.metrics.DeviceMetrics;
+import com.contare.rfid.metrics.Metrics;
+import com.contare.rfid.objects.Epc;
 import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.objects.TagStats;
+import com.contare.rfid.utils.Timestamps;
+import org.jboss.logging.Logger;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public abstract class BufferedRfidDevice implements RfidDevice {
 
-    protected final Set<TagMetadata> _buffer = ConcurrentHashMap.newKeySet();
-    protected final Set<String> _uniques = ConcurrentHashMap.newKeySet();
+    private static final Logger logger = Logger.getLogger(BufferedRfidDevice.class);
+
+    private static final AtomicInteger READER_IDS = new AtomicInteger();
+
+    private static final long MIN_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // current epoch: one table keyed by epc bits (one slot per unique tag) and its change log, replaced as a
+    // whole by rotate(); change sequences keep increasing across epochs
+    private volatile Epoch _epoch = new Epoch(0, new ChangeLog());
+
+    // sliding dedup: expires slots of tags that were absent for the report ttl
+    private final ReentrantLock _wheelLock = new ReentrantLock();
+    private TimingWheel<Expiry> _wheel;
+    private volatile long _ttlNanos = 0;    // 0 = report once
+    private long _now;                      // advance time, guarded by _wheelLock
+    private final Consumer<Expiry> _onExpired = this::onExpired;
+
+    // dispatch: every event reaches the user callback through the bounded queue or the ring
+    protected final Executor executor;
+    private volatile Consumer<RfidDevice.Event> _callback = (event) -> { /* ignore */ };
+    private volatile TagBatcher _batcher;   // null = single event delivery
+    private volatile RingDispatcher<RfidDevice.Event> _ring;    // null = executor handoff
+    private volatile EventQueue _queue;
+    private volatile Backpressure _backpressure;
+    private volatile EventPublisher _publisher;
+    private final DispatchCounters _counters = new DispatchCounters();
+
+    // typed callbacks: the sink sees every read on the sdk thread, the others follow the event callback
+    private volatile int _readerId = READER_IDS.incrementAndGet();
+    private volatile TagSink _sink;
+    private volatile StatusCallback _statusCallback;
+    private volatile BatteryCallback _batteryCallback;
+    private volatile ErrorCallback _errorCallback;
+
+    // journal: first seen (or every) read appended to disk, replayed into the buffer on configure
+    private volatile ReadJournal _journal;
+    private volatile boolean _journalRaw;
+
+    // metrics: fed by the read and dispatch path, registered in the metrics registry while connected
+    private final DeviceMetrics _metrics;
+    private volatile DeviceLatency _latency;    // null = latency not tracked
+
+    /**
+     * @param executor - executor that runs the user callback.
+     */
+    protected BufferedRfidDevice(final Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        final RfidDevice.Options defaults = RfidDevice.Options.builder().build();
+        this._queue = newQueue(defaults);
+        this._backpressure = defaults.getBackpressure();
+        this._publisher = newPublisher(defaults);
+        this._metrics = newMetrics();
+    }
 
     @Override
     public Set<TagMetadata> getBuffer() {
-        return Collections.unmodifiableSet(_buffer);
+        expire(System.nanoTime());
+        return new BufferView(_epoch.table);
     }
 
     @Override
     public void clearBuffer() {
-        _buffer.clear();
-        _uniques.clear();
+        rotate();
+    }
+
+    @Override
+    public BufferSnapshot rotate() {
+        final Epoch previous;
+        _wheelLock.lock();
+        try {
+            previous = _epoch;
+            // the wheel only holds slots of the current epoch, they must not expire out of a sealed one
+            if (_wheel != null) {
+                _wheel.clear();
+            }
+            _epoch = new Epoch(previous.id + 1, previous.changes.successor());
+            final ReadJournal journal = _journal;
+            if (journal != null) {
+                journal.reset();
+            }
+        } finally {
+            _wheelLock.unlock();
+        }
+        // reads that entered the previous epoch before the swap finish there, later ones see the new epoch
+        for (int i = 0; previous.writers.sum() != 0; i++) {
+            if (i < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return new BufferSnapshot(previous.id, previous.table.snapshot(), previous.openedAt, System.nanoTime());
+    }
+
+    @Override
+    public BufferSnapshot snapshot() {
+        expire(System.nanoTime());
+        final Epoch epoch = _epoch;
+        return new BufferSnapshot(epoch.id, epoch.table.snapshot(), epoch.openedAt, System.nanoTime());
+    }
+
+    @Override
+    public void setCallback(final Consumer<RfidDevice.Event> callback) {
+        _callback = Objects.requireNonNull(callback, "callback must not be null");
+    }
+
+    @Override
+    public Flow.Publisher<RfidDevice.Event> getPublisher() {
+        return _publisher;
+    }
+
+    @Override
+    public void setTagSink(final TagSink sink) {
+        _sink = sink;
+    }
+
+    @Override
+    public void setStatusCallback(final StatusCallback callback) {
+        _statusCallback = callback;
+    }
+
+    @Override
+    public void setBatteryCallback(final BatteryCallback callback) {
+        _batteryCallback = callback;
+    }
+
+    @Override
+    public void setErrorCallback(final ErrorCallback callback) {
+        _errorCallback = callback;
+    }
+
+    /**
+     * Returns the id passed to the tag sink for reads of this device.
+     *
+     * @return the reader id.
+     */
+    public int getReaderId() {
+        return _readerId;
+    }
+
+    /**
+     * Returns the read, dedup and dispatch metrics of this device.
+     * <p>
+     * The device registers them in the {@link Metrics} registry on connect and leaves it on close.
+     *
+     * @return the metrics of this device.
+     */
+    public DeviceMetrics getMetrics() {
+        return _metrics;
+    }
+
+    /**
+     * Returns the read latency histograms of this device, per stage from the SDK callback to the user
+     * callback; they are also reported by {@link #getMetrics()}.
+     *
+     * @return the latency histograms, or null unless connected with {@code trackLatency}.
+     */
+    public DeviceLatency getLatency() {
+        return _latency;
+    }
+
+    /**
+     * Applies the buffer and delivery related connection options, adapters call it from {@code connect}.
+     *
+     * @param opts - connection options.
+     */
+    protected void configure(final RfidDevice.Options opts) {
+        Objects.requireNonNull(opts, "options must not be null");
+        if (opts.getReaderId() != null) {
+            _readerId = opts.getReaderId();
+        }
+        if (opts.getDedup() == Dedup.SLIDING) {
+            if (opts.getReportTtl() <= 0) {
+                throw new IllegalArgumentException("'reportTtl' must be positive in sliding dedup mode");
+            }
+            setReportTtl(TimeUnit.MILLISECONDS.toNanos(opts.getReportTtl()));
+        } else {
+            setReportTtl(0);
+        }
+
+        final Backpressure backpressure = Objects.requireNonNull(opts.getBackpressure(), "backpressure must not be null");
+        if (opts.getHandoff() == Handoff.RING && backpressure != Backpressure.BLOCK && backpressure != Backpressure.DROP_NEWEST) {
+            throw new IllegalArgumentException("ring handoff only supports BLOCK and DROP_NEWEST backpressure, not " + backpressure);
+        }
+
+        configureJournal(opts);
+
+        if (opts.isTrackLatency()) {
+            // histograms survive a reconnect, they cover the whole life of the device
+            if (_latency == null) {
+                _latency = new DeviceLatency();
+            }
+        } else {
+            _latency = null;
+        }
+        _metrics.setLatency(_latency);
+
+        final TagBatcher previousBatcher = _batcher;
+        final RingDispatcher<RfidDevice.Event> previousRing = _ring;
+        final EventQueue previousQueue = _queue;
+
+        _backpressure = backpressure;
+        _queue = newQueue(opts);
+        // current subscribers keep their publisher, a closed one is replaced on reconnect
+        final EventPublisher publisher = _publisher;
+        if (publisher.isClosed() || !publisher.hasSubscribers()) {
+            _publisher = newPublisher(opts);
+        }
+
+        if (opts.getHandoff() == Handoff.RING) {
+            // status events and batch timers publish too, so the ring is always multi producer
+            final WaitStrategy wait = toWaitStrategy(opts.getRingWait());
+            final RingBuffer<Object> ring = new RingBuffer<>(opts.getRingSize(), true, wait);
+            final String name = "rfid-dispatch-" + getClass().getSimpleName();
+            _ring = new RingDispatcher<RfidDevice.Event>(name, ring, wait, this::consume).start();
+        } else {
+            _ring = null;
+        }
+
+        if (opts.getDelivery() == Delivery.BATCH) {
+            final long target = TimeUnit.MILLISECONDS.toNanos(opts.getBatchLatency());
+            _batcher = new TagBatcher(this::dispatch, opts.getBatchSize(), target);
+        } else {
+            _batcher = null;
+        }
+
+        if (previousBatcher != null) {
+            previousBatcher.flush();
+        }
+        if (previousRing != null) {
+            previousRing.close();
+        }
+        previousQueue.close();
+
+        // the reader id is part of the exported names, register again in case it changed
+        Metrics.unregister(_metrics);
+        Metrics.register(_metrics);
+    }
+
+    /**
+     * Returns what happened to the tag events handed to the callback: delivered, dropped, coalesced or spilled.
+     *
+     * @return the dispatch counters of this device.
+     */
+    public DispatchCounters getDispatchCounters() {
+        return _counters;
+    }
+
+    /**
+     * Hands an event to the user callback, applying the backpressure policy to tag events.
+     *
+     * @param event - event to dispatch.
+     */
+    protected void dispatch(final RfidDevice.Event event) {
+        final DispatchWaitEvent wait = new DispatchWaitEvent();
+        wait.begin();
+        handoff(event);
+        wait.end();
+        if (wait.shouldCommit()) {
+            wait.reader = _readerId;
+            wait.device = getClass().getSimpleName();
+            wait.eventType = event.getClass().getSimpleName();
+            wait.queueDepth = queueDepth();
+            wait.commit();
+        }
+    }
+
+    private void handoff(final RfidDevice.Event event) {
+        final boolean tag = isTag(event);
+        boolean offered = false;
+        for (;;) {
+            final RingDispatcher<RfidDevice.Event> ring = _ring;
+            if (ring == null) {
+                _queue.offer(event);
+                return;
+            }
+            if (tag && !offered) {
+                _counters.recordOffered();
+                offered = true;
+            }
+            if (tag && _backpressure == Backpressure.DROP_NEWEST) {
+                if (ring.offer(event)) return;
+                if (!ring.isClosed()) {
+                    _counters.recordDropped();
+                    return;
+                }
+            } else if (ring.publish(event)) {
+                return;
+            }
+            // configure closed this ring meanwhile, the ring or queue that replaced it takes the event
+        }
+    }
+
+    /**
+     * Records how long the read took from the reader-side timestamp to the SDK callback, for readers that
+     * report one; the host and reader clocks must be in sync for it to mean anything.
+     *
+     * @param readerEpochNanos - reader-side timestamp of the read, in nanoseconds since the epoch.
+     * @param nanos            - {@link System#nanoTime()} of the SDK callback.
+     */
+    protected void recordReaderLatency(final long readerEpochNanos, final long nanos) {
+        final DeviceLatency latency = _latency;
+        if (latency != null) {
+            latency.record(DeviceLatency.Stage.READER, Timestamps.toEpochNanos(nanos) - readerEpochNanos);
+        }
+    }
+
+    /**
+     * Starts timing a control-plane call into the vendor SDK, for the flight recorder.
+     * <p>
+     * <pre>{@code
+     * final SdkCallEvent call = beginSdkCall("applySettings");
+     * boolean succeeded = false;
+     * try {
+     *     reader.applySettings(settings);
+     *     succeeded = true;
+     * } finally {
+     *     endSdkCall(call, succeeded);
+     * }
+     * }</pre>
+     *
+     * @param operation - SDK method or command.
+     * @return the started event, to pass to {@link #endSdkCall(SdkCallEvent, boolean)}.
+     */
+    protected final SdkCallEvent beginSdkCall(final String operation) {
+        final SdkCallEvent event = new SdkCallEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a call started by {@link #beginSdkCall(String)}, committing it if a recording wants it.
+     *
+     * @param event     - started event.
+     * @param succeeded - false if the call threw or reported a failure.
+     * @return succeeded, so boolean SDK calls can be returned through it.
+     */
+    protected final boolean endSdkCall(final SdkCallEvent event, final boolean succeeded) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.reader = _readerId;
+            event.device = getClass().getSimpleName();
+            event.succeeded = succeeded;
+            event.commit();
+        }
+        return succeeded;
+    }
+
+    /**
+     * Runs a control-plane call into the vendor SDK, timed as {@link #beginSdkCall(String)} does.
+     * <p>
+     * {@code E1} and {@code E2} are the checked exceptions of the SDK method. They are inferred when it declares
+     * one; methods declaring two unrelated ones must name them:
+     * <pre>{@code
+     * call("applySettings", () -> reader.applySettings(settings));
+     * this.<InvalidUsageException, OperationFailureException>call("connect", reader::connect);
+     * }</pre>
+     *
+     * @param operation - SDK method or command.
+     * @param action    - the SDK call.
+     */
+    protected final <E1 extends Exception, E2 extends Exception> void call(final String operation, final SdkAction<E1, E2> action) throws E1, E2 {
+        final SdkCallEvent event = beginSdkCall(operation);
+        boolean succeeded = false;
+        try {
+            action.run();
+            succeeded = true;
+        } finally {
+            endSdkCall(event, succeeded);
+        }
+    }
+
+    /**
+     * Same as {@link #call(String, SdkAction)} for SDK calls returning a value.
+     *
+     * @param operation - SDK method or command.
+     * @param query     - the SDK call.
+     * @return the value returned by the SDK.
+     */
+    protected final <T, E1 extends Exception, E2 extends Exception> T query(final String operation, final SdkQuery<T, E1, E2> query) throws E1, E2 {
+        final SdkCallEvent event = beginSdkCall(operation);
+        boolean succeeded = false;
+        try {
+            final T result = query.run();
+            succeeded = true;
+            return result;
+        } finally {
+            endSdkCall(event, succeeded);
+        }
+    }
+
+    /**
+     * Same as {@link #call(String, SdkAction)} for SDK calls reporting failure through a boolean result.
+     *
+     * @param operation - SDK method or command.
+     * @param action    - the SDK call.
+     * @return the result of the SDK call, false if it threw.
+     */
+    protected final boolean check(final String operation, final BooleanSupplier action) {
+        final SdkCallEvent event = beginSdkCall(operation);
+        boolean succeeded = false;
+        try {
+            succeeded = action.getAsBoolean();
+            return succeeded;
+        } finally {
+            endSdkCall(event, succeeded);
+        }
+    }
+
+    /**
+     * Same as {@link #query(String, SdkQuery)} for SDK calls reporting failure through the value they return.
+     *
+     * @param operation - SDK method or command.
+     * @param query     - the SDK call.
+     * @param valid     - whether the returned value means success.
+     * @return the value returned by the SDK.
+     */
+    protected final <T> T query(final String operation, final Supplier<T> query, final Predicate<? super T> valid) {
+        final SdkCallEvent event = beginSdkCall(operation);
+        boolean succeeded = false;
+        try {
+            final T result = query.get();
+            succeeded = valid.test(result);
+            return result;
+        } finally {
+            endSdkCall(event, succeeded);
+        }
+    }
+
+    /**
+     * Starts timing a batch of reads handed over by the reader, for the flight recorder.
+     *
+     * @return the started event, to pass to {@link #endIngest(TagIngestEvent, int, int)}.
+     */
+    protected final TagIngestEvent beginIngest() {
+        final TagIngestEvent event = new TagIngestEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a batch started by {@link #beginIngest()}, committing it if a recording wants it.
+     *
+     * @param event - started event.
+     * @param reads - reads in the batch, duplicates included.
+     * @param tags  - reads that inserted a new tag.
+     */
+    protected final void endIngest(final TagIngestEvent event, final int reads, final int tags) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.reader = _readerId;
+            event.device = getClass().getSimpleName();
+            event.reads = reads;
+            event.tags = tags;
+            event.commit();
+        }
+    }
+
+    /**
+     * Delivers a new tag to the user callback, as a {@link TagEvent} or as part of a {@link TagBatchEvent}.
+     *
+     * @param tag - tag to deliver.
+     */
+    protected void publish(final TagMetadata tag) {
+        final TagBatcher batcher = _batcher;
+        if (batcher != null) {
+            batcher.add(tag);
+        } else {
+            dispatch(newTagEvent(tag));
+        }
+    }
+
+    /**
+     * Delivers a report of new tags.
+     *
+     * @param tags - tags to deliver.
+     */
+    protected void publish(final List<TagMetadata> tags) {
+        if (tags.isEmpty()) return;
+        final TagBatcher batcher = _batcher;
+        if (batcher != null) {
+            batcher.addAll(tags);
+        } else {
+            for (TagMetadata tag : tags) {
+                dispatch(newTagEvent(tag));
+            }
+        }
+    }
+
+    /**
+     * Delivers the tags waiting in the open batch, if any.
+     */
+    protected void flush() {
+        final TagBatcher batcher = _batcher;
+        if (batcher != null) {
+            batcher.flush();
+        }
+    }
+
+    /**
+     * Flushes pending tags, stops the ring consumer thread, releases the spill file, completes the
+     * publisher subscribers, closes the journal and unregisters the metrics, adapters call it from
+     * {@code close}.
+     */
+    protected void closeDispatch() {
+        Metrics.unregister(_metrics);
+        flush();
+        final RingDispatcher<RfidDevice.Event> ring = _ring;
+        _ring = null;
+        if (ring != null) {
+            ring.close();
+        }
+        _queue.close();
+        _publisher.close();
+        final ReadJournal journal = _journal;
+        _journal = null;
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Returns the statistics of every read of the given tag.
+     *
+     * @param epc - tag epc.
+     * @return the tag statistics, or null if the EPC is not in the buffer.
+     */
+    public TagStats getStats(final Epc epc) {
+        final TagSlot slot = _epoch.table.get(epc);
+        return (slot != null) ? slot.snapshot() : null;
+    }
+
+    /**
+     * Returns the statistics of every tag in the buffer.
+     * <p>
+     * Each entry is consistent on its own, the list is weakly consistent with concurrent reads.
+     *
+     * @return the statistics of every buffered tag.
+     */
+    public List<TagStats> getStats() {
+        expire(System.nanoTime());
+        final EpcTable<TagSlot> table = _epoch.table;
+        final List<TagStats> list = new ArrayList<>(table.size());
+        table.forEach(slot -> list.add(slot.snapshot()));
+        return list;
+    }
+
+    /**
+     * Returns the sequence of the last buffer insert or update.
+     *
+     * @return the current buffer sequence.
+     */
+    public long getSequence() {
+        return _epoch.changes.getSequence();
+    }
+
+    /**
+     * Returns the tags inserted or updated after the given sequence, oldest change first.
+     * <p>
+     * Pass the {@link TagStats#getSequence()} of the last returned entry to the next call; the cost of a
+     * call depends on the number of changes, not on the size of the buffer. Only the current epoch is
+     * searched, changes of a rotated epoch are in its snapshot.
+     *
+     * @param sequence - sequence already consumed, 0 to start from the beginning.
+     * @param limit    - maximum number of entries.
+     * @return the changed tags.
+     */
+    public List<TagStats> changesSince(final long sequence, final int limit) {
+        expire(System.nanoTime());
+        return _epoch.changes.since(sequence, limit);
+    }
+
+    /**
+     * Returns if the EPC is already in the buffer, recording a read without RSSI or antenna.
+     *
+     * @param epc - tag epc.
+     * @return true if the EPC was already read.
+     * @see #isBuffered(Epc, short, int, long)
+     */
+    protected boolean isBuffered(final Epc epc) {
+        return isBuffered(epc, TagMetadata.RSSI_UNKNOWN, TagMetadata.ANTENNA_UNKNOWN, System.nanoTime());
+    }
+
+    /**
+     * Returns if the EPC is already in the buffer, aggregating the read into its slot.
+     * <p>
+     * Adapters call it with the EPC and primitive fields only, so duplicates are rejected before any
+     * object is built. In sliding mode the read also keeps the tag from expiring. Every read, duplicate
+     * or not, is handed to the {@link TagSink} first.
+     *
+     * @param epc     - tag epc.
+     * @param rssi    - rssi in centi-dBm, or {@link TagMetadata#RSSI_UNKNOWN}.
+     * @param antenna - antenna port, or {@link TagMetadata#ANTENNA_UNKNOWN}.
+     * @param nanos   - {@link System#nanoTime()} of the read.
+     * @return true if the EPC was already read.
+     */
+    protected boolean isBuffered(final Epc epc, final short rssi, final int antenna, final long nanos) {
+        return isBuffered(epc, rssi, antenna, null, null, nanos);
+    }
+
+    /**
+     * Same as {@link #isBuffered(Epc, short, int, long)} for adapters whose rssi and antenna must be parsed
+     * out of the vendor read: the EPC is looked up first and the fields are only decoded when the read is a
+     * duplicate, whose aggregates need them, never for the first read of a tag. The {@link TagSink} and the
+     * raw journal see every read, so with either of them the fields are decoded up front.
+     *
+     * @param epc    - tag epc.
+     * @param read   - vendor read.
+     * @param fields - decodes the rssi and antenna of the vendor read.
+     * @param nanos  - {@link System#nanoTime()} of the read.
+     * @return true if the EPC was already read.
+     */
+    protected <R> boolean isBuffered(final Epc epc, final R read, final ReadFields<R> fields, final long nanos) {
+        if (_sink != null || _journalRaw) {
+            return isBuffered(epc, fields.rssi(read), fields.antenna(read), null, null, nanos);
+        }
+        return isBuffered(epc, TagMetadata.RSSI_UNKNOWN, TagMetadata.ANTENNA_UNKNOWN, read, fields, nanos);
+    }
+
+    // fields != null: the rssi and antenna arguments are unknown, decode them from the read on a hit
+    private <R> boolean isBuffered(final Epc epc, final short rssi, final int antenna, final R read, final ReadFields<R> fields, final long nanos) {
+        final DeviceLatency latency = _latency;
+        final long entered = (latency != null) ? System.nanoTime() : 0;
+        if (latency != null) {
+            latency.record(DeviceLatency.Stage.PARSE, entered - nanos);
+        }
+        if (fields == null) {
+            final TagSink sink = _sink;
+            if (sink != null) {
+                try {
+                    sink.onTag(_readerId, epc.getHigh(), epc.getLow(), epc.length(), rssi, antenna, nanos);
+                } catch (Exception e) {
+                    logger.errorf(e, "Error in tag sink for '%s'.", epc);
+                }
+            }
+            if (_journalRaw) {
+                final ReadJournal journal = _journal;
+                if (journal != null) {
+                    journal.append(epc, rssi, antenna, nanos);
+                }
+            }
+        }
+        TagSlot slot;
+        final Epoch epoch = enter();
+        try {
+            slot = epoch.table.get(epc);
+            if (slot != null && evictIfStale(epoch, slot, nanos)) {
+                slot = null;
+            } else if (slot != null) {
+                if (fields != null) {
+                    slot.record(fields.rssi(read), fields.antenna(read), nanos);
+                } else {
+                    slot.record(rssi, antenna, nanos);
+                }
+                epoch.changes.touch(slot);
+            }
+        } finally {
+            epoch.writers.decrement();
+        }
+        if (latency != null) {
+            latency.record(DeviceLatency.Stage.DEDUP, System.nanoTime() - entered);
+        }
+        if (slot == null) {
+            return false;
+        }
+        _metrics.recordDuplicate();
+        if (_ttlNanos > 0) {
+            expire(nanos);
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the tag into the buffer, deduplicating by EPC.
+     *
+     * @param tag - tag read.
+     * @return true if the tag must be reported, false otherwise.
+     */
+    protected boolean buffer(final TagMetadata tag) {
+        final DeviceLatency latency = _latency;
+        final long entered = (latency != null) ? System.nanoTime() : 0;
+        final TagSlot slot = new TagSlot(tag);
+        TagSlot existing;
+        final Epoch epoch = enter();
+        try {
+            existing = epoch.table.putIfAbsent(tag.getEpc(), slot);
+            while (existing != null && evictIfStale(epoch, existing, tag.getNanos())) {
+                existing = epoch.table.putIfAbsent(tag.getEpc(), slot);
+            }
+            if (existing != null) {
+                existing.record(tag.getRssi(), tag.getAntenna(), tag.getNanos());
+                epoch.changes.touch(existing);
+            } else {
+                epoch.changes.stamp(slot);
+            }
+        } finally {
+            epoch.writers.decrement();
+        }
+        if (latency != null) {
+            latency.record(DeviceLatency.Stage.DEDUP, System.nanoTime() - entered);
+        }
+        if (existing != null) {
+            _metrics.recordDuplicate();
+            return false;
+        }
+        _metrics.recordUnique();
+        if (!_journalRaw) {
+            final ReadJournal journal = _journal;
+            if (journal != null) {
+                journal.append(tag.getEpc(), tag.getRssi(), tag.getAntenna(), tag.getNanos());
+            }
+        }
+        if (_ttlNanos > 0) {
+            schedule(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Returns if the reported tag is still the buffered read of its EPC: not cleared, rotated out, nor absent
+     * for longer than the report ttl (the slot is evicted then, as a read would).
+     *
+     * @param tag   - tag reported by this device.
+     * @param nanos - {@link System#nanoTime()} to check the ttl against.
+     * @return true if the device still holds the tag.
+     */
+    boolean holds(final TagMetadata tag, final long nanos) {
+        final Epoch epoch = enter();
+        try {
+            final TagSlot slot = epoch.table.get(tag.getEpc());
+            return slot != null && slot.isReported(tag) && !evictIfStale(epoch, slot, nanos);
+        } finally {
+            epoch.writers.decrement();
+        }
+    }
+
+    // HELPERS
+    private Epoch enter() {
+        for (;;) {
+            final Epoch epoch = _epoch;
+            epoch.writers.increment();
+            if (_epoch == epoch) {
+                return epoch;
+            }
+            // rotated meanwhile, the sealed epoch must not change anymore
+            epoch.writers.decrement();
+        }
+    }
+
+    private void configureJournal(final RfidDevice.Options opts) {
+        final RfidDevice.Journal mode = Objects.requireNonNull(opts.getJournal(), "journal must not be null");
+        final ReadJournal previous = _journal;
+        if (mode == RfidDevice.Journal.NONE) {
+            _journal = null;
+            if (previous != null) {
+                previous.close();
+            }
+            return;
+        }
+        if (opts.getJournalDirectory() == null) {
+            throw new IllegalArgumentException("'journalDirectory' must be set when the journal is enabled");
+        }
+        final Path directory = Paths.get(opts.getJournalDirectory()).toAbsolutePath();
+        _journalRaw = (mode == RfidDevice.Journal.RAW);
+        // reconnecting to the same journal: the buffer was already rebuilt from it
+        if (previous != null && previous.getDirectory().equals(directory)) return;
+
+        try {
+            final long start = System.nanoTime();
+            final long count = ReadJournal.replay(directory, this::restore);
+            if (count > 0) {
+                logger.infof("Rebuilt buffer from %d journaled reads in %d ms.", count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            _journal = ReadJournal.open(directory, ReadJournal.DEFAULT_SEGMENT_SIZE, opts.getJournalCommit());
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to open journal '" + directory + "'", e);
+        }
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    // replays a journaled read into the buffer: no sink, no event, the tag was already reported
+    private void restore(final Epc epc, final short rssi, final int antenna, final long nanos) {
+        final TagSlot created;
+        final Epoch epoch = enter();
+        try {
+            final TagSlot slot = epoch.table.get(epc);
+            if (slot != null) {
+                slot.record(rssi, antenna, nanos);
+                return;
+            }
+            created = new TagSlot(new TagMetadata(epc, null, rssi, antenna, nanos));
+            final TagSlot existing = epoch.table.putIfAbsent(epc, created);
+            if (existing != null) {
+                existing.record(rssi, antenna, nanos);
+                return;
+            }
+            epoch.changes.stamp(created);
+        } finally {
+            epoch.writers.decrement();
+        }
+        if (_ttlNanos > 0) {
+            schedule(created);
+        }
+    }
+
+    private EventQueue newQueue(final RfidDevice.Options opts) {
+        return new EventQueue(executor, this::deliver, opts.getBackpressure(), opts.getQueueCapacity(), opts.getSpillDirectory(), _counters);
+    }
+
+    private EventPublisher newPublisher(final RfidDevice.Options opts) {
+        return new EventPublisher(opts.getSubscriberBuffer(), TimeUnit.MILLISECONDS.toNanos(opts.getSubscriberTimeout()), _counters);
+    }
+
+    private void deliver(final RfidDevice.Event event) {
+        final long start = System.nanoTime();
+        final DeviceLatency latency = _latency;
+        if (latency != null) {
+            recordDelivery(latency, event, start);
+        }
+        try {
+            _callback.accept(event);
+        } finally {
+            if (event instanceof TagBatcher.Batch) {
+                ((TagBatcher.Batch) event).delivered();
+            } else if (!(event instanceof TagEvent)) {
+                notifyCallbacks(event);
+            }
+            final long elapsed = System.nanoTime() - start;
+            _metrics.recordCallback(elapsed);
+            if (latency != null) {
+                latency.record(DeviceLatency.Stage.CALLBACK, elapsed);
+            }
+            _publisher.publish(event);
+        }
+    }
+
+    // queue and end to end latency of the tags of an event about to reach the user callback
+    private static void recordDelivery(final DeviceLatency latency, final RfidDevice.Event event, final long now) {
+        if (event instanceof StampedTagEvent) {
+            latency.record(DeviceLatency.Stage.QUEUE, now - ((StampedTagEvent) event).getDispatchedAt());
+        } else if (event instanceof TagBatcher.Batch) {
+            latency.record(DeviceLatency.Stage.QUEUE, now - ((TagBatcher.Batch) event).getClosedAt());
+        }
+        if (event instanceof TagEvent) {
+            latency.record(DeviceLatency.Stage.END_TO_END, now - ((TagEvent) event).getTag().getNanos());
+        } else if (event instanceof TagBatchEvent) {
+            for (TagMetadata tag : ((TagBatchEvent) event).getTags()) {
+                latency.record(DeviceLatency.Stage.END_TO_END, now - tag.getNanos());
+            }
+        }
+    }
+
+    private TagEvent newTagEvent(final TagMetadata tag) {
+        return (_latency != null) ? new StampedTagEvent(tag, System.nanoTime()) : new TagEvent(tag);
+    }
+
+    private void notifyCallbacks(final RfidDevice.Event event) {
+        if (event instanceof StatusEvent) {
+            final StatusCallback callback = _statusCallback;
+            if (callback != null) {
+                callback.onStatus(((StatusEvent) event).getStatus());
+            }
+        } else if (event instanceof BatteryEvent) {
+            final BatteryCallback callback = _batteryCallback;
+            if (callback != null) {
+                callback.onBattery(((BatteryEvent) event).getLevel());
+            }
+        } else if (event instanceof ErrorEvent) {
+            final ErrorCallback callback = _errorCallback;
+            if (callback != null) {
+                callback.onError(((ErrorEvent) event).getCause());
+            }
+        }
+    }
+
+    private void consume(final RfidDevice.Event event) {
+        deliver(event);
+        if (isTag(event)) {
+            _counters.recordDelivered();
+        }
+    }
+
+    private DeviceMetrics newMetrics() {
+        final DispatchCounters counters = _counters;
+        return new DeviceMetrics(getClass().getSimpleName(), this::getReaderId)
+            .gauge("rfid_buffer_tags", "Tags in the current buffer epoch.", () -> _epoch.table.size())
+            .gauge("rfid_queue_depth", "Events waiting for the user callback.", this::queueDepth)
+            .counter("rfid_dispatch_offered_total", "Tag events handed to the dispatch path.", counters::getOffered)
+            .counter("rfid_dispatch_delivered_total", "Tag events that reached the user callback.", counters::getDelivered)
+            .counter("rfid_dispatch_dropped_total", "Tag events discarded because the queue was full.", counters::getDropped)
+            .counter("rfid_dispatch_coalesced_total", "Tag events merged into a pending event of the same EPC.", counters::getCoalesced)
+            .counter("rfid_dispatch_spilled_total", "Events written to the spill file.", counters::getSpilled)
+            .counter("rfid_dispatch_blocked_total", "Times a producer waited for room in the queue.", counters::getBlocked)
+            .counter("rfid_subscriber_dropped_total", "Events dropped by slow publisher subscribers.", counters::getSubscriberDrops);
+    }
+
+    private int queueDepth() {
+        final RingDispatcher<RfidDevice.Event> ring = _ring;
+        return (ring != null) ? ring.getRing().size() : _queue.size();
+    }
+
+    private static boolean isTag(final RfidDevice.Event event) {
+        return event instanceof TagEvent || event instanceof TagBatchEvent;
+    }
+
+    private static WaitStrategy toWaitStrategy(final RfidDevice.Wait wait) {
+        switch (wait) {
+            case BUSY_SPIN:
+                return WaitStrategy.busySpin();
+            case YIELD:
+                return WaitStrategy.yielding();
+            case PARK:
+            default:
+                return WaitStrategy.parking(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    private void setReportTtl(final long ttlNanos) {
+        _wheelLock.lock();
+        try {
+            if (ttlNanos == _ttlNanos) return;
+
+            // slots buffered under the previous mode stay until the buffer is cleared
+            _ttlNanos = ttlNanos;
+            if (ttlNanos > 0) {
+                final long tick = Math.max(MIN_TICK_NANOS, Math.min(MAX_TICK_NANOS, ttlNanos / 64));
+                _wheel = new TimingWheel<>(tick, System.nanoTime());
+            } else {
+                _wheel = null;
+            }
+        } finally {
+            _wheelLock.unlock();
+        }
+    }
+
+    private void schedule(final TagSlot slot) {
+        _wheelLock.lock();
+        try {
+            if (_wheel == null) return;
+            _now = System.nanoTime();
+            _wheel.schedule(new Expiry(slot), slot.getLastSeen() + _ttlNanos);
+            _wheel.advance(_now, _onExpired);
+        } finally {
+            _wheelLock.unlock();
+        }
+    }
+
+    private void expire(final long now) {
+        if (_ttlNanos == 0) return;
+        // somebody else is already advancing the wheel
+        if (!_wheelLock.tryLock()) return;
+        try {
+            if (_wheel == null) return;
+            _now = now;
+            _wheel.advance(now, _onExpired);
+        } finally {
+            _wheelLock.unlock();
+        }
+    }
+
+    private void onExpired(final Expiry expiry) {
+        final long deadline = expiry.slot.getLastSeen() + _ttlNanos;
+        if (deadline - _now > 0) {
+            // seen again meanwhile: lazily re-schedule instead of touching the wheel on every read
+            _wheel.schedule(expiry, deadline);
+        } else {
+            evict(_epoch, expiry.slot);
+        }
+    }
+
+    // the wheel only advances on reads and buffer calls, so a read may find a slot whose ttl already ran out
+    private boolean evictIfStale(final Epoch epoch, final TagSlot slot, final long nanos) {
+        final long ttl = _ttlNanos;
+        if (ttl == 0 || nanos - slot.getLastSeen() < ttl) return false;
+        evict(epoch, slot);
+        return true;
+    }
+
+    private static void evict(final Epoch epoch, final TagSlot slot) {
+        if (epoch.table.remove(slot.getEpc(), slot)) {
+            epoch.changes.remove(slot);
+        }
+    }
+
+    // NESTED TYPES
+
+    /**
+     * Control-plane SDK call, see {@link #call(String, SdkAction)}.
+     */
+    @FunctionalInterface
+    protected interface SdkAction<E1 extends Exception, E2 extends Exception> {
+
+        void run() throws E1, E2;
+
+    }
+
+    /**
+     * Control-plane SDK call returning a value, see {@link #query(String, SdkQuery)}.
+     */
+    @FunctionalInterface
+    protected interface SdkQuery<T, E1 extends Exception, E2 extends Exception> {
+
+        T run() throws E1, E2;
+
+    }
+
+    /**
+     * Decodes the rssi and antenna of a vendor read, see {@link #isBuffered(Epc, Object, ReadFields, long)}.
+     *
+     * @param <R> the vendor read type.
+     */
+    protected interface ReadFields<R> {
+
+        /**
+         * @param read - vendor read.
+         * @return rssi in centi-dBm, or {@link TagMetadata#RSSI_UNKNOWN}.
+         */
+        short rssi(R read);
+
+        /**
+         * @param read - vendor read.
+         * @return antenna port, or {@link TagMetadata#ANTENNA_UNKNOWN}.
+         */
+        int antenna(R read);
+
+    }
+
+    // wheel entry of a slot, only allocated with a report ttl so the slot itself stays free of wheel links
+    private static final class Expiry extends TimingWheel.Node {
+
+        private final TagSlot slot;
+
+        private Expiry(final TagSlot slot) {
+            this.slot = slot;
+        }
+
+    }
+
+    private static final class Epoch {
+
+        private final long id;
+        private final EpcTable<TagSlot> table = new EpcTable<>();   // lookups of every read, copy-on-write for snapshots
+        private final ChangeLog changes;
+        private final long openedAt = System.nanoTime();
+        private final LongAdder writers = new LongAdder();  // readers currently inside the epoch
+
+        private Epoch(final long id, final ChangeLog changes) {
+            this.id = id;
+            this.changes = changes;
+        }
+
     }
 
 }
@@ -0,0 +1,423 @@
+package com.contare.rfid.devices;
+
+import com.contare.rfid.buffer.EpcTable;
+import com.contare.rfid.cluster.ClusterDedup;
+import com.contare.rfid.exceptions.RfidDeviceException;
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import lombok.Data;
+import org.jboss.logging.Logger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * DeviceGroup
+ * <p>
+ * - Fans the event streams of many readers into one stream, deduplicated across every reader of the group.
+ * - Each reader keeps deduplicating its own reads; the group only sees the first report of a tag by each
+ * reader, and claims it in a shared, hash striped {@link EpcTable}. The first reader to claim a tag
+ * reports it, later reports of other readers are counted and recorded in the tag's reader mask.
+ * - No group wide lock: readers deliver on their own dispatch threads and only contend when their tags
+ * fall into the same table segment, so throughput grows with the number of readers and cores.
+ * - The group callback is called concurrently by every reader, it must be thread safe.
+ * - A claim lasts as long as the reader that made it holds the tag: once that reader clears or rotates its
+ * buffer, or the tag expires from it in sliding mode, the next report of the tag claims it again. Released
+ * claims are dropped on the next conflicting report, or swept once the table doubled since the last sweep.
+ * - With a {@link ClusterDedup}, tags claimed by another node of the cluster are suppressed as well.
+ */
+public final class DeviceGroup implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(DeviceGroup.class);
+
+    /**
+     * Maximum number of readers of a group, the reader mask of a tag is a single long.
+     */
+    public static final int MAX_READERS = 64;
+
+    private static final int MIN_SWEEP = 1_024;   // claims below which released ones are never swept
+
+    private final EpcTable<Claim> _claims = new EpcTable<>();
+    private final List<Member> _members = new CopyOnWriteArrayList<>();
+    private volatile Consumer<ReaderEvent> _callback = (event) -> { /* ignore */ };
+    private volatile ClusterDedup _cluster;
+    private final AtomicInteger _sweepAt = new AtomicInteger(MIN_SWEEP);
+
+    /**
+     * Adds a reader to the group, the group takes over its callback.
+     *
+     * @param device - reader.
+     * @return this group.
+     */
+    public synchronized DeviceGroup add(final RfidDevice device) {
+        Objects.requireNonNull(device, "device must not be null");
+        if (_members.size() >= MAX_READERS) {
+            throw new IllegalStateException("a group holds at most " + MAX_READERS + " readers");
+        }
+        for (Member member : _members) {
+            if (member.device == device) {
+                throw new IllegalArgumentException("device is already part of the group");
+            }
+        }
+        final Member member = new Member(_members.size(), device);
+        _members.add(member);
+        device.setCallback(member::accept);
+        return this;
+    }
+
+    public List<RfidDevice> getDevices() {
+        final List<RfidDevice> list = new ArrayList<>(_members.size());
+        for (Member member : _members) {
+            list.add(member.device);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Sets the callback of the merged stream: every non tag event of every reader, and the tags no other
+     * reader of the group reported before.
+     *
+     * @param callback - group callback.
+     */
+    public void setCallback(final Consumer<ReaderEvent> callback) {
+        _callback = Objects.requireNonNull(callback, "callback must not be null");
+    }
+
+    /**
+     * Sets the cluster the group shares its claims with, tags a peer already claimed are not reported.
+     * The group does not start or close the cluster.
+     *
+     * @param cluster - cluster dedup, or null to deduplicate within the group only.
+     */
+    public void setCluster(final ClusterDedup cluster) {
+        _cluster = cluster;
+    }
+
+    /**
+     * Returns the counters of every reader, in the order they joined the group.
+     *
+     * @return the reader counters.
+     */
+    public List<ReaderStats> getStats() {
+        final List<ReaderStats> list = new ArrayList<>(_members.size());
+        for (Member member : _members) {
+            list.add(member.stats);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the counters of a reader.
+     *
+     * @param device - reader of the group.
+     * @return the reader counters, or null if the device is not part of the group.
+     */
+    public ReaderStats getStats(final RfidDevice device) {
+        for (Member member : _members) {
+            if (member.device == device) return member.stats;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of unique tags reported by the group.
+     *
+     * @return the number of unique tags.
+     */
+    public int size() {
+        return _claims.size();
+    }
+
+    /**
+     * Returns the tags reported by the group, each with the reader that reported it first.
+     *
+     * @return the claimed tags.
+     */
+    public List<Claim> getClaims() {
+        final List<Claim> list = new ArrayList<>(_claims.size());
+        _claims.forEach(list::add);
+        return list;
+    }
+
+    /**
+     * Returns the claim of a tag.
+     *
+     * @param epc - tag epc.
+     * @return the claim, or null if no reader of the group reported the tag.
+     */
+    public Claim getClaim(final Epc epc) {
+        return _claims.get(epc);
+    }
+
+    /**
+     * Forgets every claimed tag and clears the buffer of every reader.
+     */
+    public void clearBuffer() {
+        for (Member member : _members) {
+            member.device.clearBuffer();
+        }
+        _claims.clear();
+    }
+
+    /**
+     * Starts the inventory of every reader.
+     *
+     * @return true if every reader started.
+     * @throws RfidDeviceException if a reader fails to start, readers already started keep reading.
+     */
+    public boolean startInventory() throws RfidDeviceException {
+        boolean started = true;
+        for (Member member : _members) {
+            started &= member.device.startInventory();
+        }
+        return started;
+    }
+
+    /**
+     * Stops the inventory of every reader.
+     *
+     * @return true if every reader stopped.
+     */
+    public boolean stopInventory() {
+        boolean stopped = true;
+        for (Member member : _members) {
+            stopped &= member.device.stopInventory();
+        }
+        return stopped;
+    }
+
+    /**
+     * Closes every reader of the group.
+     */
+    @Override
+    public void close() {
+        for (Member member : _members) {
+            try {
+                member.device.close();
+            } catch (Exception e) {
+                logger.errorf(e, "Error while closing reader %d.", member.reader());
+            }
+        }
+    }
+
+    // HELPERS
+    private boolean claim(final Member member, final TagMetadata tag) {
+        member.stats.reported.increment();
+        final Claim claim = new Claim(tag, member.reader(), member.index);
+        Claim existing = _claims.putIfAbsent(tag.getEpc(), claim);
+        while (existing != null && isReleased(existing, tag.getNanos())) {
+            _claims.remove(tag.getEpc(), existing);
+            existing = _claims.putIfAbsent(tag.getEpc(), claim);
+        }
+        if (existing == null) {
+            sweep();
+            final ClusterDedup cluster = _cluster;
+            // the claim stays, so the other readers of the group count the tag as a duplicate
+            if (cluster != null && !cluster.claim(tag.getEpc())) {
+                member.stats.remote.increment();
+                return false;
+            }
+            member.stats.first.increment();
+            return true;
+        }
+        existing.seenBy(member.index);
+        member.stats.duplicates.increment();
+        return false;
+    }
+
+    // the owner no longer holds the tag, its claim only lingers until the next report or sweep
+    private boolean isReleased(final Claim claim, final long nanos) {
+        final RfidDevice owner = _members.get(claim.index).device;
+        return (owner instanceof BufferedRfidDevice) && !((BufferedRfidDevice) owner).holds(claim.tag, nanos);
+    }
+
+    private void sweep() {
+        final int at = _sweepAt.get();
+        if (_claims.size() < at || !_sweepAt.compareAndSet(at, Integer.MAX_VALUE)) return;
+        final long now = System.nanoTime();
+        _claims.forEach(claim -> {
+            if (isReleased(claim, now)) {
+                _claims.remove(claim.tag.getEpc(), claim);
+            }
+        });
+        _sweepAt.set(Math.max(MIN_SWEEP, _claims.size() << 1));
+    }
+
+    // NESTED TYPES
+    private final class Member {
+
+        private final int index;
+        private final RfidDevice device;
+        private final ReaderStats stats;
+
+        private Member(final int index, final RfidDevice device) {
+            this.index = index;
+            this.device = device;
+            this.stats = new ReaderStats(this::reader);
+        }
+
+        // read on every event, the device may be reconfigured with another reader id
+        private int reader() {
+            return (device instanceof BufferedRfidDevice) ? ((BufferedRfidDevice) device).getReaderId() : index;
+        }
+
+        private void accept(final RfidDevice.Event event) {
+            final RfidDevice.Event merged;
+            if (event instanceof RfidDevice.TagEvent) {
+                if (!claim(this, ((RfidDevice.TagEvent) event).getTag())) return;
+                merged = event;
+            } else if (event instanceof RfidDevice.TagBatchEvent) {
+                final List<TagMetadata> tags = ((RfidDevice.TagBatchEvent) event).getTags();
+                final List<TagMetadata> claimed = new ArrayList<>(tags.size());
+                for (TagMetadata tag : tags) {
+                    if (claim(this, tag)) {
+                        claimed.add(tag);
+                    }
+                }
+                if (claimed.isEmpty()) return;
+                merged = (claimed.size() == tags.size()) ? event : new RfidDevice.TagBatchEvent(Collections.unmodifiableList(claimed));
+            } else {
+                merged = event;
+            }
+            _callback.accept(new ReaderEvent(reader(), device, merged));
+        }
+
+    }
+
+    /**
+     * Event of a reader of the group: tag events only carry tags no other reader reported before.
+     */
+    @Data
+    public static class ReaderEvent implements RfidDevice.Event {
+
+        private final int reader;
+        private final RfidDevice device;
+        private final RfidDevice.Event event;
+
+    }
+
+    /**
+     * First report of a tag in the group.
+     */
+    public static final class Claim implements EpcTable.Entry {
+
+        private static final VarHandle SEEN_BY;
+
+        static {
+            try {
+                SEEN_BY = MethodHandles.lookup().findVarHandle(Claim.class, "seenBy", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final TagMetadata tag;
+        private final int reader;
+        private final int index;
+        private volatile long seenBy;
+
+        private Claim(final TagMetadata tag, final int reader, final int index) {
+            this.tag = tag;
+            this.reader = reader;
+            this.index = index;
+            this.seenBy = 1L << index;
+        }
+
+        /**
+         * @return the read reported by the group.
+         */
+        public TagMetadata getTag() {
+            return tag;
+        }
+
+        /**
+         * @return id of the reader that reported the tag first.
+         */
+        public int getReader() {
+            return reader;
+        }
+
+        /**
+         * Returns the readers that reported the tag, bit {@code n} set for the n-th reader of the group.
+         *
+         * @return the reader mask.
+         */
+        public long getSeenBy() {
+            return seenBy;
+        }
+
+        private void seenBy(final int index) {
+            SEEN_BY.getAndBitwiseOr(this, 1L << index);
+        }
+
+        @Override
+        public boolean hasEpc(final Epc epc) {
+            return tag.getEpc().equals(epc);
+        }
+
+    }
+
+    /**
+     * Counters of a reader of the group.
+     */
+    public static final class ReaderStats {
+
+        private final IntSupplier reader;
+        private final LongAdder reported = new LongAdder();
+        private final LongAdder first = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder remote = new LongAdder();
+
+        private ReaderStats(final IntSupplier reader) {
+            this.reader = reader;
+        }
+
+        public int getReader() {
+            return reader.getAsInt();
+        }
+
+        /**
+         * @return number of tags the reader reported to the group.
+         */
+        public long getReported() {
+            return reported.sum();
+        }
+
+        /**
+         * @return number of tags the reader reported before any other reader of the group.
+         */
+        public long getFirst() {
+            return first.sum();
+        }
+
+        /**
+         * @return number of tags another reader of the group had already reported.
+         */
+        public long getDuplicates() {
+            return duplicates.sum();
+        }
+
+        /**
+         * @return number of tags the reader reported first in the group, but another node of the cluster claimed.
+         */
+        public long getRemote() {
+            return remote.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "ReaderStats(reader=" + getReader() + ", reported=" + getReported() + ", first=" + getFirst() + ", duplicates=" + getDuplicates() + ", remote=" + getRemote() + ")";
+        }
+
+    }
+
+}
@@ -1,67 +1,125 @@
 package com.contare.rfid.devices;
 
 import com.contare.rfid.exceptions.RfidDeviceException;
+import com.contare.rfid.objects.Epc;
 import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.utils.Rssi;
+import lombok.Builder;
+import lombok.Data;
 import org.jboss.logging.Logger;
 
-import java.math.BigInteger;
-import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FakeRfidDevice
+ * <p>
+ * - Simulated reader, also usable as a load generator: a population of SGTIN-96 tags read at a target
+ * rate by one or more generator threads, through the same dedup and dispatch path as the adapters.
+ * - Each read is a tag never read before or, with the {@link Load#getDuplicateRatio()} probability, a
+ * random tag already read; once the whole population was read, every read is a duplicate.
+ * - Every instance has its own buffer and population cursor; EPCs are computed from their serial number,
+ * so a population of millions costs no memory besides the buffer.
+ */
 public class FakeRfidDevice extends BufferedRfidDevice implements RfidDevice {
 
     private static final Logger logger = Logger.getLogger(FakeRfidDevice.class);
 
-    private static final List<TagMetadata> _source = new ArrayList<>();
-    private static final Set<TagMetadata> _buffer = new HashSet<>();
-
-    static {
-        final int max = 10_000;
-        for (int i = 0; i < max; i++) {
-            final String rfid = EpcGenerator.generateSgtin("101010", i);
-            _source.add(new TagMetadata(rfid, null, null, 0));
-        }
-    }
+    private static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
 
     private final int _minPower = 0;
     private final int _maxPower = 100;
 
     private RfidDevice.Params _params = null;
-    private Consumer<RfidDevice.Event> _callback = (event) -> { /* ignore */ };
     private RfidDevice.Frequency _frequency = RfidDevice.Frequency.BRAZIL;
     private int _power = 0;
     private boolean _beep = true;
     private boolean isConnected = false;
-    private boolean isReading = false;
+    private volatile boolean isReading = false;
 
-    private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Load _load;
+    private final Epc _base;                            // serial number 0 of the population
+    private final AtomicLong _cursor = new AtomicLong();  // tags of the population read so far
+    private final LongAdder _generated = new LongAdder();
+    private final List<Thread> _generators = new ArrayList<>();
 
-    @Override
-    public int getMinPower() {
-        return _minPower;
+    public FakeRfidDevice() {
+        this(Load.builder().build());
     }
 
-    @Override
-    public int getMaxPower() {
-        return _maxPower;
+    /**
+     * Generates reads on the generator threads and delivers them on those threads directly.
+     *
+     * @param load - load profile.
+     */
+    public FakeRfidDevice(final Load load) {
+        this(Runnable::run, load);
+    }
+
+    /**
+     * @param executor - executor that runs the user callback.
+     * @param load     - load profile.
+     */
+    public FakeRfidDevice(final Executor executor, final Load load) {
+        super(executor);
+        _load = Objects.requireNonNull(load, "load must not be null");
+        if (load.getPopulation() <= 0 || load.getPopulation() > (1L << 38)) {
+            throw new IllegalArgumentException("'population' must be between 1 and 2^38");
+        }
+        if (load.getThreads() <= 0) {
+            throw new IllegalArgumentException("'threads' must be positive");
+        }
+        if (load.getAntennas() <= 0) {
+            throw new IllegalArgumentException("'antennas' must be positive");
+        }
+        if (load.getDuplicateRatio() < 0 || load.getDuplicateRatio() > 1) {
+            throw new IllegalArgumentException("'duplicateRatio' must be between 0 and 1");
+        }
+        if (load.getBurstFactor() <= 0) {
+            throw new IllegalArgumentException("'burstFactor' must be positive");
+        }
+        _base = EpcGenerator.generateSgtinEpc(load.getItemReference(), 0);
+    }
+
+    public Load getLoad() {
+        return _load;
+    }
+
+    /**
+     * @return number of reads generated, duplicates included.
+     */
+    public long getGenerated() {
+        return _generated.sum();
+    }
+
+    /**
+     * @return number of distinct tags of the population read so far.
+     */
+    public long getDistinct() {
+        return Math.min(_cursor.get(), _load.getPopulation());
     }
 
     @Override
-    public Set<TagMetadata> getBuffer() {
-        return Collections.unmodifiableSet(_buffer);
+    public int getMinPower() {
+        return _minPower;
     }
 
     @Override
-    public void clearBuffer() {
-        _buffer.clear();
+    public int getMaxPower() {
+        return _maxPower;
     }
 
     @Override
     public boolean connect(final RfidDevice.Options opts) throws RfidDeviceException {
+        configure(opts);
         isConnected = true;
         return true;
     }
@@ -88,47 +146,42 @@ public class FakeRfidDevice extends BufferedRfidDevice implements RfidDevice {
     }
 
     @Override
-    public void setCallback(final Consumer<RfidDevice.Event> callback) {
-        _callback = callback;
-    }
-
-    @Override
-    public boolean startInventory() {
-        final int initialDelay = 0;
-        final int delay = 100;
-        final TimeUnit unit = TimeUnit.MILLISECONDS;
-
+    public synchronized boolean startInventory() {
+        if (isReading) return false;
         isReading = true;
 
-        if (executor.isShutdown()) {
-            executor = Executors.newSingleThreadScheduledExecutor();
+        final long seed = (_load.getSeed() != null) ? _load.getSeed() : ThreadLocalRandom.current().nextLong();
+        final double rate = _load.getRate() / _load.getThreads();
+        final long start = System.nanoTime();
+        for (int i = 0; i < _load.getThreads(); i++) {
+            final SplittableRandom random = new SplittableRandom(seed + i);
+            final Thread thread = new Thread(() -> generate(random, rate, start), "rfid-fake-" + getReaderId() + "-" + i);
+            thread.setDaemon(true);
+            _generators.add(thread);
+            thread.start();
         }
-
-        executor.scheduleWithFixedDelay(() -> {
-                try {
-                    final int index = ThreadLocalRandom.current().nextInt(0, 10_000);
-                    final TagMetadata tag = _source.get(index);
-                    boolean added = _buffer.add(tag);
-                    if (added) {
-                        _callback.accept(new TagEvent(tag));
-                    }
-                } catch (Exception e) {
-                    logger.errorf(e, "Error while generating tag event.");
-                }
-            },
-            initialDelay,
-            delay,
-            unit
-        );
-
         return true;
     }
 
     @Override
     public boolean stopInventory() {
-        if (executor.isShutdown()) return false;
-        executor.shutdown();
-        isReading = false;
+        final List<Thread> generators;
+        synchronized (this) {
+            if (!isReading) return false;
+            isReading = false;
+            generators = new ArrayList<>(_generators);
+            _generators.clear();
+        }
+        for (Thread thread : generators) {
+            LockSupport.unpark(thread);
+            if (thread == Thread.currentThread()) continue;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
         logger.debugf("Device successfully stopped inventory");
         return true;
     }
@@ -186,26 +239,143 @@ public class FakeRfidDevice extends BufferedRfidDevice implements RfidDevice {
 
     @Override
     public void close() throws Exception {
-        if (!executor.isShutdown()) {
-            executor.shutdownNow();
+        if (stopInventory()) {
+            logger.debugf("Device successfully terminated");
         }
+        closeDispatch();
+    }
 
-        if (!executor.isTerminated()) {
-            boolean terminated = executor.awaitTermination(500, TimeUnit.MILLISECONDS);
-            if (terminated) {
-                logger.debugf("Device successfully terminated");
+    // HELPERS
+    private void generate(final SplittableRandom random, final double rate, final long start) {
+        final boolean paced = rate > 0;
+        long next = start;
+        try {
+            while (isReading) {
+                final long now = System.nanoTime();
+                if (paced && now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+                read(random, now);
+                if (paced) {
+                    next += (long) (1e9 / (rate * burst(now - start)));
+                    // a stalled generator does not try to catch up on more than a second of reads
+                    if (now - next > MAX_LAG_NANOS) {
+                        next = now;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.errorf(e, "Error while generating tag event.");
+        }
+    }
+
+    private double burst(final long elapsed) {
+        final long period = TimeUnit.MILLISECONDS.toNanos(_load.getBurstPeriod());
+        if (period <= 0) return 1.0;
+        final long duration = TimeUnit.MILLISECONDS.toNanos(_load.getBurstDuration());
+        return (elapsed % period < duration) ? _load.getBurstFactor() : 1.0;
+    }
+
+    private void read(final SplittableRandom random, final long nanos) {
+        final long population = _load.getPopulation();
+        long serial = -1;
+        if (random.nextDouble() >= _load.getDuplicateRatio()) {
+            final long cursor = _cursor.getAndIncrement();
+            if (cursor < population) {
+                serial = cursor;
             }
         }
+        if (serial < 0) {
+            final long seen = Math.min(_cursor.get(), population);
+            serial = (seen > 0) ? random.nextLong(seen) : _cursor.getAndIncrement() % population;
+        }
+
+        final Epc epc = EpcGenerator.generateSgtinEpc(_base, serial);
+        final short rssi = Double.isNaN(_load.getRssiMean())
+            ? TagMetadata.RSSI_UNKNOWN
+            : Rssi.fromDbm(_load.getRssiMean() + gaussian(random) * _load.getRssiStdDev());
+        final int antenna = 1 + random.nextInt(_load.getAntennas());
+        _generated.increment();
+
+        if (isBuffered(epc, rssi, antenna, nanos)) return;
+        final TagMetadata tag = new TagMetadata(epc, null, rssi, antenna, nanos);
+        if (buffer(tag)) {
+            publish(tag);
+        }
+    }
+
+    // standard normal deviate (Marsaglia polar method), SplittableRandom has none
+    private static double gaussian(final SplittableRandom random) {
+        double u;
+        double v;
+        double s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        return u * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    // NESTED TYPES
+    @Data
+    @Builder(toBuilder = true)
+    public static class Load {
+
+        @Builder.Default
+        private final long population = 10_000;     // number of distinct tags, up to 2^38
+
+        @Builder.Default
+        private final double rate = 10;             // total reads per second, 0 for as fast as possible
+
+        @Builder.Default
+        private final int threads = 1;              // generator threads, sharing the rate
+
+        @Builder.Default
+        private final int antennas = 4;             // reads are spread evenly over antennas 1..n
+
+        @Builder.Default
+        private final double rssiMean = -60;        // mean rssi in dBm, NaN for reads without rssi
+
+        @Builder.Default
+        private final double rssiStdDev = 6;        // rssi standard deviation in dB
+
+        @Builder.Default
+        private final double duplicateRatio = 0.5;  // probability that a read is a tag already read
+
+        @Builder.Default
+        private final double burstFactor = 1;       // rate multiplier during bursts
+
+        @Builder.Default
+        private final long burstPeriod = 0;         // milliseconds between two burst starts, 0 for a steady rate
+
+        @Builder.Default
+        private final long burstDuration = 0;       // milliseconds a burst lasts
+
+        @Builder.Default
+        private final String itemReference = "101010";  // sgtin item reference of the population
+
+        private final Long seed;                    // random seed, for reproducible runs
 
     }
 
     public static class EpcGenerator {
 
+        private static final long SERIAL_MASK = (1L << 38) - 1;
+
         /**
          * Simple overload that uses fixed values:
          * filter = 3, partition = 5, companyPrefix = "0614141"
          */
         public static String generateSgtin(final String itemReference, final long serialNumber) {
+            return generateSgtinEpc(itemReference, serialNumber).toHex();
+        }
+
+        /**
+         * Same as {@link #generateSgtin(String, long)}, but returns the binary EPC and skips the hex string.
+         */
+        public static Epc generateSgtinEpc(final String itemReference, final long serialNumber) {
             int filter = 3;
             int partition = 5;                 // matches your example (partition value 5)
             String companyPrefix = "0614141";  // preserve leading zero as string
@@ -213,16 +383,27 @@ public class FakeRfidDevice extends BufferedRfidDevice implements RfidDevice {
             return generateSgtin(filter, partition, companyPrefix, Integer.parseInt(itemReference), serialNumber);
         }
 
+        /**
+         * Returns the EPC of another serial number of the same product: no parsing, no allocation but the EPC.
+         *
+         * @param base         - any SGTIN-96 of the product, e.g. serial number 0.
+         * @param serialNumber - serial number (38 bits).
+         * @return the EPC.
+         */
+        public static Epc generateSgtinEpc(final Epc base, final long serialNumber) {
+            return Epc.of96(base.getHigh(), (base.getLow() & ~SERIAL_MASK) | (serialNumber & SERIAL_MASK));
+        }
+
         /**
          * Full generator that accepts every parameter.
          * companyPrefix must be a decimal string (may contain leading zeros).
          * itemReference is decimal (no leading zeros in int form; digit length is validated against partition).
          */
-        private static String generateSgtin(final int filter,
-                                            final int partition,
-                                            final String companyPrefix,
-                                            final int itemReference,
-                                            final long serialNumber) {
+        private static Epc generateSgtin(final int filter,
+                                         final int partition,
+                                         final String companyPrefix,
+                                         final int itemReference,
+                                         final long serialNumber) {
 
             // header for SGTIN-96
             final int HEADER = 0x30; // 8 bits
@@ -254,26 +435,35 @@ public class FakeRfidDevice extends BufferedRfidDevice implements RfidDevice {
             long serialMask = (1L << 38) - 1;
             long serialValue = serialNumber & serialMask;
 
-            // Build 96-bit value using BigInteger to avoid long overflow
-            BigInteger epc = BigInteger.ZERO;
-
             // shifts: header(8) | filter(3) | partition(3) | company(cpBitLen) | item(irBitLen) | serial(38)
             int shiftHeader = 96 - 8;
             int shiftFilter = shiftHeader - 3;
             int shiftPartition = shiftFilter - 3;
             int shiftCompany = shiftPartition - cpBitLen;
-            int shiftItem = shiftCompany - irBitLen;
-            // serial occupies the lowest 38 bits (shiftItem - 38 == 0)
-
-            epc = epc.or(BigInteger.valueOf(HEADER & 0xFFL).shiftLeft(shiftHeader));
-            epc = epc.or(BigInteger.valueOf(filter & 0x07L).shiftLeft(shiftFilter));
-            epc = epc.or(BigInteger.valueOf(partition & 0x07L).shiftLeft(shiftPartition));
-            epc = epc.or(BigInteger.valueOf(cpValue).shiftLeft(shiftCompany));
-            epc = epc.or(BigInteger.valueOf(irValue).shiftLeft(38));
-            epc = epc.or(BigInteger.valueOf(serialValue));
-
-            // return lowercase 24-hex padded (96 bits)
-            return String.format("%024x", new BigInteger(epc.toByteArray())).toUpperCase();
+            // serial occupies the lowest 38 bits, item reference sits right above it
+
+            // build the 96-bit value in two words: high holds bits 64..95, low holds bits 0..63
+            final long[] words = new long[2];
+            put(words, HEADER & 0xFFL, shiftHeader);
+            put(words, filter & 0x07L, shiftFilter);
+            put(words, partition & 0x07L, shiftPartition);
+            put(words, cpValue, shiftCompany);
+            put(words, irValue, 38);
+            put(words, serialValue, 0);
+
+            return Epc.of96(words[0], words[1]);
+        }
+
+        // ORs 'value' into the 96-bit number held by 'words', starting at bit 'shift'
+        private static void put(final long[] words, final long value, final int shift) {
+            if (shift >= 64) {
+                words[0] |= value << (shift - 64);
+            } else {
+                words[1] |= value << shift;
+                if (shift > 0) {
+                    words[0] |= value >>> (64 - shift);
+                }
+            }
         }
 
     }
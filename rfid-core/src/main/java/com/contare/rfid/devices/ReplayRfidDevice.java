@@ -0,0 +1,358 @@
+package com.contare.rfid.devices;
+
+import com.contare.rfid.exceptions.RfidDeviceException;
+import com.contare.rfid.journal.ReadJournal;
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.utils.Rssi;
+import com.contare.rfid.utils.Timestamps;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ReplayRfidDevice
+ * <p>
+ * - Replays recorded reads through the same dedup and dispatch path as the hardware adapters, so
+ * recorded production traffic can be pushed through a pipeline without a reader.
+ * - The source is a {@link ReadJournal} directory (record it with {@link RfidDevice.Journal#RAW}) or a
+ * CSV file of {@code epc,rssi,antenna,time} lines: rssi in dBm, time in epoch milliseconds or ISO-8601;
+ * a header line and blank lines are skipped.
+ * - {@code speed} 1 keeps the original inter-arrival times, N replays N times faster and
+ * {@link #AS_FAST_AS_POSSIBLE} ignores the recorded times.
+ * - Replayed reads are stamped with the time they are replayed, so sliding dedup and latency
+ * measurements behave as they would live.
+ */
+public class ReplayRfidDevice extends BufferedRfidDevice implements RfidDevice {
+
+    private static final Logger logger = Logger.getLogger(ReplayRfidDevice.class);
+
+    /**
+     * Speed that replays reads back to back, ignoring their recorded times.
+     */
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+
+    private static final int MIN_POWER = 0;
+    private static final int MAX_POWER = 100;
+
+    private final Path source;
+    private final double speed;
+    private final LongAdder replayed = new LongAdder();
+
+    private RfidDevice.Params _params = null;
+    private RfidDevice.Frequency _frequency = RfidDevice.Frequency.BRAZIL;
+    private int _power = MAX_POWER;
+    private boolean _beep = false;
+    private volatile boolean isConnected = false;
+    private volatile boolean isReading = false;
+    private Thread worker;
+
+    /**
+     * @param executor - executor that runs the user callback.
+     * @param source   - journal directory or csv file.
+     * @param speed    - replay speed, 1 for the original timing, {@link #AS_FAST_AS_POSSIBLE} for no pacing.
+     */
+    public ReplayRfidDevice(final Executor executor, final Path source, final double speed) {
+        super(executor);
+        this.source = Objects.requireNonNull(source, "source must not be null");
+        if (!(speed >= 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("'speed' must be a finite, non negative number");
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * Replays on the replay thread, delivering to the callback on it directly.
+     *
+     * @param source - journal directory or csv file.
+     * @param speed  - replay speed, 1 for the original timing, {@link #AS_FAST_AS_POSSIBLE} for no pacing.
+     */
+    public ReplayRfidDevice(final Path source, final double speed) {
+        this(Runnable::run, source, speed);
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return number of reads replayed, duplicates included.
+     */
+    public long getReplayed() {
+        return replayed.sum();
+    }
+
+    @Override
+    public int getMinPower() {
+        return MIN_POWER;
+    }
+
+    @Override
+    public int getMaxPower() {
+        return MAX_POWER;
+    }
+
+    @Override
+    public boolean connect(final RfidDevice.Options opts) throws RfidDeviceException {
+        if (!Files.exists(source)) {
+            throw new RfidDeviceException("Replay source '%s' does not exist.", source);
+        }
+        configure(opts);
+        isConnected = true;
+        dispatch(new RfidDevice.StatusEvent(RfidDevice.Status.CONNECTED));
+        return true;
+    }
+
+    @Override
+    public void disconnect() {
+        stopInventory();
+        isConnected = false;
+        dispatch(new RfidDevice.StatusEvent(RfidDevice.Status.DISCONNECTED));
+    }
+
+    @Override
+    public boolean isConnected() {
+        return isConnected;
+    }
+
+    @Override
+    public RfidDevice.Params getInventoryParameters() {
+        return _params;
+    }
+
+    @Override
+    public boolean setInventoryParameters(final RfidDevice.Params params) {
+        _params = params;
+        return true;
+    }
+
+    /**
+     * Starts replaying the source from its first read, the inventory stops by itself at its end.
+     *
+     * @return true if the replay started.
+     * @throws RfidDeviceException if the device is not connected.
+     */
+    @Override
+    public synchronized boolean startInventory() throws RfidDeviceException {
+        if (!isConnected) {
+            throw new RfidDeviceException("Device is not connected.");
+        }
+        if (isReading) return false;
+        isReading = true;
+        worker = new Thread(this::run, "rfid-replay-" + source.getFileName());
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    @Override
+    public boolean stopInventory() {
+        final Thread thread;
+        synchronized (this) {
+            thread = worker;
+            worker = null;
+            if (thread == null) return false;
+            isReading = false;
+        }
+        LockSupport.unpark(thread);
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        logger.debugf("Device successfully stopped inventory");
+        return true;
+    }
+
+    @Override
+    public boolean isReading() {
+        return isReading;
+    }
+
+    @Override
+    public boolean killTag(final String rfid, final String password) throws RfidDeviceException {
+        throw new UnsupportedOperationException("Device do not support kill tag operations.");
+    }
+
+    @Override
+    public RfidDevice.Frequency getFrequency() {
+        return _frequency;
+    }
+
+    @Override
+    public boolean setFrequency(final RfidDevice.Frequency value) {
+        _frequency = value;
+        return true;
+    }
+
+    @Override
+    public int getPower() {
+        return _power;
+    }
+
+    @Override
+    public boolean setPower(final int value) {
+        if (value < MIN_POWER || value > MAX_POWER) {
+            throw new IllegalArgumentException(String.format("'power' must be between '%d' amd '%d'", MIN_POWER, MAX_POWER));
+        }
+        _power = value;
+        return true;
+    }
+
+    @Override
+    public boolean getBeep() {
+        return _beep;
+    }
+
+    @Override
+    public boolean setBeep(final boolean enabled) {
+        _beep = enabled;
+        return true;
+    }
+
+    @Override
+    public boolean setTagFocus(final boolean enabled) {
+        return false;
+    }
+
+    @Override
+    public void close() throws Exception {
+        stopInventory();
+        isConnected = false;
+        closeDispatch();
+    }
+
+    // HELPERS
+    private void run() {
+        final Pacer pacer = new Pacer();
+        final long start = System.nanoTime();
+        try {
+            if (Files.isDirectory(source)) {
+                ReadJournal.replay(source, (epc, rssi, antenna, nanos) -> read(pacer, epc, rssi, antenna, nanos));
+            } else {
+                replayCsv(pacer);
+            }
+            logger.debugf("Replayed '%s': %d reads in %d ms.", source, Long.valueOf(pacer.count), Long.valueOf((System.nanoTime() - start) / 1_000_000L));
+        } catch (Stopped e) {
+            logger.debugf("Replay of '%s' stopped after %d reads.", source, Long.valueOf(pacer.count));
+        } catch (Exception e) {
+            logger.errorf(e, "Error while replaying '%s'.", source);
+            dispatch(new RfidDevice.ErrorEvent(e));
+        } finally {
+            synchronized (this) {
+                if (worker == Thread.currentThread()) {
+                    worker = null;
+                    isReading = false;
+                }
+            }
+            flush();
+        }
+    }
+
+    private void replayCsv(final Pacer pacer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) continue;
+                final int a = line.indexOf(',');
+                final int b = (a < 0) ? -1 : line.indexOf(',', a + 1);
+                final int c = (b < 0) ? -1 : line.indexOf(',', b + 1);
+                if (c < 0) {
+                    logger.warnf("Skipping line %d of '%s', expected 'epc,rssi,antenna,time'.", number, source);
+                    continue;
+                }
+                final Epc epc;
+                final int antenna;
+                final long nanos;
+                try {
+                    epc = Epc.fromHex(line, 0, a);
+                    antenna = (c > b + 1) ? Integer.parseInt(line, b + 1, c, 10) : TagMetadata.ANTENNA_UNKNOWN;
+                    nanos = parseTime(line.substring(c + 1).trim());
+                } catch (RuntimeException e) {
+                    // a header line, or a broken one
+                    if (number > 1) {
+                        logger.warnf("Skipping line %d of '%s': %s", number, source, e.getMessage());
+                    }
+                    continue;
+                }
+                read(pacer, epc, Rssi.parse(line, a + 1, b), antenna, nanos);
+            }
+        }
+    }
+
+    private void read(final Pacer pacer, final Epc epc, final short rssi, final int antenna, final long recorded) {
+        pacer.await(recorded);
+        final long nanos = System.nanoTime();
+        replayed.increment();
+        if (isBuffered(epc, rssi, antenna, nanos)) return;
+        final TagMetadata tag = new TagMetadata(epc, null, rssi, antenna, nanos);
+        if (buffer(tag)) {
+            publish(tag);
+        }
+    }
+
+    private static long parseTime(final String value) {
+        // ISO-8601 instants always have a time separator, epoch milliseconds never do
+        if (value.indexOf('T') < 0) {
+            return Timestamps.fromEpochMillis(Long.parseLong(value));
+        }
+        final Instant instant = Instant.parse(value);
+        return Timestamps.fromEpochNanos(instant.getEpochSecond() * 1_000_000_000L + instant.getNano());
+    }
+
+    // NESTED TYPES
+    private final class Pacer {
+
+        private long count;
+        private long firstRecorded;
+        private long firstReplayed;
+
+        // waits until the recorded offset of the read, scaled by the speed, has elapsed
+        private void await(final long recorded) {
+            if (!isReading) throw Stopped.INSTANCE;
+            if (count++ == 0) {
+                firstRecorded = recorded;
+                firstReplayed = System.nanoTime();
+                return;
+            }
+            if (speed == AS_FAST_AS_POSSIBLE) return;
+            final long due = firstReplayed + (long) ((recorded - firstRecorded) / speed);
+            long remaining;
+            while ((remaining = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+                if (!isReading) throw Stopped.INSTANCE;
+            }
+        }
+
+    }
+
+    // unwinds the journal replay once the inventory is stopped
+    private static final class Stopped extends RuntimeException {
+
+        private static final Stopped INSTANCE = new Stopped();
+
+        private Stopped() {
+            super("replay stopped", null, false, false);
+        }
+
+    }
+
+}
@@ -1,11 +1,14 @@
 package com.contare.rfid.devices;
 
+import com.contare.rfid.buffer.BufferSnapshot;
 import com.contare.rfid.exceptions.RfidDeviceException;
 import com.contare.rfid.objects.TagMetadata;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Flow;
 import java.util.function.Consumer;
 
 public interface RfidDevice extends AutoCloseable {
@@ -36,6 +39,24 @@ public interface RfidDevice extends AutoCloseable {
      */
     void clearBuffer();
 
+    /**
+     * Seals the buffer and starts a new, empty one, atomically: every read lands in exactly one of them.
+     * <p>
+     * Runs in constant time regardless of the buffer size, inventory keeps going.
+     *
+     * @return the sealed buffer.
+     */
+    BufferSnapshot rotate();
+
+    /**
+     * Returns a stable view of the tags currently in the buffer, in constant time.
+     * <p>
+     * The view shares its structure with the live buffer, later reads never change its set of tags.
+     *
+     * @return the buffer snapshot.
+     */
+    BufferSnapshot snapshot();
+
     boolean connect(final Options opts) throws RfidDeviceException;
 
     void disconnect() throws RfidDeviceException;
@@ -48,6 +69,46 @@ public interface RfidDevice extends AutoCloseable {
 
     void setCallback(final Consumer<Event> callback);
 
+    /**
+     * Returns a publisher of the same events delivered to the callback, for any number of subscribers.
+     * <p>
+     * Each subscriber has its own bounded buffer and only receives the events it requested.
+     *
+     * @return the event publisher of this device.
+     */
+    Flow.Publisher<Event> getPublisher();
+
+    /**
+     * Sets the low level listener of every tag read, duplicates included.
+     * <p>
+     * The sink receives primitive fields only and runs on the SDK thread that captured the read, before
+     * deduplication and before any event is built.
+     *
+     * @param sink - tag sink, null to remove it.
+     */
+    void setTagSink(final TagSink sink);
+
+    /**
+     * Sets the callback of status changes, called on the callback thread after the callback.
+     *
+     * @param callback - status callback, null to remove it.
+     */
+    void setStatusCallback(final StatusCallback callback);
+
+    /**
+     * Sets the callback of battery level reports, called on the callback thread after the callback.
+     *
+     * @param callback - battery callback, null to remove it.
+     */
+    void setBatteryCallback(final BatteryCallback callback);
+
+    /**
+     * Sets the callback of device errors, called on the callback thread after the callback.
+     *
+     * @param callback - error callback, null to remove it.
+     */
+    void setErrorCallback(final ErrorCallback callback);
+
     boolean startInventory() throws RfidDeviceException;
 
     boolean stopInventory();
@@ -171,6 +232,92 @@ public interface RfidDevice extends AutoCloseable {
         private final Short vendor;     // ???
         private final Short productId;  // ???
 
+        @Builder.Default
+        private final Dedup dedup = Dedup.ONCE;     // how repeated reads of a tag are reported
+
+        @Builder.Default
+        private final long reportTtl = 30_000;      // sliding dedup: milliseconds a tag must be absent before it is reported again
+
+        @Builder.Default
+        private final Delivery delivery = Delivery.SINGLE;  // how tag reads are delivered to the callback
+
+        @Builder.Default
+        private final int batchSize = 512;          // batch delivery: maximum number of tags per batch
+
+        @Builder.Default
+        private final long batchLatency = 100;      // batch delivery: latency target in milliseconds
+
+        @Builder.Default
+        private final Handoff handoff = Handoff.EXECUTOR;   // how events leave the sdk threads
+
+        @Builder.Default
+        private final int ringSize = 8_192;         // ring handoff: number of slots (power of two)
+
+        @Builder.Default
+        private final Wait ringWait = Wait.PARK;    // ring handoff: what the consumer does while idle
+
+        @Builder.Default
+        private final Backpressure backpressure = Backpressure.BLOCK;   // what to do with tag events the callback cannot keep up with
+
+        @Builder.Default
+        private final int queueCapacity = 65_536;   // maximum number of tag events waiting for the callback
+
+        private final String spillDirectory;        // spill policy: directory of the spill file (default: java.io.tmpdir)
+
+        private final Integer readerId;             // id passed to the tag sink (default: assigned per device instance)
+
+        @Builder.Default
+        private final int subscriberBuffer = Flow.defaultBufferSize();  // publisher: maximum number of events buffered per subscriber
+
+        @Builder.Default
+        private final long subscriberTimeout = 0;   // publisher: milliseconds to wait for room in a full subscriber buffer before dropping the event for it
+
+        @Builder.Default
+        private final Journal journal = Journal.NONE;   // which reads are journaled to disk, to rebuild the buffer after a crash
+
+        private final String journalDirectory;      // journal: directory of the segment files
+
+        @Builder.Default
+        private final long journalCommit = 10;      // journal: milliseconds between two forces to disk
+
+        @Builder.Default
+        private final boolean trackLatency = false; // record per stage read latency histograms, see BufferedRfidDevice.getLatency()
+
+    }
+
+    enum Dedup {
+        ONCE,       // report each tag once, until the buffer is cleared
+        SLIDING     // report again after the tag was absent for the report ttl
+    }
+
+    enum Delivery {
+        SINGLE,     // one TagEvent per tag
+        BATCH       // TagBatchEvent, bounded by size and latency
+    }
+
+    enum Handoff {
+        EXECUTOR,   // bounded queue drained by one task at a time on the user executor
+        RING        // preallocated ring buffer drained by a dedicated consumer thread
+    }
+
+    enum Wait {
+        BUSY_SPIN,  // lowest latency, burns a core while idle
+        YIELD,      // spin, then yield the cpu
+        PARK        // spin, yield, then park (bounded wake up latency)
+    }
+
+    enum Journal {
+        NONE,           // the buffer only lives in memory
+        FIRST_SEEN,     // journal the first read of every tag
+        RAW             // journal every read, the rebuilt buffer keeps the read statistics
+    }
+
+    enum Backpressure {
+        BLOCK,          // the sdk thread waits for room in the queue
+        DROP_OLDEST,    // discard the oldest queued tag event (executor handoff only)
+        DROP_NEWEST,    // discard the incoming tag event
+        COALESCE,       // keep one queued event per epc, newest read wins (executor handoff only)
+        SPILL           // write tag events to a file on disk, delivered in order once the callback catches up (executor handoff only)
     }
 
     @Data
@@ -185,6 +332,50 @@ public interface RfidDevice extends AutoCloseable {
 
     }
 
+    /**
+     * Allocation free listener of raw tag reads.
+     * <p>
+     * - Called on SDK threads, possibly concurrently, so implementations must be thread safe and fast.
+     * - The EPC is passed as its two words (see {@link com.contare.rfid.objects.Epc#getHigh()}); EPCs longer
+     * than 128 bits only carry their last 16 bytes, consumers of such tags need the event callback.
+     */
+    @FunctionalInterface
+    interface TagSink {
+
+        /**
+         * @param reader  - id of the device that read the tag.
+         * @param high    - most significant 64 bits of the epc.
+         * @param low     - least significant 64 bits of the epc.
+         * @param length  - epc length in bytes.
+         * @param rssi    - rssi in centi-dBm, or {@link TagMetadata#RSSI_UNKNOWN}.
+         * @param antenna - antenna port, or {@link TagMetadata#ANTENNA_UNKNOWN}.
+         * @param nanos   - {@link System#nanoTime()} of the read.
+         */
+        void onTag(int reader, long high, long low, int length, short rssi, int antenna, long nanos);
+
+    }
+
+    @FunctionalInterface
+    interface StatusCallback {
+
+        void onStatus(Status status);
+
+    }
+
+    @FunctionalInterface
+    interface BatteryCallback {
+
+        void onBattery(int level);
+
+    }
+
+    @FunctionalInterface
+    interface ErrorCallback {
+
+        void onError(Throwable cause);
+
+    }
+
     interface Event {
     }
 
@@ -195,6 +386,13 @@ public interface RfidDevice extends AutoCloseable {
 
     }
 
+    @Data
+    class TagBatchEvent implements Event {
+
+        private final List<TagMetadata> tags;
+
+    }
+
     @Data
     class StatusEvent implements Event {
 
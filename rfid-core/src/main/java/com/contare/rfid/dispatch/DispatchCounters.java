@@ -0,0 +1,94 @@
+package com.contare.rfid.dispatch;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DispatchCounters
+ * <p>
+ * - What happened to the tag events handed to the dispatch path, per device.
+ * - Striped counters, producers never contend on a single cache line.
+ */
+public final class DispatchCounters {
+
+    final LongAdder offered = new LongAdder();
+    final LongAdder delivered = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+    final LongAdder coalesced = new LongAdder();
+    final LongAdder spilled = new LongAdder();
+    final LongAdder blocked = new LongAdder();
+    final LongAdder subscriberDrops = new LongAdder();
+
+    /**
+     * @return number of events handed to the dispatch path.
+     */
+    public long getOffered() {
+        return offered.sum();
+    }
+
+    /**
+     * @return number of events that reached the user callback.
+     */
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return number of events discarded because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of tag events merged into a pending event of the same EPC.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of events written to the spill file.
+     */
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    /**
+     * @return number of times a producer had to wait for room in the queue.
+     */
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    /**
+     * @return number of events a {@link EventPublisher} subscriber missed because its buffer was full.
+     */
+    public long getSubscriberDrops() {
+        return subscriberDrops.sum();
+    }
+
+    public void recordOffered() {
+        offered.increment();
+    }
+
+    public void recordDelivered() {
+        delivered.increment();
+    }
+
+    public void recordDropped() {
+        dropped.increment();
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchCounters{offered=" + getOffered()
+            + ", delivered=" + getDelivered()
+            + ", dropped=" + getDropped()
+            + ", coalesced=" + getCoalesced()
+            + ", spilled=" + getSpilled()
+            + ", blocked=" + getBlocked()
+            + ", subscriberDrops=" + getSubscriberDrops()
+            + "}";
+    }
+
+}
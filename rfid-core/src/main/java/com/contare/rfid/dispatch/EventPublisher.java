@@ -0,0 +1,106 @@
+package com.contare.rfid.dispatch;
+
+import com.contare.rfid.devices.RfidDevice;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+/**
+ * EventPublisher
+ * <p>
+ * - {@link Flow.Publisher} view of the device events, next to the single user callback.
+ * - Every subscriber gets its own bounded buffer and its own delivery task, and receives events only
+ * as far as it requested them.
+ * - When a subscriber buffer is full the publisher waits at most the subscriber timeout for room, then skips
+ * the event for that subscriber only, counted as a subscriber drop. The device backpressure never applies
+ * here: with a zero timeout a subscriber that stops requesting never delays the others, the user callback
+ * or the sdk threads; with a positive one it delays each event by at most the timeout.
+ * - Subscribers run on the common fork join pool (a thread per subscriber task if it has no parallelism),
+ * never on the device executor, so the dispatch task can wait for them without starving them.
+ */
+public final class EventPublisher implements Flow.Publisher<RfidDevice.Event>, AutoCloseable {
+
+    private final SubmissionPublisher<RfidDevice.Event> publisher;
+    private final long timeoutNanos;
+    private final DispatchCounters counters;
+    private final BiPredicate<Flow.Subscriber<? super RfidDevice.Event>, RfidDevice.Event> onDrop;
+
+    /**
+     * @param bufferSize   - maximum number of events buffered per subscriber.
+     * @param timeoutNanos - nanoseconds to wait for room in a full subscriber buffer before skipping the
+     *                     event for that subscriber, 0 to skip it at once.
+     * @param counters     - counters updated by the publisher.
+     */
+    public EventPublisher(final int bufferSize, final long timeoutNanos, final DispatchCounters counters) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("'bufferSize' must be positive");
+        }
+        if (timeoutNanos < 0) {
+            throw new IllegalArgumentException("'timeoutNanos' must not be negative");
+        }
+        this.publisher = new SubmissionPublisher<>(subscriberExecutor(), bufferSize);
+        this.timeoutNanos = timeoutNanos;
+        this.counters = Objects.requireNonNull(counters, "counters must not be null");
+        this.onDrop = (subscriber, dropped) -> {
+            counters.subscriberDrops.increment();
+            return false;
+        };
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super RfidDevice.Event> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    public boolean hasSubscribers() {
+        return publisher.hasSubscribers();
+    }
+
+    public int getNumberOfSubscribers() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    public boolean isClosed() {
+        return publisher.isClosed();
+    }
+
+    /**
+     * Hands an event to every current subscriber.
+     *
+     * @param event - event to publish.
+     */
+    public void publish(final RfidDevice.Event event) {
+        if (!publisher.hasSubscribers()) return;
+        try {
+            if (timeoutNanos > 0) {
+                publisher.offer(event, timeoutNanos, TimeUnit.NANOSECONDS, onDrop);
+            } else {
+                publisher.offer(event, onDrop);
+            }
+        } catch (IllegalStateException e) {
+            // closed concurrently, subscribers were already completed
+        }
+    }
+
+    /**
+     * Completes every subscriber once it consumed the events already published.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+
+    // HELPERS
+    private static Executor subscriberExecutor() {
+        if (ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return ForkJoinPool.commonPool();
+        }
+        return (task) -> new Thread(task, "rfid-subscriber").start();
+    }
+
+}
@@ -0,0 +1,332 @@
+package com.contare.rfid.dispatch;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * EventQueue
+ * <p>
+ * - Bounded queue between the SDK threads and the user executor; at most one drain task is queued on the
+ * executor at any time, so a slow callback can no longer grow the executor queue without limit.
+ * - Tag events count against the capacity and follow the {@link RfidDevice.Backpressure} policy once it is
+ * reached. Status, battery and error events are always accepted.
+ * - Events are delivered in order, one drain task at a time.
+ */
+public final class EventQueue implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(EventQueue.class);
+
+    private static final int DRAIN_LIMIT = 256;
+
+    private final Executor executor;
+    private final Consumer<? super RfidDevice.Event> sink;
+    private final RfidDevice.Backpressure policy;
+    private final int capacity;
+    private final Path spillDirectory;
+    private final DispatchCounters counters;
+    private final Runnable drainTask = this::drain;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();    // events and coalesced tags, guarded by lock
+    private final Map<Epc, Coalesced> pending;                      // coalesce: queued tag per epc, guarded by lock
+    private SpillFile spill;                                        // spill: created on first use, guarded by lock
+    private boolean draining;                                       // a drain task is queued or running, guarded by lock
+
+    private volatile Thread drainer;
+
+    /**
+     * @param executor       - executor that runs the drain task.
+     * @param sink           - consumer of every event, runs on the executor.
+     * @param policy         - what to do with tag events once the queue is full.
+     * @param capacity       - maximum number of queued tag events.
+     * @param spillDirectory - directory of the spill file, null for the temporary directory.
+     * @param counters       - counters updated by the queue.
+     */
+    public EventQueue(final Executor executor,
+                      final Consumer<? super RfidDevice.Event> sink,
+                      final RfidDevice.Backpressure policy,
+                      final int capacity,
+                      final String spillDirectory,
+                      final DispatchCounters counters) {
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        this.sink = Objects.requireNonNull(sink, "sink must not be null");
+        this.policy = Objects.requireNonNull(policy, "policy must not be null");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("'capacity' must be positive");
+        }
+        this.capacity = capacity;
+        this.spillDirectory = Paths.get((spillDirectory != null) ? spillDirectory : System.getProperty("java.io.tmpdir"));
+        this.counters = Objects.requireNonNull(counters, "counters must not be null");
+        this.pending = (policy == RfidDevice.Backpressure.COALESCE) ? new HashMap<>() : null;
+    }
+
+    public RfidDevice.Backpressure getPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of events waiting in memory.
+     *
+     * @return the number of queued events.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues an event, applying the backpressure policy to tag events when the queue is full.
+     *
+     * @param event - event to deliver.
+     */
+    public void offer(final RfidDevice.Event event) {
+        final boolean tag = isTag(event);
+        if (tag) {
+            counters.offered.increment();
+        }
+        final boolean schedule;
+        lock.lock();
+        try {
+            if (tag) {
+                enqueue(event);
+            } else {
+                queue.add(event);
+            }
+            schedule = !draining && (!queue.isEmpty() || (spill != null && !spill.isEmpty()));
+            if (schedule) {
+                draining = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (schedule) {
+            submit();
+        }
+    }
+
+    /**
+     * Releases the spill file; spilled events not delivered yet are counted as dropped.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (spill == null) return;
+            counters.dropped.add(spill.size());
+            try {
+                spill.close();
+            } catch (IOException e) {
+                logger.warnf(e, "Error while closing spill file '%s'.", spill.getPath());
+            }
+            spill = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // HELPERS
+    private void enqueue(final RfidDevice.Event event) {
+        if (policy == RfidDevice.Backpressure.COALESCE && event instanceof RfidDevice.TagEvent) {
+            final RfidDevice.TagEvent tagEvent = (RfidDevice.TagEvent) event;
+            final Epc epc = tagEvent.getTag().getEpc();
+            final Coalesced queued = pending.get(epc);
+            if (queued != null) {
+                // still waiting for the callback: the newest read replaces it in place, with its own stamp
+                queued.event = tagEvent;
+                counters.coalesced.increment();
+                return;
+            }
+            if (queue.size() >= capacity) {
+                counters.dropped.increment();
+                return;
+            }
+            final Coalesced entry = new Coalesced(tagEvent);
+            pending.put(epc, entry);
+            queue.add(entry);
+            return;
+        }
+
+        if (policy == RfidDevice.Backpressure.SPILL && spill != null && !spill.isEmpty()) {
+            // older events are on disk, keep the order
+            spill(event);
+            return;
+        }
+
+        if (queue.size() < capacity) {
+            queue.add(event);
+            return;
+        }
+
+        switch (policy) {
+            case BLOCK:
+                if (Thread.currentThread() == drainer) {
+                    // published from the callback itself, waiting would never end
+                    queue.add(event);
+                    return;
+                }
+                counters.blocked.increment();
+                while (queue.size() >= capacity) {
+                    try {
+                        notFull.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        counters.dropped.increment();
+                        return;
+                    }
+                }
+                queue.add(event);
+                break;
+            case DROP_OLDEST:
+                removeOldestTag();
+                counters.dropped.increment();
+                queue.add(event);
+                break;
+            case SPILL:
+                spill(event);
+                break;
+            case DROP_NEWEST:
+            case COALESCE:
+            default:
+                counters.dropped.increment();
+                break;
+        }
+    }
+
+    private void removeOldestTag() {
+        final Iterator<Object> it = queue.iterator();
+        while (it.hasNext()) {
+            final Object entry = it.next();
+            if (entry instanceof RfidDevice.Event && !isTag((RfidDevice.Event) entry)) continue;
+            it.remove();
+            return;
+        }
+    }
+
+    private void spill(final RfidDevice.Event event) {
+        try {
+            if (spill == null) {
+                spill = new SpillFile(spillDirectory);
+            }
+            spill.write(event);
+            counters.spilled.increment();
+        } catch (IOException e) {
+            logger.errorf(e, "Error while spilling '%s' to disk.", event);
+            counters.dropped.increment();
+        }
+    }
+
+    // refills the queue from the spill file, oldest first
+    private Object refill() {
+        if (spill == null) return null;
+        try {
+            final int target = Math.max(1, capacity / 2);
+            RfidDevice.Event event;
+            while (queue.size() < target && (event = spill.read()) != null) {
+                queue.add(event);
+            }
+        } catch (IOException e) {
+            logger.errorf(e, "Error while reading spill file '%s', its events are lost.", spill.getPath());
+            close();
+        }
+        return queue.poll();
+    }
+
+    private void submit() {
+        try {
+            executor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            lock.lock();
+            try {
+                draining = false;
+            } finally {
+                lock.unlock();
+            }
+            logger.errorf(e, "Executor rejected the dispatch of %d events.", size());
+        }
+    }
+
+    private void drain() {
+        drainer = Thread.currentThread();
+        try {
+            for (int i = 0; i < DRAIN_LIMIT; i++) {
+                final RfidDevice.Event event;
+                lock.lock();
+                try {
+                    Object entry = queue.poll();
+                    if (entry == null) {
+                        entry = refill();
+                    }
+                    if (entry == null) {
+                        draining = false;
+                        return;
+                    }
+                    if (entry instanceof Coalesced) {
+                        event = ((Coalesced) entry).event;
+                        pending.remove(((Coalesced) entry).event.getTag().getEpc());
+                    } else {
+                        event = (RfidDevice.Event) entry;
+                    }
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+                deliver(event);
+            }
+        } finally {
+            drainer = null;
+        }
+        // more events pending: give the executor thread back and continue in a new task
+        submit();
+    }
+
+    private void deliver(final RfidDevice.Event event) {
+        try {
+            sink.accept(event);
+        } catch (Exception e) {
+            logger.errorf(e, "Error while dispatching '%s'.", event);
+        }
+        if (isTag(event)) {
+            counters.delivered.increment();
+        }
+    }
+
+    private static boolean isTag(final RfidDevice.Event event) {
+        return event instanceof RfidDevice.TagEvent || event instanceof RfidDevice.TagBatchEvent;
+    }
+
+    // NESTED TYPES
+    private static final class Coalesced {
+
+        private RfidDevice.TagEvent event;  // guarded by the queue lock
+
+        private Coalesced(final RfidDevice.TagEvent event) {
+            this.event = event;
+        }
+
+    }
+
+}
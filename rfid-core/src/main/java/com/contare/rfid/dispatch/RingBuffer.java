@@ -0,0 +1,205 @@
+package com.contare.rfid.dispatch;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * RingBuffer
+ * <p>
+ * - Preallocated bounded ring that hands references from producer threads to a single consumer thread.
+ * - Sequence based: producers claim a sequence, store the entry and publish the sequence; the consumer
+ * drains every published sequence in one batch and then releases the slots by moving its own sequence.
+ * - Single producer mode claims with plain writes, multi producer mode claims with a CAS on the cursor
+ * and publishes through a per-slot availability array, so producers never wait on each other's stores.
+ * - No locks and no allocation on the hand off path.
+ *
+ * @param <E> entry type.
+ */
+public final class RingBuffer<E> {
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Object[] entries;
+    private final int capacity;
+    private final int mask;
+    private final int shift;
+    private final boolean multiProducer;
+    private final WaitStrategy producerWait;
+
+    private final Sequence cursor = new Sequence(-1);       // multi: last claimed, single: last published
+    private final Sequence consumed = new Sequence(-1);     // last sequence released by the consumer
+    private final Sequence gatingCache = new Sequence(-1);  // multi: producers' cached copy of consumed
+    private final int[] available;                          // multi: round of the last publish per slot
+
+    // single producer state, only touched by the producer thread
+    private long claimed = -1;
+    private long cachedConsumed = -1;
+
+    /**
+     * @param capacity      - number of slots, rounded up to a power of two.
+     * @param multiProducer - true if more than one thread publishes.
+     * @param producerWait  - strategy used by {@link #put(Object)} while the ring is full.
+     */
+    public RingBuffer(final int capacity, final boolean multiProducer, final WaitStrategy producerWait) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("'capacity' must be between 1 and 2^30");
+        }
+        this.capacity = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(this.capacity);
+        this.entries = new Object[this.capacity];
+        this.multiProducer = multiProducer;
+        this.producerWait = Objects.requireNonNull(producerWait, "producerWait must not be null");
+        if (multiProducer) {
+            this.available = new int[this.capacity];
+            for (int i = 0; i < this.capacity; i++) {
+                AVAILABLE.setRelease(available, i, -1);
+            }
+        } else {
+            this.available = null;
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isMultiProducer() {
+        return multiProducer;
+    }
+
+    /**
+     * Returns the number of claimed slots not yet released by the consumer (approximate under contention).
+     *
+     * @return the number of pending entries.
+     */
+    public int size() {
+        final long value = cursor.get() - consumed.get();
+        return (int) Math.max(0, Math.min(capacity, value));
+    }
+
+    /**
+     * Publishes an entry if there is a free slot, never waits.
+     *
+     * @param entry - entry to publish.
+     * @return false if the ring is full.
+     */
+    public boolean offer(final E entry) {
+        Objects.requireNonNull(entry, "entry must not be null");
+        final long sequence = multiProducer ? tryClaimMulti() : tryClaimSingle();
+        if (sequence < 0) {
+            return false;
+        }
+        publish(sequence, entry);
+        return true;
+    }
+
+    /**
+     * Publishes an entry, idling with the producer wait strategy while the ring is full.
+     *
+     * @param entry - entry to publish.
+     */
+    public void put(final E entry) {
+        Objects.requireNonNull(entry, "entry must not be null");
+        int iteration = 0;
+        long sequence;
+        while ((sequence = multiProducer ? tryClaimMulti() : tryClaimSingle()) < 0) {
+            producerWait.idle(iteration++);
+        }
+        publish(sequence, entry);
+    }
+
+    /**
+     * Hands every published entry, up to the limit, to the handler. Only one thread may drain.
+     * <p>
+     * If the handler throws, the entry that failed is released and the exception propagates.
+     *
+     * @param handler - entry handler.
+     * @param limit   - maximum number of entries to drain.
+     * @return the number of entries drained.
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(final Consumer<? super E> handler, final int limit) {
+        final long next = consumed.getPlain() + 1;
+        long last = highestPublished(next);
+        if (last < next) {
+            return 0;
+        }
+        if (last - next >= limit) {
+            last = next + limit - 1;
+        }
+
+        long sequence = next;
+        try {
+            for (; sequence <= last; sequence++) {
+                final int index = (int) sequence & mask;
+                final E entry = (E) entries[index];
+                entries[index] = null;
+                handler.accept(entry);
+            }
+        } finally {
+            consumed.set(Math.min(sequence, last));
+        }
+        return (int) (last - next + 1);
+    }
+
+    // HELPERS
+    private long tryClaimSingle() {
+        final long next = claimed + 1;
+        final long wrap = next - capacity;
+        if (wrap > cachedConsumed) {
+            cachedConsumed = consumed.get();
+            if (wrap > cachedConsumed) {
+                return -1;
+            }
+        }
+        claimed = next;
+        return next;
+    }
+
+    private long tryClaimMulti() {
+        long current;
+        long next;
+        do {
+            current = cursor.get();
+            next = current + 1;
+            final long wrap = next - capacity;
+            long gate = gatingCache.get();
+            if (wrap > gate) {
+                gate = consumed.get();
+                if (wrap > gate) {
+                    return -1;
+                }
+                gatingCache.set(gate);
+            }
+        } while (!cursor.compareAndSet(current, next));
+        return next;
+    }
+
+    private void publish(final long sequence, final E entry) {
+        final int index = (int) sequence & mask;
+        entries[index] = entry;
+        if (multiProducer) {
+            AVAILABLE.setRelease(available, index, (int) (sequence >>> shift));
+        } else {
+            cursor.set(sequence);
+        }
+    }
+
+    private long highestPublished(final long from) {
+        final long claimedUpTo = cursor.get();
+        if (!multiProducer) {
+            return claimedUpTo;
+        }
+        for (long sequence = from; sequence <= claimedUpTo; sequence++) {
+            final int round = (int) AVAILABLE.getAcquire(available, (int) sequence & mask);
+            if (round != (int) (sequence >>> shift)) {
+                return sequence - 1;
+            }
+        }
+        return claimedUpTo;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.contare.rfid.dispatch;
+
+import org.jboss.logging.Logger;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * RingDispatcher
+ * <p>
+ * - Owns a {@link RingBuffer} and the consumer thread that drains it into a handler.
+ * - SDK threads publish events into the ring, the handler always runs on the consumer thread, in
+ * publication order.
+ * - Also accepts plain tasks ({@link Executor}), for the few hand offs that are not events.
+ * - A failing handler is logged, it never stops the consumer thread.
+ * - Once closed, publishing fails fast instead of waiting for a consumer that is gone; events published
+ * by producers that entered before the close are still handled.
+ *
+ * @param <E> event type.
+ */
+public final class RingDispatcher<E> implements Executor, AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(RingDispatcher.class);
+
+    private static final int DRAIN_LIMIT = 256;
+
+    private final RingBuffer<Object> ring;
+    private final WaitStrategy wait;
+    private final Consumer<? super E> handler;
+    private final Consumer<Object> consumer = this::consume;
+    private final Thread thread;
+
+    private final LongAdder producers = new LongAdder();    // threads inside publish, offer or execute
+
+    private volatile boolean running = true;
+
+    /**
+     * @param name     - consumer thread name.
+     * @param ring     - ring buffer, owned by the dispatcher from now on.
+     * @param wait     - strategy used by the consumer thread while the ring is empty.
+     * @param handler  - event handler.
+     */
+    public RingDispatcher(final String name, final RingBuffer<Object> ring, final WaitStrategy wait, final Consumer<? super E> handler) {
+        this.ring = Objects.requireNonNull(ring, "ring must not be null");
+        this.wait = Objects.requireNonNull(wait, "wait must not be null");
+        this.handler = Objects.requireNonNull(handler, "handler must not be null");
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the consumer thread.
+     *
+     * @return this dispatcher.
+     */
+    public RingDispatcher<E> start() {
+        thread.start();
+        return this;
+    }
+
+    public RingBuffer<Object> getRing() {
+        return ring;
+    }
+
+    public boolean isClosed() {
+        return !running;
+    }
+
+    /**
+     * Publishes an event, waiting while the ring is full.
+     *
+     * @param event - event to publish.
+     * @return false if the dispatcher is closed, the event was not published.
+     */
+    public boolean publish(final E event) {
+        return put(event);
+    }
+
+    /**
+     * Publishes an event if there is room for it, never waits.
+     *
+     * @param event - event to publish.
+     * @return false if the ring is full or the dispatcher is closed.
+     */
+    public boolean offer(final E event) {
+        producers.increment();
+        try {
+            return running && ring.offer(event);
+        } finally {
+            producers.decrement();
+        }
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        if (!put(task)) {
+            throw new RejectedExecutionException("dispatcher is closed");
+        }
+    }
+
+    /**
+     * Stops the consumer thread once every published event has been handled (waits up to 1 second).
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() != thread && thread.isAlive()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // HELPERS
+    private void run() {
+        int iteration = 0;
+        while (running) {
+            if (ring.drain(consumer, DRAIN_LIMIT) > 0) {
+                iteration = 0;
+            } else {
+                wait.idle(iteration++);
+            }
+        }
+        // deliver whatever was published before close, producers still inside publish see it closed or get in
+        boolean pending;
+        int drained;
+        do {
+            pending = producers.sum() != 0;
+            drained = ring.drain(consumer, DRAIN_LIMIT);
+            if (pending && drained == 0) {
+                Thread.onSpinWait();
+            }
+        } while (pending || drained > 0);
+    }
+
+    private boolean put(final Object entry) {
+        producers.increment();
+        try {
+            for (int iteration = 0; running; iteration++) {
+                if (ring.offer(entry)) return true;
+                wait.idle(iteration);
+            }
+            return false;
+        } finally {
+            producers.decrement();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void consume(final Object entry) {
+        try {
+            if (entry instanceof Runnable) {
+                ((Runnable) entry).run();
+            } else {
+                handler.accept((E) entry);
+            }
+        } catch (Exception e) {
+            logger.errorf(e, "Error while dispatching '%s'.", entry);
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.contare.rfid.dispatch;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Sequence
+ * <p>
+ * - Padded long counter used by the ring buffer cursors.
+ * - The padding keeps producer and consumer sequences on different cache lines (no false sharing).
+ */
+@SuppressWarnings("unused")
+final class Sequence extends SequenceValue {
+
+    // right hand side padding
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    Sequence(final long initial) {
+        VALUE.setRelease(this, initial);
+    }
+
+    long get() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    long getPlain() {
+        return value;
+    }
+
+    void set(final long next) {
+        VALUE.setRelease(this, next);
+    }
+
+    boolean compareAndSet(final long expected, final long next) {
+        return VALUE.compareAndSet(this, expected, next);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+
+}
+
+@SuppressWarnings("unused")
+abstract class SequencePadding {
+
+    // left hand side padding
+    private long p1, p2, p3, p4, p5, p6, p7;
+
+}
+
+abstract class SequenceValue extends SequencePadding {
+
+    static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    protected volatile long value;
+
+}
@@ -0,0 +1,229 @@
+package com.contare.rfid.dispatch;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SpillFile
+ * <p>
+ * - FIFO of tag events on disk, used by the spill policy once the in-memory queue is full.
+ * - Records are length prefixed: {@code [int length][byte type][payload]}; a tag is its EPC bytes, RSSI,
+ * antenna, capture time and TID.
+ * - The queue latency stamp of a {@link StampedTagEvent} and the open/close times of a {@link TagBatcher.Batch}
+ * are written with the event; the batcher a batch reports its delivery to is kept in memory, in record order,
+ * so both come back as the event that was spilled.
+ * - The file is truncated every time the reader catches up with the writer.
+ * - Not thread safe, the owning queue serializes every call.
+ */
+final class SpillFile implements AutoCloseable {
+
+    private static final byte TAG = 1;
+    private static final byte BATCH = 2;
+    private static final byte STAMPED_TAG = 3;
+    private static final byte BATCHER_BATCH = 4;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    private ByteBuffer buffer = ByteBuffer.allocate(4_096);
+    private final ArrayDeque<TagBatcher> batchers = new ArrayDeque<>();    // of the spilled batcher batches, oldest first
+
+    private long writePosition;
+    private long readPosition;
+    private long count;
+
+    SpillFile(final Path directory) throws IOException {
+        this.path = Files.createTempFile(directory, "rfid-spill-", ".bin");
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    long size() {
+        return count;
+    }
+
+    /**
+     * Appends a tag event or a batch of tags.
+     *
+     * @param event - event to write.
+     * @return false if the event type cannot be spilled.
+     */
+    boolean write(final RfidDevice.Event event) throws IOException {
+        buffer.clear();
+        buffer.position(Integer.BYTES);
+        TagBatcher batcher = null;
+        if (event instanceof StampedTagEvent) {
+            ensure(1 + Long.BYTES);
+            buffer.put(STAMPED_TAG);
+            buffer.putLong(((StampedTagEvent) event).getDispatchedAt());
+            encode(((RfidDevice.TagEvent) event).getTag());
+        } else if (event instanceof RfidDevice.TagEvent) {
+            ensure(1);
+            buffer.put(TAG);
+            encode(((RfidDevice.TagEvent) event).getTag());
+        } else if (event instanceof RfidDevice.TagBatchEvent) {
+            final List<TagMetadata> tags = ((RfidDevice.TagBatchEvent) event).getTags();
+            if (event instanceof TagBatcher.Batch) {
+                final TagBatcher.Batch batch = (TagBatcher.Batch) event;
+                batcher = batch.getBatcher();
+                ensure(1 + 2 * Long.BYTES + 1);
+                buffer.put(BATCHER_BATCH);
+                buffer.putLong(batch.getOpenedAt());
+                buffer.putLong(batch.getClosedAt());
+                buffer.put((byte) (batch.isFull() ? 1 : 0));
+            } else {
+                ensure(1);
+                buffer.put(BATCH);
+            }
+            ensure(Integer.BYTES);
+            buffer.putInt(tags.size());
+            for (TagMetadata tag : tags) {
+                encode(tag);
+            }
+        } else {
+            return false;
+        }
+        buffer.putInt(0, buffer.position() - Integer.BYTES);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+        if (batcher != null) {
+            batchers.add(batcher);
+        }
+        count++;
+        return true;
+    }
+
+    /**
+     * Reads the oldest event.
+     *
+     * @return the event, or null if the file is empty.
+     */
+    RfidDevice.Event read() throws IOException {
+        if (count == 0) {
+            return null;
+        }
+        header.clear();
+        readFully(header, readPosition);
+        final int length = header.getInt(0);
+        buffer.clear();
+        ensure(length);
+        buffer.limit(length);
+        readFully(buffer, readPosition + Integer.BYTES);
+        buffer.flip();
+        readPosition += Integer.BYTES + length;
+
+        if (--count == 0) {
+            // caught up with the writer, start over
+            channel.truncate(0);
+            readPosition = 0;
+            writePosition = 0;
+        }
+
+        final byte type = buffer.get();
+        if (type == TAG) {
+            return new RfidDevice.TagEvent(decode());
+        } else if (type == STAMPED_TAG) {
+            final long dispatchedAt = buffer.getLong();
+            return new StampedTagEvent(decode(), dispatchedAt);
+        }
+        long openedAt = 0;
+        long closedAt = 0;
+        boolean full = false;
+        if (type == BATCHER_BATCH) {
+            openedAt = buffer.getLong();
+            closedAt = buffer.getLong();
+            full = buffer.get() != 0;
+        }
+        final int size = buffer.getInt();
+        final List<TagMetadata> tags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tags.add(decode());
+        }
+        if (type == BATCHER_BATCH) {
+            return new TagBatcher.Batch(batchers.poll(), Collections.unmodifiableList(tags), openedAt, closedAt, full);
+        }
+        return new RfidDevice.TagBatchEvent(tags);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // HELPERS
+    private void encode(final TagMetadata tag) {
+        final byte[] epc = tag.getEpc().toBytes();
+        final String tid = tag.getTid();
+        final byte[] tidBytes = (tid != null) ? tid.getBytes(StandardCharsets.US_ASCII) : null;
+        ensure(1 + epc.length + Short.BYTES + Integer.BYTES + Long.BYTES + Short.BYTES + ((tidBytes != null) ? tidBytes.length : 0));
+        buffer.put((byte) epc.length);
+        buffer.put(epc);
+        buffer.putShort(tag.getRssi());
+        buffer.putInt(tag.getAntenna());
+        buffer.putLong(tag.getNanos());
+        if (tidBytes != null) {
+            buffer.putShort((short) tidBytes.length);
+            buffer.put(tidBytes);
+        } else {
+            buffer.putShort((short) -1);
+        }
+    }
+
+    private TagMetadata decode() {
+        final byte[] epc = new byte[buffer.get() & 0xFF];
+        buffer.get(epc);
+        final short rssi = buffer.getShort();
+        final int antenna = buffer.getInt();
+        final long nanos = buffer.getLong();
+        final short tidLength = buffer.getShort();
+        String tid = null;
+        if (tidLength >= 0) {
+            final byte[] tidBytes = new byte[tidLength];
+            buffer.get(tidBytes);
+            tid = new String(tidBytes, StandardCharsets.US_ASCII);
+        }
+        return new TagMetadata(Epc.of(epc), tid, rssi, antenna, nanos);
+    }
+
+    private void ensure(final int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        final int required = buffer.position() + bytes;
+        final ByteBuffer grown = ByteBuffer.allocate(Math.max(required, buffer.capacity() * 2));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    private void readFully(final ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            final int n = channel.read(dst, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of spill file '" + path + "'");
+            }
+            position += n;
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.contare.rfid.dispatch;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.TagMetadata;
+
+/**
+ * StampedTagEvent
+ * <p>
+ * - Tag event stamped when handed to the dispatch path, for the queue latency of devices tracking it.
+ * - The stamp survives coalescing and spilling, so a delayed event still measures its whole wait.
+ */
+public final class StampedTagEvent extends RfidDevice.TagEvent {
+
+    private final long dispatchedAt;
+
+    /**
+     * @param tag          - tag read.
+     * @param dispatchedAt - {@link System#nanoTime()} when the event entered the dispatch path.
+     */
+    public StampedTagEvent(final TagMetadata tag, final long dispatchedAt) {
+        super(tag);
+        this.dispatchedAt = dispatchedAt;
+    }
+
+    public long getDispatchedAt() {
+        return dispatchedAt;
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.contare.rfid.dispatch;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.TagMetadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * TagBatcher
+ * <p>
+ * - Coalesces tag reads into {@link Batch} events, like a vendor tag report.
+ * - A batch is handed to the sink when it reaches the current size limit, or when its oldest read has
+ * waited half of the latency target (linger). The sink routes it like any other event.
+ * - The size limit adapts to the delivery latency (first read to {@link Batch#delivered()}, called once
+ * the user callback returned): additive increase while full batches are delivered well within the target,
+ * multiplicative decrease when the target is missed.
+ * - Thread safe, SDK threads may add concurrently.
+ */
+public final class TagBatcher {
+
+    // one daemon thread shared by every batcher, it only flushes batches that lingered too long
+    private static final ScheduledExecutorService LINGER = Executors.newSingleThreadScheduledExecutor((r) -> {
+        final Thread t = new Thread(r, "rfid-batch-linger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Consumer<? super Batch> sink;
+    private final int maxBatch;
+    private final long targetNanos;
+    private final long lingerNanos;
+    private final int step;
+
+    private final Object lock = new Object();
+    private List<TagMetadata> batch;    // guarded by lock, null when no batch is open
+    private long openedAt;              // guarded by lock
+    private long generation;            // guarded by lock
+
+    private volatile int limit;
+
+    /**
+     * @param sink        - consumer of every batch, called on the thread that closed the batch.
+     * @param maxBatch    - maximum number of tags per batch.
+     * @param targetNanos - delivery latency target in nanoseconds.
+     */
+    public TagBatcher(final Consumer<? super Batch> sink, final int maxBatch, final long targetNanos) {
+        this.sink = Objects.requireNonNull(sink, "sink must not be null");
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("'maxBatch' must be positive");
+        }
+        if (targetNanos <= 0) {
+            throw new IllegalArgumentException("'targetNanos' must be positive");
+        }
+        this.maxBatch = maxBatch;
+        this.targetNanos = targetNanos;
+        this.lingerNanos = Math.max(1, targetNanos / 2);
+        this.step = Math.max(1, maxBatch / 16);
+        this.limit = maxBatch;
+    }
+
+    /**
+     * Returns the current batch size limit.
+     *
+     * @return the current batch size limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Adds a tag to the open batch, delivering it if it is full.
+     *
+     * @param tag - tag to deliver.
+     */
+    public void add(final TagMetadata tag) {
+        List<TagMetadata> full = null;
+        long opened = 0;
+        synchronized (lock) {
+            if (batch == null) {
+                open();
+            }
+            batch.add(tag);
+            if (batch.size() >= limit) {
+                full = batch;
+                opened = openedAt;
+                batch = null;
+            }
+        }
+        if (full != null) {
+            submit(full, opened, true);
+        }
+    }
+
+    /**
+     * Adds many tags, delivering every batch that fills up.
+     *
+     * @param tags - tags to deliver.
+     */
+    public void addAll(final List<TagMetadata> tags) {
+        for (TagMetadata tag : tags) {
+            add(tag);
+        }
+    }
+
+    /**
+     * Delivers the open batch now, if any.
+     */
+    public void flush() {
+        final List<TagMetadata> pending;
+        final long opened;
+        synchronized (lock) {
+            pending = batch;
+            opened = openedAt;
+            batch = null;
+        }
+        if (pending != null) {
+            submit(pending, opened, false);
+        }
+    }
+
+    // HELPERS
+    private void open() {
+        batch = new ArrayList<>(limit);
+        openedAt = System.nanoTime();
+        final long current = ++generation;
+        LINGER.schedule(() -> linger(current), lingerNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void linger(final long expected) {
+        final List<TagMetadata> pending;
+        final long opened;
+        synchronized (lock) {
+            // the batch this timer was armed for was already delivered
+            if (generation != expected || batch == null) return;
+            pending = batch;
+            opened = openedAt;
+            batch = null;
+        }
+        submit(pending, opened, false);
+    }
+
+    private void submit(final List<TagMetadata> tags, final long opened, final boolean full) {
+        sink.accept(new Batch(this, Collections.unmodifiableList(tags), opened, System.nanoTime(), full));
+    }
+
+    private synchronized void adapt(final long latency, final boolean full) {
+        final int current = limit;
+        if (latency > targetNanos) {
+            limit = Math.max(1, current >>> 1);
+        } else if (full && latency < (targetNanos >>> 1)) {
+            limit = Math.min(maxBatch, current + step);
+        }
+    }
+
+    // NESTED TYPES
+
+    /**
+     * Batch of tags closed by a {@link TagBatcher}, delivered to the user callback as a {@link RfidDevice.TagBatchEvent}.
+     */
+    public static final class Batch extends RfidDevice.TagBatchEvent {
+
+        private final TagBatcher batcher;
+        private final long openedAt;
+        private final long closedAt;
+        private final boolean full;
+
+        // also used to rebuild a batch read back from a spill file, keeping its adaptation feedback
+        Batch(final TagBatcher batcher, final List<TagMetadata> tags, final long openedAt, final long closedAt, final boolean full) {
+            super(tags);
+            this.batcher = batcher;
+            this.openedAt = openedAt;
+            this.closedAt = closedAt;
+            this.full = full;
+        }
+
+        /**
+         * Returns the {@link System#nanoTime()} of the first read of the batch.
+         *
+         * @return the batch open time.
+         */
+        public long getOpenedAt() {
+            return openedAt;
+        }
+
+        /**
+         * Returns the {@link System#nanoTime()} when the batch was closed and handed to the dispatch path.
+         *
+         * @return the batch close time.
+         */
+        public long getClosedAt() {
+            return closedAt;
+        }
+
+        TagBatcher getBatcher() {
+            return batcher;
+        }
+
+        boolean isFull() {
+            return full;
+        }
+
+        /**
+         * Reports that the batch reached the user callback, feeding the batch size adaptation.
+         */
+        public void delivered() {
+            batcher.adapt(System.nanoTime() - openedAt, full);
+        }
+
+    }
+
+}
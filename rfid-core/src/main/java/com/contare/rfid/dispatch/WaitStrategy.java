@@ -0,0 +1,67 @@
+package com.contare.rfid.dispatch;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WaitStrategy
+ * <p>
+ * - What a ring buffer thread does while it has nothing to do: a consumer on an empty ring, or a
+ * producer on a full one.
+ * - Strategies never signal each other, so publishing never takes a lock or wakes a thread.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    /**
+     * Called once per idle iteration.
+     *
+     * @param iteration - number of consecutive idle iterations so far (0 on the first one).
+     */
+    void idle(final int iteration);
+
+    /**
+     * Spins on the cpu, lowest latency, burns a core while idle.
+     *
+     * @return the busy spin strategy.
+     */
+    static WaitStrategy busySpin() {
+        return (iteration) -> Thread.onSpinWait();
+    }
+
+    /**
+     * Spins for a while, then yields the cpu to other threads.
+     *
+     * @return the yielding strategy.
+     */
+    static WaitStrategy yielding() {
+        return (iteration) -> {
+            if (iteration < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        };
+    }
+
+    /**
+     * Spins, yields, then parks for the given time; the latency is bounded by the park time.
+     *
+     * @param parkNanos - park time in nanoseconds.
+     * @return the parking strategy.
+     */
+    static WaitStrategy parking(final long parkNanos) {
+        if (parkNanos <= 0) {
+            throw new IllegalArgumentException("'parkNanos' must be positive");
+        }
+        return (iteration) -> {
+            if (iteration < 100) {
+                Thread.onSpinWait();
+            } else if (iteration < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        };
+    }
+
+}
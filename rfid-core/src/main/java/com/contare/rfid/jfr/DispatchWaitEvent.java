@@ -0,0 +1,41 @@
+package com.contare.rfid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * DispatchWaitEvent
+ * <p>
+ * - Time a reader thread spent handing an event to the dispatch queue or ring; only recorded above
+ * the threshold, i.e. when it waited for room under {@code BLOCK} backpressure or for the spill file.
+ * - The stack trace shows which SDK callback was held up.
+ */
+@Name(DispatchWaitEvent.NAME)
+@Label("Dispatch Wait")
+@Category({ "RFID", "Dispatch" })
+@Description("Reader thread waiting to hand an event to the user callback queue")
+@StackTrace(true)
+@Threshold("1 ms")
+public final class DispatchWaitEvent extends Event {
+
+    public static final String NAME = "com.contare.rfid.DispatchWait";
+
+    @Label("Reader Id")
+    public int reader;
+
+    @Label("Device")
+    public String device;
+
+    @Label("Event Type")
+    public String eventType;
+
+    @Label("Queue Depth")
+    @Description("Events waiting for the user callback after the hand over")
+    public int queueDepth;
+
+}
@@ -0,0 +1,42 @@
+package com.contare.rfid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * SdkCallEvent
+ * <p>
+ * - One control-plane call into a vendor SDK ({@code applySettings}, {@code paramSet},
+ * {@code setPower}, {@code startInventoryTag}, ...), timed from before the call until it returned or
+ * threw.
+ * - Started and committed by {@link com.contare.rfid.devices.BufferedRfidDevice#beginSdkCall(String)}
+ * and {@code endSdkCall}; costs a couple of branches while no recording is running.
+ */
+@Name(SdkCallEvent.NAME)
+@Label("SDK Call")
+@Category({ "RFID", "SDK" })
+@Description("Control-plane call into a vendor reader SDK")
+@StackTrace(false)
+public final class SdkCallEvent extends Event {
+
+    public static final String NAME = "com.contare.rfid.SdkCall";
+
+    @Label("Reader Id")
+    public int reader;
+
+    @Label("Device")
+    public String device;
+
+    @Label("Operation")
+    @Description("SDK method or command")
+    public String operation;
+
+    @Label("Succeeded")
+    @Description("False if the call threw or reported a failure")
+    public boolean succeeded;
+
+}
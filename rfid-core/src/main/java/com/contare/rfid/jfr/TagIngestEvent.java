@@ -0,0 +1,41 @@
+package com.contare.rfid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * TagIngestEvent
+ * <p>
+ * - One batch of reads handed over by a reader (an SDK tag report, a chunk of serial lines), timed
+ * from its arrival until every read was deduplicated and the new tags published.
+ * - A long ingest with few reads points at our own path (GC, dedup, a blocked dispatch), few reads
+ * per batch at the reader or the RF field.
+ */
+@Name(TagIngestEvent.NAME)
+@Label("Tag Ingest")
+@Category({ "RFID", "Reads" })
+@Description("Batch of reads deduplicated and published")
+@StackTrace(false)
+public final class TagIngestEvent extends Event {
+
+    public static final String NAME = "com.contare.rfid.TagIngest";
+
+    @Label("Reader Id")
+    public int reader;
+
+    @Label("Device")
+    public String device;
+
+    @Label("Reads")
+    @Description("Reads in the batch, duplicates included")
+    public int reads;
+
+    @Label("New Tags")
+    @Description("Reads that inserted a new tag into the buffer")
+    public int tags;
+
+}
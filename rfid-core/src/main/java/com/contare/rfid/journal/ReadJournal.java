@@ -0,0 +1,395 @@
+package com.contare.rfid.journal;
+
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.utils.Timestamps;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * ReadJournal
+ * <p>
+ * - Append-only journal of tag reads, written to memory-mapped segment files so the buffer can be rebuilt
+ * after the JVM dies: an append is a copy into the page cache, which survives a process crash.
+ * - Records are {@code [byte epc length][short rssi][short antenna][long epoch nanos][epc][int crc32c]},
+ * 29 bytes for a 96-bit EPC; a zero length byte marks the end of a segment, a bad checksum a torn write.
+ * - Group commit: a committer thread forces the written pages to disk every commit interval, so many
+ * reads share one {@code msync}; {@link #sync()} waits for the next one.
+ * - {@link #reset()} starts a new cycle, e.g. when the buffer is cleared, and deletes the previous ones.
+ * Replay starts at the first segment of the last cycle.
+ */
+public final class ReadJournal implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(ReadJournal.class);
+
+    /**
+     * Default segment size: 64 MiB, about 2.3 million 96-bit reads.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int MAGIC = 0x52464A4C;    // "RFJL"
+    private static final byte VERSION = 1;
+    private static final byte CYCLE_START = 1;      // flag of the first segment of a cycle
+    private static final int HEADER = 8;            // magic, version, flags, 2 reserved bytes
+    private static final int RECORD_HEADER = Byte.BYTES + Short.BYTES + Short.BYTES + Long.BYTES;
+    private static final int MAX_RECORD = RECORD_HEADER + Epc.MAX_LENGTH + Integer.BYTES;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long commitNanos;
+
+    // appenders, serialized by the lock; the scratch record is checksummed, then copied in one go
+    private final ReentrantLock lock = new ReentrantLock();
+    private final byte[] scratch = new byte[MAX_RECORD];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch).order(ByteOrder.BIG_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private volatile long appended;     // records appended, written under the lock
+
+    // group commit
+    private final Object commitMonitor = new Object();
+    private final Thread committer;
+    private volatile long committed;    // records forced to disk
+    private volatile boolean closed;
+
+    private ReadJournal(final Path directory, final int segmentSize, final long commitNanos) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.commitNanos = commitNanos;
+
+        final List<Path> segments = segments(directory);
+        final long last = segments.isEmpty() ? -1 : index(segments.get(segments.size() - 1));
+        // the cycle of a previous run goes on, it must survive another crash
+        this.segment = map(last + 1, segments.isEmpty());
+        this.segmentIndex = last + 1;
+
+        this.committer = new Thread(this::commitLoop, "rfid-journal-" + directory.getFileName());
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Opens the journal of a directory for appending, after the segments of a previous run.
+     *
+     * @param directory      - journal directory, created if missing.
+     * @param segmentSize    - size of a segment file in bytes.
+     * @param commitInterval - milliseconds between two forces to disk.
+     * @return the journal.
+     * @throws IOException if the directory or the first segment cannot be created.
+     */
+    public static ReadJournal open(final Path directory, final int segmentSize, final long commitInterval) throws IOException {
+        Objects.requireNonNull(directory, "directory must not be null");
+        if (segmentSize < HEADER + MAX_RECORD) {
+            throw new IllegalArgumentException("'segmentSize' must be at least " + (HEADER + MAX_RECORD) + " bytes");
+        }
+        if (commitInterval <= 0) {
+            throw new IllegalArgumentException("'commitInterval' must be positive");
+        }
+        Files.createDirectories(directory);
+        return new ReadJournal(directory, segmentSize, TimeUnit.MILLISECONDS.toNanos(commitInterval));
+    }
+
+    /**
+     * Replays the reads of the last cycle of a journal directory, oldest first.
+     * <p>
+     * A segment is read up to its first empty or corrupted record, i.e. a write torn by the crash.
+     *
+     * @param directory - journal directory.
+     * @param visitor   - called for every read.
+     * @return the number of reads replayed.
+     * @throws IOException if a segment cannot be read.
+     */
+    public static long replay(final Path directory, final Visitor visitor) throws IOException {
+        Objects.requireNonNull(visitor, "visitor must not be null");
+        if (!Files.isDirectory(directory)) return 0;
+        final List<Path> segments = segments(directory);
+
+        int first = 0;
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if ((flags(segments.get(i)) & CYCLE_START) != 0) {
+                first = i;
+                break;
+            }
+        }
+
+        final CRC32C crc = new CRC32C();
+        final byte[] epc = new byte[Epc.MAX_LENGTH];
+        long count = 0;
+        for (Path path : segments.subList(first, segments.size())) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.remaining() < HEADER || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+                    logger.warnf("Skipping journal segment '%s', bad header.", path);
+                    continue;
+                }
+                buffer.position(HEADER);
+                count += replay(path, buffer, crc, epc, visitor);
+            }
+        }
+        return count;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return number of reads appended since the journal was opened.
+     */
+    public long getAppended() {
+        return appended;
+    }
+
+    /**
+     * @return number of appended reads already forced to disk.
+     */
+    public long getCommitted() {
+        return committed;
+    }
+
+    /**
+     * Appends a read, returning once it is in the page cache; it reaches the disk with the next commit.
+     *
+     * @param epc     - tag epc.
+     * @param rssi    - rssi in centi-dBm.
+     * @param antenna - antenna port.
+     * @param nanos   - {@link System#nanoTime()} of the read.
+     */
+    public void append(final Epc epc, final short rssi, final int antenna, final long nanos) {
+        final int length = epc.length();
+        if (length == 0) return;
+        final long epochNanos = Timestamps.toEpochNanos(nanos);
+        lock.lock();
+        try {
+            if (closed) return;
+            record.clear();
+            record.put((byte) length).putShort(rssi).putShort((short) antenna).putLong(epochNanos);
+            final int end = epc.toBytes(scratch, RECORD_HEADER);
+            crc.reset();
+            crc.update(scratch, 0, end);
+            record.position(end);
+            record.putInt((int) crc.getValue());
+
+            final int size = end + Integer.BYTES;
+            if (segment.remaining() < size && !roll(false)) return;
+            segment.put(scratch, 0, size);
+            appended++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every read appended so far is forced to disk.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void sync() throws InterruptedException {
+        final long target = appended;
+        synchronized (commitMonitor) {
+            commitMonitor.notifyAll();
+            while (committed < target && !closed) {
+                commitMonitor.wait();
+            }
+        }
+    }
+
+    /**
+     * Starts a new cycle: replays will only see the reads appended from now on.
+     */
+    public void reset() {
+        lock.lock();
+        try {
+            if (closed || !roll(true)) return;
+        } finally {
+            lock.unlock();
+        }
+        // best effort, a leftover segment is skipped by the next replay
+        try {
+            for (Path path : segments(directory)) {
+                if (index(path) >= segmentIndex) continue;
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            logger.warnf(e, "Error while deleting old segments of journal '%s'.", directory);
+        }
+    }
+
+    /**
+     * Forces the pending reads to disk and stops the committer, the segments are kept for the next run.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            segment.force();
+            committed = appended;
+        } finally {
+            lock.unlock();
+        }
+        synchronized (commitMonitor) {
+            commitMonitor.notifyAll();
+        }
+        try {
+            committer.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // HELPERS
+    private void commitLoop() {
+        while (!closed) {
+            synchronized (commitMonitor) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(commitMonitor, commitNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            commit();
+        }
+    }
+
+    private void commit() {
+        final MappedByteBuffer current;
+        final long target;
+        lock.lock();
+        try {
+            if (closed || committed == appended) return;
+            current = segment;
+            target = appended;
+        } finally {
+            lock.unlock();
+        }
+        // writes racing the force are committed by the next one
+        current.force();
+        synchronized (commitMonitor) {
+            if (target > committed) {
+                committed = target;
+            }
+            commitMonitor.notifyAll();
+        }
+    }
+
+    // guarded by the lock: forces the full segment and maps the next one
+    private boolean roll(final boolean cycleStart) {
+        try {
+            final MappedByteBuffer next = map(segmentIndex + 1, cycleStart);
+            segment.force();
+            segment = next;
+            segmentIndex++;
+            return true;
+        } catch (IOException e) {
+            logger.errorf(e, "Error while creating segment %d of journal '%s', reads are not journaled.", segmentIndex + 1, directory);
+            return false;
+        }
+    }
+
+    private MappedByteBuffer map(final long index, final boolean cycleStart) throws IOException {
+        final Path path = directory.resolve(String.format("%s%016d%s", PREFIX, index, SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping outlives the channel, new pages are zero filled
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.putInt(MAGIC).put(VERSION).put(cycleStart ? CYCLE_START : 0).putShort((short) 0);
+            buffer.force();
+            return buffer;
+        }
+    }
+
+    private static long replay(final Path path, final ByteBuffer buffer, final CRC32C crc, final byte[] epc, final Visitor visitor) {
+        long count = 0;
+        while (buffer.remaining() > RECORD_HEADER) {
+            final int start = buffer.position();
+            final int length = buffer.get(start);
+            if (length == 0) break;
+            if (length < 0 || length > Epc.MAX_LENGTH || buffer.remaining() < RECORD_HEADER + length + Integer.BYTES) {
+                logger.warnf("Journal segment '%s' is corrupted at offset %d.", path, start);
+                break;
+            }
+            final int end = start + RECORD_HEADER + length;
+            final ByteBuffer slice = buffer.duplicate();
+            slice.position(start).limit(end);
+            crc.reset();
+            crc.update(slice);
+            if ((int) crc.getValue() != buffer.getInt(end)) {
+                logger.warnf("Journal segment '%s' ends with a torn record at offset %d.", path, start);
+                break;
+            }
+            final short rssi = buffer.getShort(start + 1);
+            final int antenna = buffer.getShort(start + 3);
+            final long epochNanos = buffer.getLong(start + 5);
+            buffer.position(start + RECORD_HEADER);
+            buffer.get(epc, 0, length);
+            visitor.onRead(Epc.of(epc, 0, length), rssi, antenna, Timestamps.fromEpochNanos(epochNanos));
+            buffer.position(end + Integer.BYTES);
+            count++;
+        }
+        return count;
+    }
+
+    private static List<Path> segments(final Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream
+                .filter((path) -> {
+                    final String name = path.getFileName().toString();
+                    return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static long index(final Path path) {
+        final String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static byte flags(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            return (header.position() == HEADER && header.getInt(0) == MAGIC) ? header.get(5) : 0;
+        }
+    }
+
+    // NESTED TYPES
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Called for every replayed read.
+         *
+         * @param epc     - tag epc.
+         * @param rssi    - rssi in centi-dBm.
+         * @param antenna - antenna port.
+         * @param nanos   - {@link System#nanoTime()} equivalent of the original read time.
+         */
+        void onRead(Epc epc, short rssi, int antenna, long nanos);
+
+    }
+
+}
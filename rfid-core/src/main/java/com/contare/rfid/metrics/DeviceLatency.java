@@ -0,0 +1,133 @@
+package com.contare.rfid.metrics;
+
+/**
+ * DeviceLatency
+ * <p>
+ * - Read latency histograms of one device, one per {@link Stage}, recorded when the device is connected
+ * with {@code trackLatency}.
+ * - Reads are stamped when the SDK callback fires and again when handed to the user callback; the stages
+ * in between tell where the time went, {@link Stage#END_TO_END} is what an SLA like "a tag shows on the
+ * screen within 300 ms" is about.
+ */
+public final class DeviceLatency {
+
+    public enum Stage {
+
+        /**
+         * Reader-side timestamp to SDK callback: air, reader buffering and network; only for readers
+         * reporting a timestamp, and only meaningful with the host and reader clocks in sync.
+         */
+        READER("rfid_latency_reader_seconds", "Reader-side timestamp to SDK callback.", 4),
+
+        /**
+         * SDK callback to the dedup lookup: vendor object conversion and EPC parsing.
+         */
+        PARSE("rfid_latency_parse_seconds", "SDK callback to dedup lookup.", 4),
+
+        /**
+         * Each dedup lookup or buffer insert.
+         */
+        DEDUP("rfid_latency_dedup_seconds", "Dedup lookup or buffer insert.", 4),
+
+        /**
+         * Hand-off to the dispatch path (or batch close) until delivery to the user callback.
+         */
+        QUEUE("rfid_latency_queue_seconds", "Dispatch hand-off to user callback.", 1),
+
+        /**
+         * Time spent in the user callbacks per event.
+         */
+        CALLBACK("rfid_latency_callback_seconds", "Time spent in the user callbacks per event.", 1),
+
+        /**
+         * SDK callback until delivery to the user callback, batching and queueing included.
+         */
+        END_TO_END("rfid_latency_end_to_end_seconds", "SDK callback to user callback, per new tag.", 1);
+
+        private final String metric;
+        private final String help;
+        private final int stripes;  // reader side stages are recorded by every sdk thread
+
+        Stage(final String metric, final String help, final int stripes) {
+            this.metric = metric;
+            this.help = help;
+            this.stripes = stripes;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+    }
+
+    /**
+     * Quantiles reported to the metrics exporters.
+     */
+    static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+    public DeviceLatency() {
+        for (Stage stage : STAGES) {
+            histograms[stage.ordinal()] = new LatencyHistogram(stage.stripes);
+        }
+    }
+
+    /**
+     * @param stage - latency stage.
+     * @return the histogram of the stage.
+     */
+    public LatencyHistogram get(final Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * @param stage - latency stage.
+     * @param nanos - duration in nanoseconds.
+     */
+    public void record(final Stage stage, final long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Reports every stage as a summary, empty ones included so exporters always see the same metrics.
+     *
+     * @param visitor - metrics visitor.
+     */
+    void collect(final MetricsSource.Visitor visitor) {
+        final double[] percentiles = new double[QUANTILES.length];
+        for (int i = 0; i < QUANTILES.length; i++) {
+            percentiles[i] = QUANTILES[i] * 100;
+        }
+        for (Stage stage : STAGES) {
+            final LatencyHistogram histogram = get(stage);
+            final long count = histogram.getCount();
+            final long[] nanos = histogram.getValuesAtPercentiles(percentiles);
+            final double[] values = new double[nanos.length];
+            for (int i = 0; i < nanos.length; i++) {
+                values[i] = nanos[i] / 1e9;
+            }
+            visitor.summary(stage.metric, stage.help, QUANTILES, values, count, histogram.getSum() / 1e9);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DeviceLatency(");
+        for (Stage stage : STAGES) {
+            final LatencyHistogram histogram = get(stage);
+            if (histogram.getCount() == 0) continue;
+            if (sb.length() > "DeviceLatency(".length()) sb.append(", ");
+            final long[] nanos = histogram.getValuesAtPercentiles(50, 99);
+            sb.append(stage.name().toLowerCase()).append("=p50:").append(nanos[0] / 1_000).append("us/p99:").append(nanos[1] / 1_000).append("us");
+        }
+        return sb.append(')').toString();
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.contare.rfid.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * DeviceMetrics
+ * <p>
+ * - Metrics of one device: reads, duplicates and callback time recorded by the read and dispatch path,
+ * plus counters and gauges read from the device when collected (buffer size, queue depth, ...).
+ * - Recording is a striped counter increment, readers on different threads never contend on a single
+ * cache line; sums are only computed when collected.
+ * - Labelled with the device class and its reader id, read on every collect since the reader id can be
+ * changed on connect.
+ */
+public final class DeviceMetrics implements MetricsSource {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final String device;
+    private final IntSupplier readerId;
+
+    private final LongAdder unique = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder callbacks = new LongAdder();
+    private final LongAdder callbackNanos = new LongAdder();
+    private final LongAccumulator callbackMaxNanos = new LongAccumulator(Math::max, 0);
+
+    private final List<Probe> probes = new CopyOnWriteArrayList<>();
+    private volatile DeviceLatency latency;
+
+    /**
+     * @param device   - device name, usually its simple class name.
+     * @param readerId - supplies the current reader id.
+     */
+    public DeviceMetrics(final String device, final IntSupplier readerId) {
+        this.device = Objects.requireNonNull(device, "device must not be null");
+        this.readerId = Objects.requireNonNull(readerId, "readerId must not be null");
+    }
+
+    /**
+     * Adds a counter read from the device when collected.
+     *
+     * @param name  - metric name, ending in {@code _total}.
+     * @param help  - one line description.
+     * @param value - supplies the current value.
+     * @return this.
+     */
+    public DeviceMetrics counter(final String name, final String help, final DoubleSupplier value) {
+        probes.add(new Probe(name, help, value, true));
+        return this;
+    }
+
+    /**
+     * Adds a gauge read from the device when collected.
+     *
+     * @param name  - metric name.
+     * @param help  - one line description.
+     * @param value - supplies the current value.
+     * @return this.
+     */
+    public DeviceMetrics gauge(final String name, final String help, final DoubleSupplier value) {
+        probes.add(new Probe(name, help, value, false));
+        return this;
+    }
+
+    /**
+     * Reports the latency histograms as summaries, null to stop reporting them.
+     *
+     * @param latency - latency histograms of the device.
+     */
+    public void setLatency(final DeviceLatency latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Records a read that inserted a new tag into the buffer.
+     */
+    public void recordUnique() {
+        unique.increment();
+    }
+
+    /**
+     * Records a read of a tag already in the buffer.
+     */
+    public void recordDuplicate() {
+        duplicates.increment();
+    }
+
+    /**
+     * Records one run of the user callbacks.
+     *
+     * @param nanos - time spent in the callbacks.
+     */
+    public void recordCallback(final long nanos) {
+        callbacks.increment();
+        callbackNanos.add(nanos);
+        callbackMaxNanos.accumulate(nanos);
+    }
+
+    /**
+     * @return number of reads, duplicates included.
+     */
+    public long getReads() {
+        return unique.sum() + duplicates.sum();
+    }
+
+    /**
+     * @return number of reads that inserted a new tag into the buffer.
+     */
+    public long getUnique() {
+        return unique.sum();
+    }
+
+    /**
+     * @return number of reads of tags already in the buffer.
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return number of events handed to the user callbacks.
+     */
+    public long getCallbacks() {
+        return callbacks.sum();
+    }
+
+    /**
+     * @return total time spent in the user callbacks, in nanoseconds.
+     */
+    public long getCallbackNanos() {
+        return callbackNanos.sum();
+    }
+
+    /**
+     * @return longest single run of the user callbacks, in nanoseconds.
+     */
+    public long getCallbackMaxNanos() {
+        return callbackMaxNanos.get();
+    }
+
+    @Override
+    public Map<String, String> getLabels() {
+        final Map<String, String> labels = new LinkedHashMap<>();
+        labels.put("device", device);
+        labels.put("reader", Integer.toString(readerId.getAsInt()));
+        return labels;
+    }
+
+    @Override
+    public void collect(final Visitor visitor) {
+        final long unique = this.unique.sum();
+        final long duplicates = this.duplicates.sum();
+        visitor.counter("rfid_reads_total", "Reads reported by the reader, duplicates included.", unique + duplicates);
+        visitor.counter("rfid_unique_reads_total", "Reads that inserted a new tag into the buffer.", unique);
+        visitor.counter("rfid_duplicate_reads_total", "Reads of tags already in the buffer.", duplicates);
+        visitor.counter("rfid_callbacks_total", "Events handed to the user callbacks.", callbacks.sum());
+        visitor.counter("rfid_callback_seconds_total", "Time spent in the user callbacks.", callbackNanos.sum() / NANOS_PER_SECOND);
+        visitor.gauge("rfid_callback_max_seconds", "Longest single run of the user callbacks.", callbackMaxNanos.get() / NANOS_PER_SECOND);
+        for (Probe probe : probes) {
+            final double value = probe.value.getAsDouble();
+            if (probe.counter) {
+                visitor.counter(probe.name, probe.help, value);
+            } else {
+                visitor.gauge(probe.name, probe.help, value);
+            }
+        }
+        final DeviceLatency latency = this.latency;
+        if (latency != null) {
+            latency.collect(visitor);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceMetrics" + getLabels();
+    }
+
+    // NESTED TYPES
+    private static final class Probe {
+
+        private final String name;
+        private final String help;
+        private final DoubleSupplier value;
+        private final boolean counter;
+
+        private Probe(final String name, final String help, final DoubleSupplier value, final boolean counter) {
+            this.name = Objects.requireNonNull(name, "name must not be null");
+            this.help = Objects.requireNonNull(help, "help must not be null");
+            this.value = Objects.requireNonNull(value, "value must not be null");
+            this.counter = counter;
+        }
+
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.contare.rfid.metrics;
+
+import org.jboss.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JmxExporter
+ * <p>
+ * - Registers one read-only MBean per metrics source, named
+ * {@code <domain>:type=Metrics,<label>=<value>,...}, e.g.
+ * {@code com.contare.rfid:type=Metrics,device=ChainwayDevice,reader=1}.
+ * - Each metric is a {@code double} attribute read from the source when asked, so JConsole, VisualVM or
+ * a JMX scraper always see current values.
+ * - Add it to the registry with {@link Metrics#addExporter(MetricsExporter)}.
+ */
+public final class JmxExporter implements MetricsExporter {
+
+    private static final Logger logger = Logger.getLogger(JmxExporter.class);
+
+    public static final String DEFAULT_DOMAIN = "com.contare.rfid";
+
+    private final MBeanServer server;
+    private final String domain;
+    private final Map<MetricsSource, ObjectName> names = new ConcurrentHashMap<>();
+
+    /**
+     * Exports to the platform MBean server under {@link #DEFAULT_DOMAIN}.
+     */
+    public JmxExporter() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+    }
+
+    /**
+     * @param server - MBean server.
+     * @param domain - domain of the object names.
+     */
+    public JmxExporter(final MBeanServer server, final String domain) {
+        this.server = Objects.requireNonNull(server, "server must not be null");
+        this.domain = Objects.requireNonNull(domain, "domain must not be null");
+    }
+
+    /**
+     * @param source - metrics source.
+     * @return the name the source is registered under, or null if it is not.
+     */
+    public ObjectName getObjectName(final MetricsSource source) {
+        return names.get(source);
+    }
+
+    @Override
+    public void register(final MetricsSource source) {
+        try {
+            final ObjectName name = toObjectName(source);
+            try {
+                server.registerMBean(new SourceMBean(source), name);
+            } catch (InstanceAlreadyExistsException e) {
+                // a closed device that was never unregistered, or a reader id used twice: last one wins
+                logger.warnf("Replacing MBean '%s'.", name);
+                server.unregisterMBean(name);
+                server.registerMBean(new SourceMBean(source), name);
+            }
+            names.put(source, name);
+        } catch (JMException e) {
+            logger.errorf(e, "Error registering MBean for %s.", source.getLabels());
+        }
+    }
+
+    @Override
+    public void unregister(final MetricsSource source) {
+        final ObjectName name = names.remove(source);
+        if (name == null) return;
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException e) {
+            // already replaced by another source
+        } catch (JMException e) {
+            logger.errorf(e, "Error unregistering MBean '%s'.", name);
+        }
+    }
+
+    // HELPERS
+    private ObjectName toObjectName(final MetricsSource source) throws MalformedObjectNameException {
+        final StringBuilder sb = new StringBuilder(domain).append(":type=Metrics");
+        for (Map.Entry<String, String> entry : source.getLabels().entrySet()) {
+            sb.append(',').append(entry.getKey()).append('=').append(quote(entry.getValue()));
+        }
+        return new ObjectName(sb.toString());
+    }
+
+    private static String quote(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case ',':
+                case '=':
+                case ':':
+                case '"':
+                case '*':
+                case '?':
+                case '\n':
+                    return ObjectName.quote(value);
+                default:
+            }
+        }
+        return value.isEmpty() ? ObjectName.quote(value) : value;
+    }
+
+    // metric values by name, their descriptions go to help when given
+    private static Map<String, Double> collect(final MetricsSource source, final Map<String, String> help) {
+        final Map<String, Double> metrics = new LinkedHashMap<>();
+        source.collect(new MetricsSource.Visitor() {
+            @Override
+            public void counter(final String name, final String description, final double value) {
+                gauge(name, description, value);
+            }
+
+            @Override
+            public void gauge(final String name, final String description, final double value) {
+                metrics.put(name, value);
+                if (help != null) {
+                    help.put(name, description);
+                }
+            }
+
+            @Override
+            public void summary(final String name, final String description, final double[] quantiles, final double[] values, final long count, final double sum) {
+                for (int i = 0; i < quantiles.length; i++) {
+                    // 0.99 -> _p99, 0.999 -> _p99_9
+                    final String percentile = BigDecimal.valueOf(quantiles[i]).movePointRight(2).stripTrailingZeros().toPlainString();
+                    gauge(name + "_p" + percentile.replace('.', '_'), description + " Quantile " + quantiles[i] + ".", values[i]);
+                }
+                gauge(name + "_count", description + " Count.", count);
+                gauge(name + "_sum", description + " Sum.", sum);
+            }
+        });
+        return metrics;
+    }
+
+    // NESTED TYPES
+    private static final class SourceMBean implements DynamicMBean {
+
+        private final MetricsSource source;
+        private final MBeanInfo info;
+
+        private SourceMBean(final MetricsSource source) {
+            this.source = source;
+            // sources always report the same metrics, the attribute list is built once
+            final Map<String, String> help = new LinkedHashMap<>();
+            collect(source, help);
+            final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, String> entry : help.entrySet()) {
+                attributes.add(new MBeanAttributeInfo(entry.getKey(), "double", entry.getValue(), true, false, false));
+            }
+            this.info = new MBeanInfo(SourceMBean.class.getName(), "Metrics of " + source.getLabels(),
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        @Override
+        public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+            final Double value = collect(source, null).get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public void setAttribute(final Attribute attribute) throws AttributeNotFoundException, MBeanException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(final String[] attributes) {
+            final Map<String, Double> metrics = collect(source, null);
+            final AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                final Double value = metrics.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(final AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(final String action, final Object[] params, final String[] signature) throws MBeanException {
+            throw new MBeanException(new UnsupportedOperationException(action));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return info;
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.contare.rfid.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram
+ * <p>
+ * - High dynamic range histogram of durations in nanoseconds: exact below 128 ns, then every power of two
+ * is split into 64 linear buckets, so any recorded value is known within 1.6% from 1 ns up to
+ * {@link #HIGHEST_TRACKABLE} (about 68 s); larger values land in the last bucket.
+ * - Recording is one atomic increment on a bucket and one striped add, never a lock or an allocation.
+ * With more than one stripe, threads add to their own copy of the buckets (picked by thread id) so
+ * concurrent readers do not bounce the same cache line.
+ * - Values are cumulative since creation; percentiles are computed on demand and are weakly consistent
+ * with concurrent recording.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int MAX_EXPONENT = 35;
+    private static final int SLOTS = ((MAX_EXPONENT - SUB_BITS + 1) << (SUB_BITS - 1)) + (1 << SUB_BITS);
+
+    /**
+     * Largest value recorded in its own bucket, in nanoseconds.
+     */
+    public static final long HIGHEST_TRACKABLE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * A histogram recorded from a single thread, or rarely from many.
+     */
+    public LatencyHistogram() {
+        this(1);
+    }
+
+    /**
+     * @param stripes - copies of the buckets, rounded up to a power of two; use more than one for
+     *                histograms recorded concurrently by many threads.
+     */
+    public LatencyHistogram(final int stripes) {
+        if (stripes < 1 || stripes > 64) {
+            throw new IllegalArgumentException("'stripes' must be between 1 and 64");
+        }
+        final int size = (Integer.bitCount(stripes) == 1) ? stripes : Integer.highestOneBit(stripes) << 1;
+        this.stripeMask = size - 1;
+        this.counts = new AtomicLongArray(size * SLOTS);
+    }
+
+    /**
+     * Records a duration, negative values count as zero.
+     *
+     * @param nanos - duration in nanoseconds.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        final int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.getAndIncrement(stripe * SLOTS + index(value));
+        sum.add(value);
+    }
+
+    /**
+     * @return number of recorded values.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return sum of the recorded values in nanoseconds, values above {@link #HIGHEST_TRACKABLE} included.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return mean of the recorded values in nanoseconds, 0 if none.
+     */
+    public double getMean() {
+        final long count = getCount();
+        return (count == 0) ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * @return highest value equivalent to the largest recorded one, 0 if none.
+     */
+    public long getMax() {
+        return getValueAtPercentile(100);
+    }
+
+    /**
+     * Returns the highest value equivalent to the value below which the given percentage of the recorded
+     * values fall, e.g. 99 for the p99.
+     *
+     * @param percentile - percentile between 0 and 100.
+     * @return the value at the percentile in nanoseconds, 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        return getValuesAtPercentiles(percentile)[0];
+    }
+
+    /**
+     * Returns the values at many percentiles in a single pass over the buckets.
+     *
+     * @param percentiles - percentiles between 0 and 100, in increasing order.
+     * @return the value at each percentile in nanoseconds, 0 if nothing was recorded.
+     */
+    public long[] getValuesAtPercentiles(final double... percentiles) {
+        final long[] merged = new long[SLOTS];
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            final long value = counts.get(i);
+            merged[i % SLOTS] += value;
+            count += value;
+        }
+        final long[] values = new long[percentiles.length];
+        if (count == 0) return values;
+        long seen = 0;
+        int slot = 0;
+        for (int p = 0; p < percentiles.length; p++) {
+            final double percentile = percentiles[p];
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("'percentile' must be between 0 and 100");
+            }
+            final long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            while (slot < SLOTS - 1 && seen + merged[slot] < target) {
+                seen += merged[slot++];
+            }
+            values[p] = highestEquivalent(slot);
+        }
+        return values;
+    }
+
+    // HELPERS
+    static int index(final long value) {
+        if (value < (1 << SUB_BITS)) return (int) value;
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return SLOTS - 1;
+        // the top SUB_BITS bits of the value, in [64, 128), after one block of 64 buckets per exponent
+        final int shift = exponent - SUB_BITS + 1;
+        return (shift << (SUB_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    static long highestEquivalent(final int index) {
+        if (index < (1 << SUB_BITS)) return index;
+        final int shift = (index >> (SUB_BITS - 1)) - 1;
+        final long mantissa = index - ((long) shift << (SUB_BITS - 1));
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+}
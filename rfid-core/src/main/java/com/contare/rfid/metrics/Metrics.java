@@ -0,0 +1,101 @@
+package com.contare.rfid.metrics;
+
+import org.jboss.logging.Logger;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Metrics
+ * <p>
+ * - Process wide registry of metrics sources; every connected
+ * {@link com.contare.rfid.devices.BufferedRfidDevice} registers its {@link DeviceMetrics} here and
+ * leaves it when closed.
+ * - Exporters added to the registry see every source registered before and after them.
+ * - Render the registry for a scrape with {@link PrometheusRenderer#render(java.util.Collection)} of
+ * {@link #getSources()}.
+ */
+public final class Metrics {
+
+    private static final Logger logger = Logger.getLogger(Metrics.class);
+
+    private static final List<MetricsSource> sources = new CopyOnWriteArrayList<>();
+    private static final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the registered sources, in registration order.
+     */
+    public static List<MetricsSource> getSources() {
+        return List.copyOf(sources);
+    }
+
+    /**
+     * Registers a source, a source already registered is left as it is.
+     *
+     * @param source - metrics source.
+     */
+    public static synchronized void register(final MetricsSource source) {
+        Objects.requireNonNull(source, "source must not be null");
+        if (sources.contains(source)) return;
+        sources.add(source);
+        for (MetricsExporter exporter : exporters) {
+            notify(exporter, source, true);
+        }
+    }
+
+    /**
+     * Unregisters a source, does nothing if it is not registered.
+     *
+     * @param source - metrics source.
+     */
+    public static synchronized void unregister(final MetricsSource source) {
+        if (!sources.remove(source)) return;
+        for (MetricsExporter exporter : exporters) {
+            notify(exporter, source, false);
+        }
+    }
+
+    /**
+     * Adds an exporter and hands it the sources already registered.
+     *
+     * @param exporter - metrics exporter.
+     */
+    public static synchronized void addExporter(final MetricsExporter exporter) {
+        Objects.requireNonNull(exporter, "exporter must not be null");
+        if (exporters.contains(exporter)) return;
+        exporters.add(exporter);
+        for (MetricsSource source : sources) {
+            notify(exporter, source, true);
+        }
+    }
+
+    /**
+     * Removes an exporter, unregistering every source from it.
+     *
+     * @param exporter - metrics exporter.
+     */
+    public static synchronized void removeExporter(final MetricsExporter exporter) {
+        if (!exporters.remove(exporter)) return;
+        for (MetricsSource source : sources) {
+            notify(exporter, source, false);
+        }
+    }
+
+    // HELPERS
+    private static void notify(final MetricsExporter exporter, final MetricsSource source, final boolean registered) {
+        try {
+            if (registered) {
+                exporter.register(source);
+            } else {
+                exporter.unregister(source);
+            }
+        } catch (RuntimeException e) {
+            logger.errorf(e, "Error in metrics exporter '%s' for %s.", exporter, source.getLabels());
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.contare.rfid.metrics;
+
+/**
+ * MetricsExporter
+ * <p>
+ * - Publishes the sources of the {@link Metrics} registry somewhere else, e.g. {@link JmxExporter}.
+ * - Called on the thread that registers or unregisters a source, implementations must not block.
+ */
+public interface MetricsExporter {
+
+    void register(MetricsSource source);
+
+    void unregister(MetricsSource source);
+
+}
@@ -0,0 +1,59 @@
+package com.contare.rfid.metrics;
+
+import java.util.Map;
+
+/**
+ * MetricsSource
+ * <p>
+ * - Something that reports metrics: a set of labels identifying it and the current value of each of
+ * its counters and gauges.
+ * - Values are read when an exporter collects them, never pushed, so a source costs nothing while no
+ * one is looking.
+ */
+public interface MetricsSource {
+
+    /**
+     * Returns the labels that tell this source apart from the other sources reporting the same metrics.
+     *
+     * @return label names and values, in a stable order.
+     */
+    Map<String, String> getLabels();
+
+    /**
+     * Hands the current value of every metric to the visitor, always in the same order.
+     *
+     * @param visitor - metrics visitor.
+     */
+    void collect(Visitor visitor);
+
+    interface Visitor {
+
+        /**
+         * @param name  - metric name, prometheus style, e.g. {@code rfid_reads_total}.
+         * @param help  - one line description.
+         * @param value - value that only increases while the source lives.
+         */
+        void counter(String name, String help, double value);
+
+        /**
+         * @param name  - metric name, prometheus style, e.g. {@code rfid_queue_depth}.
+         * @param help  - one line description.
+         * @param value - current value.
+         */
+        void gauge(String name, String help, double value);
+
+        /**
+         * @param name      - metric name, prometheus style, e.g. {@code rfid_latency_queue_seconds}.
+         * @param help      - one line description.
+         * @param quantiles - quantiles between 0 and 1, in increasing order.
+         * @param values    - value at each quantile.
+         * @param count     - number of observations.
+         * @param sum       - sum of the observations.
+         */
+        default void summary(String name, String help, double[] quantiles, double[] values, long count, double sum) {
+            // summaries are optional, e.g. a visitor only interested in counters
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.contare.rfid.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PrometheusRenderer
+ * <p>
+ * - Renders metrics sources in the Prometheus text exposition format (version 0.0.4), ready to be
+ * served on a {@code /metrics} endpoint with content type {@link #CONTENT_TYPE}.
+ * - Samples of the same metric from different sources are grouped under a single {@code # HELP} and
+ * {@code # TYPE} header, labelled with the labels of their source.
+ */
+public final class PrometheusRenderer {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private PrometheusRenderer() {
+    }
+
+    /**
+     * @param sources - metrics sources, e.g. {@link Metrics#getSources()}.
+     * @return the exposition text.
+     */
+    public static String render(final Collection<? extends MetricsSource> sources) {
+        final StringBuilder sb = new StringBuilder(4096);
+        render(sources, sb);
+        return sb.toString();
+    }
+
+    /**
+     * @param sources - metrics sources, e.g. {@link Metrics#getSources()}.
+     * @param out     - where the exposition text is written.
+     */
+    public static void render(final Collection<? extends MetricsSource> sources, final Appendable out) {
+        final Map<String, Family> families = new LinkedHashMap<>();
+        for (MetricsSource source : sources) {
+            final Map<String, String> labels = source.getLabels();
+            final String sourceLabels = labels(labels, null, null);
+            source.collect(new MetricsSource.Visitor() {
+                @Override
+                public void counter(final String name, final String help, final double value) {
+                    family(name, help, "counter").add(name, sourceLabels, value);
+                }
+
+                @Override
+                public void gauge(final String name, final String help, final double value) {
+                    family(name, help, "gauge").add(name, sourceLabels, value);
+                }
+
+                @Override
+                public void summary(final String name, final String help, final double[] quantiles, final double[] values, final long count, final double sum) {
+                    final Family family = family(name, help, "summary");
+                    for (int i = 0; i < quantiles.length; i++) {
+                        family.add(name, labels(labels, "quantile", format(quantiles[i])), values[i]);
+                    }
+                    family.add(name + "_sum", sourceLabels, sum);
+                    family.add(name + "_count", sourceLabels, count);
+                }
+
+                private Family family(final String name, final String help, final String type) {
+                    return families.computeIfAbsent(name, (key) -> new Family(help, type));
+                }
+            });
+        }
+        try {
+            for (Map.Entry<String, Family> entry : families.entrySet()) {
+                final String name = entry.getKey();
+                final Family family = entry.getValue();
+                out.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help)).append('\n');
+                out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+                for (Sample sample : family.samples) {
+                    out.append(sample.name).append(sample.labels).append(' ').append(format(sample.value)).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // HELPERS
+    private static String labels(final Map<String, String> labels, final String extraName, final String extraValue) {
+        if (labels.isEmpty() && extraName == null) return "";
+        final StringBuilder sb = new StringBuilder().append('{');
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            label(sb, entry.getKey(), entry.getValue());
+        }
+        if (extraName != null) {
+            label(sb, extraName, extraValue);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static void label(final StringBuilder sb, final String name, final String value) {
+        if (sb.length() > 1) sb.append(',');
+        sb.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static String escapeHelp(final String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String format(final double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return (value > 0) ? "+Inf" : "-Inf";
+        // counts print as integers, 2^53 is where doubles stop holding every integer
+        if (value == Math.rint(value) && Math.abs(value) < 0x1p53) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    // NESTED TYPES
+    private static final class Family {
+
+        private final String help;
+        private final String type;
+        private final List<Sample> samples = new ArrayList<>();
+
+        private Family(final String help, final String type) {
+            this.help = help;
+            this.type = type;
+        }
+
+        private void add(final String name, final String labels, final double value) {
+            samples.add(new Sample(name, labels, value));
+        }
+
+    }
+
+    private static final class Sample {
+
+        private final String name;
+        private final String labels;
+        private final double value;
+
+        private Sample(final String name, final String labels, final double value) {
+            this.name = name;
+            this.labels = labels;
+            this.value = value;
+        }
+
+    }
+
+}
@@ -0,0 +1,316 @@
+package com.contare.rfid.objects;
+
+import com.contare.rfid.utils.Hex;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Epc
+ * <p>
+ * - Compact binary identity of a tag EPC, used as the deduplication key on the read path.
+ * - EPCs up to 128 bits (96-bit SGTIN, 128-bit) are stored in two longs, right aligned.
+ * - Longer EPCs (up to 496 bits) also keep a private copy of the raw bytes.
+ * - The hash code is computed once, at construction time.
+ * - The hexadecimal representation is only built when requested, and cached afterwards.
+ */
+public final class Epc {
+
+    /**
+     * Maximum EPC length in bytes (496 bits).
+     */
+    public static final int MAX_LENGTH = 62;
+
+    private static final int WORDS_LENGTH = 16;
+
+    private final long high;
+    private final long low;
+    private final int length;
+    private final byte[] bytes;     // only set when length > 16 bytes
+    private final int hash;
+
+    private volatile String hex;    // lazily computed
+
+    private Epc(final long high, final long low, final int length, final byte[] bytes) {
+        this.high = high;
+        this.low = low;
+        this.length = length;
+        this.bytes = bytes;
+        this.hash = computeHash(high, low, length, bytes);
+    }
+
+    /**
+     * Creates an EPC from raw bytes (most significant byte first).
+     *
+     * @param bytes - epc bytes.
+     * @return the EPC.
+     */
+    public static Epc of(final byte[] bytes) {
+        Objects.requireNonNull(bytes, "EPC bytes must not be null");
+        return of(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Creates an EPC from a slice of a byte array (most significant byte first).
+     *
+     * @param array  - source array.
+     * @param offset - index of the first epc byte.
+     * @param length - number of epc bytes.
+     * @return the EPC.
+     */
+    public static Epc of(final byte[] array, final int offset, final int length) {
+        Objects.requireNonNull(array, "EPC bytes must not be null");
+        Objects.checkFromIndexSize(offset, length, array.length);
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException(String.format("EPC must have at most %d bytes, got %d", MAX_LENGTH, length));
+        }
+
+        // the two words always hold the last (least significant) 16 bytes
+        final int start = Math.max(0, length - WORDS_LENGTH);
+        long high = 0;
+        long low = 0;
+        for (int i = start; i < length; i++) {
+            high = (high << 8) | (low >>> 56);
+            low = (low << 8) | (array[offset + i] & 0xFFL);
+        }
+
+        final byte[] copy = (length > WORDS_LENGTH) ? Arrays.copyOfRange(array, offset, offset + length) : null;
+        return new Epc(high, low, length, copy);
+    }
+
+    /**
+     * Creates an EPC of up to 128 bits from its two words.
+     *
+     * @param high   - most significant 64 bits.
+     * @param low    - least significant 64 bits.
+     * @param length - epc length in bytes (e.g. 12 for a 96-bit EPC).
+     * @return the EPC.
+     */
+    public static Epc of(final long high, final long low, final int length) {
+        if (length < 0 || length > WORDS_LENGTH) {
+            throw new IllegalArgumentException(String.format("EPC words support at most %d bytes, got %d", WORDS_LENGTH, length));
+        }
+        final int bits = length * 8;
+        final long h = (bits <= 64) ? 0L : (bits == 128) ? high : high & ((1L << (bits - 64)) - 1);
+        final long l = (bits >= 64) ? low : low & ((1L << bits) - 1);
+        return new Epc(h, l, length, null);
+    }
+
+    /**
+     * Creates a 96-bit EPC from its two words.
+     *
+     * @param high - most significant 32 bits.
+     * @param low  - least significant 64 bits.
+     * @return the EPC.
+     */
+    public static Epc of96(final long high, final long low) {
+        return of(high, low, 12);
+    }
+
+    /**
+     * Parses an EPC from its hexadecimal representation (case insensitive).
+     *
+     * @param value - epc hexadecimal string.
+     * @return the EPC.
+     */
+    public static Epc fromHex(final CharSequence value) {
+        Objects.requireNonNull(value, "EPC must not be null");
+        return fromHex(value, 0, value.length());
+    }
+
+    /**
+     * Parses an EPC from a range of hexadecimal characters (case insensitive), without copying the range.
+     *
+     * @param value - characters.
+     * @param start - index of the first epc digit.
+     * @param end   - index after the last epc digit.
+     * @return the EPC.
+     */
+    public static Epc fromHex(final CharSequence value, final int start, final int end) {
+        Objects.requireNonNull(value, "EPC must not be null");
+        Objects.checkFromToIndex(start, end, value.length());
+
+        final int chars = end - start;
+        if ((chars & 1) != 0) {
+            throw new IllegalArgumentException(String.format("EPC '%s' must have an even number of hex digits", value.subSequence(start, end)));
+        }
+
+        final int length = chars >>> 1;
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException(String.format("EPC must have at most %d bytes, got %d", MAX_LENGTH, length));
+        }
+
+        if (length <= WORDS_LENGTH) {
+            long high = 0;
+            long low = 0;
+            for (int i = start; i < end; i++) {
+                high = (high << 4) | (low >>> 60);
+                low = (low << 4) | Hex.nibble(value, i);
+            }
+            return new Epc(high, low, length, null);
+        }
+
+        final byte[] bytes = new byte[length];
+        Hex.decode(value, start, end, bytes, 0);
+        return of(bytes);
+    }
+
+    /**
+     * Returns the most significant word of the (last 16 bytes of the) EPC.
+     *
+     * @return the most significant 64 bits.
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Returns the least significant word of the EPC.
+     *
+     * @return the least significant 64 bits.
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Returns the EPC length in bytes.
+     *
+     * @return the EPC length in bytes.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the EPC length in bits.
+     *
+     * @return the EPC length in bits.
+     */
+    public int bits() {
+        return length * 8;
+    }
+
+    /**
+     * Returns if this EPC does not fit in the two words and carries its raw bytes.
+     *
+     * @return true if the EPC is longer than 128 bits.
+     */
+    public boolean isLong() {
+        return bytes != null;
+    }
+
+    /**
+     * Returns a copy of the EPC bytes (most significant byte first).
+     *
+     * @return the EPC bytes.
+     */
+    public byte[] toBytes() {
+        if (bytes != null) {
+            return bytes.clone();
+        }
+        final byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = byteAt(i);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the EPC bytes (most significant byte first) into a (reusable) buffer.
+     *
+     * @param dst - destination buffer, must have room for {@code length()} bytes.
+     * @param at  - index of the first byte written.
+     * @return the index after the last byte written.
+     */
+    public int toBytes(final byte[] dst, final int at) {
+        if (bytes != null) {
+            System.arraycopy(bytes, 0, dst, at, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dst[at + i] = byteAt(i);
+            }
+        }
+        return at + length;
+    }
+
+    /**
+     * Returns the uppercase hexadecimal representation of this EPC.
+     * <p>
+     * The string is only built on the first call and cached afterwards.
+     *
+     * @return the EPC hexadecimal string.
+     */
+    public String toHex() {
+        String value = hex;
+        if (value == null) {
+            final char[] chars = new char[length << 1];
+            toHex(chars, 0);
+            value = new String(chars);
+            hex = value;
+        }
+        return value;
+    }
+
+    /**
+     * Writes the uppercase hexadecimal representation of this EPC into a (reusable) buffer.
+     *
+     * @param dst - destination buffer, must have room for {@code length() * 2} chars.
+     * @param at  - index of the first char written.
+     * @return the index after the last char written.
+     */
+    public int toHex(final char[] dst, final int at) {
+        return (bytes != null)
+            ? Hex.encode(bytes, 0, length, dst, at)
+            : Hex.encode(high, low, length, dst, at);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Epc)) return false;
+        final Epc other = (Epc) o;
+        return hash == other.hash
+            && low == other.low
+            && high == other.high
+            && length == other.length
+            && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    // HELPERS
+    private byte byteAt(final int index) {
+        if (bytes != null) {
+            return bytes[index];
+        }
+        // position counted from the least significant byte
+        final int shift = (length - 1 - index) * 8;
+        return (byte) ((shift >= 64) ? (high >>> (shift - 64)) : (low >>> shift));
+    }
+
+    private static int computeHash(final long high, final long low, final int length, final byte[] bytes) {
+        long h = low * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(high * 0xC2B2AE3D27D4EB4FL, 31);
+        h ^= length;
+        if (bytes != null) {
+            h ^= Arrays.hashCode(bytes);
+        }
+        // murmur3 finalizer
+        h ^= (h >>> 33);
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= (h >>> 33);
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= (h >>> 33);
+        return (int) h;
+    }
+
+}
@@ -1,26 +1,175 @@
 package com.contare.rfid.objects;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.EqualsAndHashCode;
-import lombok.ToString;
+import com.contare.rfid.utils.Timestamps;
 
 import java.time.Instant;
+import java.util.Objects;
 
-@Data
-@AllArgsConstructor
-@EqualsAndHashCode
-@ToString
+/**
+ * TagMetadata
+ * <p>
+ * - A single tag read: the {@link Epc} and capture time are always set, every other field is decoded on demand.
+ * - Adapters may subclass it to keep the raw vendor object and override the {@code decode*} hooks; each field
+ * is then decoded at most once, the first time a consumer reads it. Reads rejected as duplicates never pay
+ * for that work.
+ * - Decoding hooks must be idempotent: concurrent first reads of the same field may decode it twice.
+ */
 public class TagMetadata {
 
-    public final String rfid;
+    /**
+     * RSSI value used when the reader does not report it.
+     */
+    public static final short RSSI_UNKNOWN = Short.MIN_VALUE;
 
-    public final String tid;
+    /**
+     * Antenna value used when the reader does not report it (antenna ports start at 1).
+     */
+    public static final int ANTENNA_UNKNOWN = 0;
 
-    public final String rssi;
+    private static final int TID = 1;
+    private static final int RSSI = 1 << 1;
+    private static final int ANTENNA = 1 << 2;
+    private static final int ALL = TID | RSSI | ANTENNA;
 
-    public final Integer antenna;
+    private final Epc epc;
 
-    public final Instant timestamp = Instant.now();
+    private final long nanos;       // System.nanoTime() when the read was captured
+
+    private String tid;
+
+    private short rssi;             // centi-dBm (hundredths of dBm), e.g. -5837 = -58.37 dBm
+
+    private int antenna;
+
+    private volatile int decoded;   // bit set of the fields already decoded
+
+    public TagMetadata(final Epc epc, final String tid, final short rssi, final int antenna, final long nanos) {
+        this.epc = Objects.requireNonNull(epc, "epc must not be null");
+        this.nanos = nanos;
+        this.tid = tid;
+        this.rssi = rssi;
+        this.antenna = antenna;
+        this.decoded = ALL;
+    }
+
+    public TagMetadata(final Epc epc, final String tid, final short rssi, final int antenna) {
+        this(epc, tid, rssi, antenna, System.nanoTime());
+    }
+
+    /**
+     * Constructor for lazy views, every field besides the EPC and capture time is decoded on demand.
+     *
+     * @param epc   - tag epc.
+     * @param nanos - {@link System#nanoTime()} when the read was captured.
+     */
+    protected TagMetadata(final Epc epc, final long nanos) {
+        this.epc = Objects.requireNonNull(epc, "epc must not be null");
+        this.nanos = nanos;
+        this.decoded = 0;
+    }
+
+    public Epc getEpc() {
+        return epc;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public String getTid() {
+        if ((decoded & TID) == 0) {
+            tid = decodeTid();
+            decoded |= TID;
+        }
+        return tid;
+    }
+
+    /**
+     * Returns the RSSI in centi-dBm.
+     *
+     * @return the RSSI in centi-dBm, or {@link #RSSI_UNKNOWN}.
+     */
+    public short getRssi() {
+        if ((decoded & RSSI) == 0) {
+            rssi = decodeRssi();
+            decoded |= RSSI;
+        }
+        return rssi;
+    }
+
+    public int getAntenna() {
+        if ((decoded & ANTENNA) == 0) {
+            antenna = decodeAntenna();
+            decoded |= ANTENNA;
+        }
+        return antenna;
+    }
+
+    /**
+     * Returns the epc hexadecimal string, built on demand from the binary {@link Epc}.
+     *
+     * @return the epc hexadecimal string.
+     */
+    public String getRfid() {
+        return epc.toHex();
+    }
+
+    /**
+     * Returns the RSSI in dBm.
+     *
+     * @return the RSSI in dBm, or NaN if the reader did not report it.
+     */
+    public double getRssiDbm() {
+        final short value = getRssi();
+        return (value != RSSI_UNKNOWN) ? value / 100.0 : Double.NaN;
+    }
+
+    public boolean hasRssi() {
+        return getRssi() != RSSI_UNKNOWN;
+    }
+
+    /**
+     * Returns the wall-clock time of the read, converted on demand from the monotonic capture stamp.
+     *
+     * @return the read timestamp.
+     */
+    public Instant getTimestamp() {
+        return Timestamps.toInstant(nanos);
+    }
+
+    // DECODING HOOKS
+    protected String decodeTid() {
+        return null;
+    }
+
+    protected short decodeRssi() {
+        return RSSI_UNKNOWN;
+    }
+
+    protected int decodeAntenna() {
+        return ANTENNA_UNKNOWN;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TagMetadata)) return false;
+        final TagMetadata other = (TagMetadata) o;
+        return nanos == other.nanos
+            && epc.equals(other.epc)
+            && getRssi() == other.getRssi()
+            && getAntenna() == other.getAntenna()
+            && Objects.equals(getTid(), other.getTid());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * epc.hashCode() + Long.hashCode(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "TagMetadata(epc=" + epc + ", tid=" + getTid() + ", rssi=" + getRssi() + ", antenna=" + getAntenna() + ", nanos=" + nanos + ")";
+    }
 
 }
@@ -0,0 +1,171 @@
+package com.contare.rfid.objects;
+
+import com.contare.rfid.utils.Timestamps;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * TagStats
+ * <p>
+ * - Immutable snapshot of every read of a tag since it entered the buffer.
+ * - RSSI values are in centi-dBm, like {@link TagMetadata#getRssi()}; reads without RSSI are only counted.
+ * - Antennas are kept as a bit mask, bit {@code n - 1} set for antenna port {@code n} (ports 1..64).
+ * - The sequence is the buffer change stamp of the tag when the snapshot was taken (0 if unstamped).
+ */
+public final class TagStats {
+
+    private final Epc epc;
+    private final long reads;
+    private final long rssiReads;   // reads that reported an RSSI
+    private final long rssiSum;
+    private final short minRssi;
+    private final short maxRssi;
+    private final long firstSeen;
+    private final long lastSeen;
+    private final long antennas;
+    private final long sequence;
+
+    public TagStats(final Epc epc,
+                    final long reads,
+                    final long rssiReads,
+                    final long rssiSum,
+                    final short minRssi,
+                    final short maxRssi,
+                    final long firstSeen,
+                    final long lastSeen,
+                    final long antennas,
+                    final long sequence) {
+        this.epc = Objects.requireNonNull(epc, "epc must not be null");
+        this.reads = reads;
+        this.rssiReads = rssiReads;
+        this.rssiSum = rssiSum;
+        this.minRssi = minRssi;
+        this.maxRssi = maxRssi;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+        this.antennas = antennas;
+        this.sequence = sequence;
+    }
+
+    public Epc getEpc() {
+        return epc;
+    }
+
+    /**
+     * Returns the number of reads, duplicates included.
+     *
+     * @return the number of reads.
+     */
+    public long getReads() {
+        return reads;
+    }
+
+    public short getMinRssi() {
+        return minRssi;
+    }
+
+    public short getMaxRssi() {
+        return maxRssi;
+    }
+
+    /**
+     * Returns the mean RSSI in centi-dBm.
+     *
+     * @return the mean RSSI in centi-dBm, or {@link TagMetadata#RSSI_UNKNOWN} if no read reported it.
+     */
+    public short getMeanRssi() {
+        return (rssiReads == 0) ? TagMetadata.RSSI_UNKNOWN : (short) Math.round((double) rssiSum / rssiReads);
+    }
+
+    /**
+     * Returns the mean RSSI in dBm.
+     *
+     * @return the mean RSSI in dBm, or NaN if no read reported it.
+     */
+    public double getMeanRssiDbm() {
+        return (rssiReads == 0) ? Double.NaN : rssiSum / (rssiReads * 100.0);
+    }
+
+    public boolean hasRssi() {
+        return rssiReads > 0;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} of the first read.
+     *
+     * @return the first read time.
+     */
+    public long getFirstSeen() {
+        return firstSeen;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} of the last read.
+     *
+     * @return the last read time.
+     */
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public Instant getFirstSeenTimestamp() {
+        return Timestamps.toInstant(firstSeen);
+    }
+
+    public Instant getLastSeenTimestamp() {
+        return Timestamps.toInstant(lastSeen);
+    }
+
+    /**
+     * Returns the bit mask of antennas that read the tag.
+     *
+     * @return the antenna bit mask.
+     */
+    public long getAntennas() {
+        return antennas;
+    }
+
+    public boolean hasAntenna(final int antenna) {
+        return antenna >= 1 && antenna <= 64 && (antennas & (1L << (antenna - 1))) != 0;
+    }
+
+    /**
+     * Returns the buffer sequence of the last insert or update of the tag.
+     *
+     * @return the change sequence.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TagStats)) return false;
+        final TagStats other = (TagStats) o;
+        return reads == other.reads
+            && rssiReads == other.rssiReads
+            && rssiSum == other.rssiSum
+            && minRssi == other.minRssi
+            && maxRssi == other.maxRssi
+            && firstSeen == other.firstSeen
+            && lastSeen == other.lastSeen
+            && antennas == other.antennas
+            && sequence == other.sequence
+            && epc.equals(other.epc);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * epc.hashCode() + Long.hashCode(reads);
+    }
+
+    @Override
+    public String toString() {
+        return "TagStats(epc=" + epc + ", reads=" + reads + ", minRssi=" + minRssi + ", maxRssi=" + maxRssi
+            + ", meanRssi=" + getMeanRssi() + ", firstSeen=" + firstSeen + ", lastSeen=" + lastSeen
+            + ", antennas=" + Long.toBinaryString(antennas) + ", sequence=" + sequence + ")";
+    }
+
+}
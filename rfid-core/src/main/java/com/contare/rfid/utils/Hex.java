@@ -0,0 +1,262 @@
+package com.contare.rfid.utils;
+
+import com.contare.rfid.objects.Epc;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Hex
+ * <p>
+ * - Table driven hexadecimal codec shared by every device adapter.
+ * - Encodes bytes and longs into caller supplied (reusable) char buffers, so the read path does not need
+ * intermediate strings, {@code String.format} or {@code toUpperCase()} calls.
+ * - Decodes and validates hex digits from any {@link CharSequence} range, without regex matchers.
+ * - Output is always uppercase.
+ */
+public final class Hex {
+
+    private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+
+    // ascii -> nibble value, -1 for non hex characters
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['A' + i] = (byte) (10 + i);
+            VALUES['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Hex() {
+        // no instantiation
+    }
+
+    // ENCODE
+
+    /**
+     * Encodes a byte range into the destination buffer.
+     *
+     * @param src    - source bytes.
+     * @param offset - index of the first byte.
+     * @param length - number of bytes.
+     * @param dst    - destination buffer, must have room for {@code length * 2} chars.
+     * @param at     - index of the first char written.
+     * @return the index after the last char written.
+     */
+    public static int encode(final byte[] src, final int offset, final int length, final char[] dst, final int at) {
+        int j = at;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            final int b = src[i] & 0xFF;
+            dst[j++] = DIGITS[b >>> 4];
+            dst[j++] = DIGITS[b & 0x0F];
+        }
+        return j;
+    }
+
+    /**
+     * Encodes the lowest {@code digits} nibbles of a long into the destination buffer, zero padded.
+     *
+     * @param value  - value to encode.
+     * @param digits - number of hex digits (0..16).
+     * @param dst    - destination buffer.
+     * @param at     - index of the first char written.
+     * @return the index after the last char written.
+     */
+    public static int encode(final long value, final int digits, final char[] dst, final int at) {
+        for (int i = digits - 1, shift = 0; i >= 0; i--, shift += 4) {
+            dst[at + i] = DIGITS[(int) (value >>> shift) & 0x0F];
+        }
+        return at + digits;
+    }
+
+    /**
+     * Encodes a value of up to 128 bits, given as two words, into the destination buffer.
+     *
+     * @param high   - most significant 64 bits.
+     * @param low    - least significant 64 bits.
+     * @param length - number of bytes to encode (0..16).
+     * @param dst    - destination buffer.
+     * @param at     - index of the first char written.
+     * @return the index after the last char written.
+     */
+    public static int encode(final long high, final long low, final int length, final char[] dst, final int at) {
+        final int digits = length << 1;
+        if (digits <= 16) {
+            return encode(low, digits, dst, at);
+        }
+        final int next = encode(high, digits - 16, dst, at);
+        return encode(low, 16, dst, next);
+    }
+
+    public static String toHex(final byte[] src) {
+        Objects.requireNonNull(src, "bytes must not be null");
+        final char[] chars = new char[src.length << 1];
+        encode(src, 0, src.length, chars, 0);
+        return new String(chars);
+    }
+
+    public static String toHex(final long value, final int digits) {
+        final char[] chars = new char[digits];
+        encode(value, digits, chars, 0);
+        return new String(chars);
+    }
+
+    public static String toHex(final long high, final long low, final int length) {
+        final char[] chars = new char[length << 1];
+        encode(high, low, length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Converts many EPCs at once, reusing a single char buffer for the whole batch.
+     *
+     * @param epcs - epcs to convert.
+     * @return the hexadecimal strings, in the same order.
+     */
+    public static String[] toHex(final Epc[] epcs) {
+        Objects.requireNonNull(epcs, "epcs must not be null");
+        final String[] result = new String[epcs.length];
+        final char[] buffer = new char[Epc.MAX_LENGTH << 1];
+        for (int i = 0; i < epcs.length; i++) {
+            final int end = epcs[i].toHex(buffer, 0);
+            result[i] = new String(buffer, 0, end);
+        }
+        return result;
+    }
+
+    /**
+     * Appends many EPCs to a single builder, separated by the given character.
+     *
+     * @param epcs      - epcs to append.
+     * @param separator - separator written between two EPCs.
+     * @param out       - destination builder.
+     * @return the destination builder.
+     */
+    public static StringBuilder appendHex(final Iterable<Epc> epcs, final char separator, final StringBuilder out) {
+        Objects.requireNonNull(epcs, "epcs must not be null");
+        final char[] buffer = new char[Epc.MAX_LENGTH << 1];
+        boolean first = true;
+        for (Epc epc : epcs) {
+            if (!first) {
+                out.append(separator);
+            }
+            out.append(buffer, 0, epc.toHex(buffer, 0));
+            first = false;
+        }
+        return out;
+    }
+
+    // DECODE
+
+    /**
+     * Returns the value of a hex digit.
+     *
+     * @param c - character.
+     * @return the nibble value (0..15), or -1 if the character is not a hex digit.
+     */
+    public static int digit(final int c) {
+        return (c < 128) ? VALUES[c] : -1;
+    }
+
+    /**
+     * Returns if the range is a non-empty sequence of hex digits.
+     *
+     * @param value - characters.
+     * @param start - index of the first character.
+     * @param end   - index after the last character.
+     * @return true if every character in the range is a hex digit.
+     */
+    public static boolean isHex(final CharSequence value, final int start, final int end) {
+        if (start >= end) return false;
+        for (int i = start; i < end; i++) {
+            if (digit(value.charAt(i)) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns if the byte range is a non-empty sequence of ascii hex digits.
+     *
+     * @param value - ascii bytes.
+     * @param start - index of the first byte.
+     * @param end   - index after the last byte.
+     * @return true if every byte in the range is a hex digit.
+     */
+    public static boolean isHex(final byte[] value, final int start, final int end) {
+        if (start >= end) return false;
+        for (int i = start; i < end; i++) {
+            if (value[i] < 0 || VALUES[value[i]] < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Decodes an even length hex range into the destination buffer.
+     *
+     * @param value - characters.
+     * @param start - index of the first character.
+     * @param end   - index after the last character.
+     * @param dst   - destination buffer, must have room for {@code (end - start) / 2} bytes.
+     * @param at    - index of the first byte written.
+     * @return the index after the last byte written.
+     */
+    public static int decode(final CharSequence value, final int start, final int end, final byte[] dst, final int at) {
+        if (((end - start) & 1) != 0) {
+            throw new IllegalArgumentException(String.format("'%s' must have an even number of hex digits", value.subSequence(start, end)));
+        }
+        int j = at;
+        for (int i = start; i < end; i += 2) {
+            dst[j++] = (byte) ((nibble(value, i) << 4) | nibble(value, i + 1));
+        }
+        return j;
+    }
+
+    public static byte[] decode(final CharSequence value) {
+        Objects.requireNonNull(value, "value must not be null");
+        final byte[] result = new byte[value.length() >>> 1];
+        decode(value, 0, value.length(), result, 0);
+        return result;
+    }
+
+    /**
+     * Parses up to 16 hex digits into a long.
+     *
+     * @param value - characters.
+     * @param start - index of the first character.
+     * @param end   - index after the last character.
+     * @return the parsed value.
+     */
+    public static long parseLong(final CharSequence value, final int start, final int end) {
+        if (end - start > 16) {
+            throw new IllegalArgumentException("at most 16 hex digits fit in a long");
+        }
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            result = (result << 4) | nibble(value, i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the hex digit at the given index.
+     *
+     * @param value - characters.
+     * @param index - character index.
+     * @return the nibble value (0..15).
+     * @throws IllegalArgumentException if the character is not a hex digit.
+     */
+    public static int nibble(final CharSequence value, final int index) {
+        final char c = value.charAt(index);
+        final int v = digit(c);
+        if (v < 0) {
+            throw new IllegalArgumentException(String.format("Invalid hex digit '%c' at index %d of '%s'", c, index, value));
+        }
+        return v;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.contare.rfid.utils;
+
+import com.contare.rfid.objects.TagMetadata;
+
+/**
+ * Rssi
+ * <p>
+ * - Normalizes vendor RSSI values to centi-dBm (hundredths of dBm) stored in a {@code short},
+ * e.g. -58.37 dBm becomes -5837.
+ * - Parses decimal strings without {@code Double.parseDouble} or intermediate strings.
+ */
+public final class Rssi {
+
+    private Rssi() {
+        // no instantiation
+    }
+
+    public static short fromDbm(final int dbm) {
+        return clamp(dbm * 100L);
+    }
+
+    public static short fromDbm(final double dbm) {
+        if (Double.isNaN(dbm)) return TagMetadata.RSSI_UNKNOWN;
+        return clamp(Math.round(dbm * 100.0));
+    }
+
+    public static double toDbm(final short centiDbm) {
+        return centiDbm / 100.0;
+    }
+
+    /**
+     * Parses a decimal dBm string such as "-58", "-58.3" or "-58.37".
+     *
+     * @param value - decimal string, may be null.
+     * @return centi-dBm, or {@link TagMetadata#RSSI_UNKNOWN} if the value is null, empty or invalid.
+     */
+    public static short parse(final CharSequence value) {
+        return (value == null) ? TagMetadata.RSSI_UNKNOWN : parse(value, 0, value.length());
+    }
+
+    /**
+     * Parses a decimal dBm range.
+     *
+     * @param value - characters.
+     * @param start - index of the first character.
+     * @param end   - index after the last character.
+     * @return centi-dBm, or {@link TagMetadata#RSSI_UNKNOWN} if the range is empty or invalid.
+     */
+    public static short parse(final CharSequence value, int start, final int end) {
+        if (start >= end) return TagMetadata.RSSI_UNKNOWN;
+
+        boolean negative = false;
+        final char sign = value.charAt(start);
+        if (sign == '-' || sign == '+') {
+            negative = (sign == '-');
+            start++;
+        }
+
+        long integer = 0;
+        long fraction = 0;
+        int decimals = -1;      // -1 while no '.' was found
+        boolean digits = false;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (decimals < 0) {
+                    integer = integer * 10 + (c - '0');
+                    if (integer > Short.MAX_VALUE) return TagMetadata.RSSI_UNKNOWN;
+                } else if (decimals < 3) {
+                    fraction = fraction * 10 + (c - '0');
+                    decimals++;
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return TagMetadata.RSSI_UNKNOWN;
+            }
+        }
+        if (!digits) return TagMetadata.RSSI_UNKNOWN;
+
+        // scale the fraction to three digits, then round to two
+        for (int d = Math.max(decimals, 0); d < 3; d++) {
+            fraction *= 10;
+        }
+        final long centi = integer * 100 + (fraction + 5) / 10;
+        return clamp(negative ? -centi : centi);
+    }
+
+    private static short clamp(final long centiDbm) {
+        // RSSI_UNKNOWN (Short.MIN_VALUE) is reserved
+        if (centiDbm <= Short.MIN_VALUE) return Short.MIN_VALUE + 1;
+        if (centiDbm > Short.MAX_VALUE) return Short.MAX_VALUE;
+        return (short) centiDbm;
+    }
+
+}
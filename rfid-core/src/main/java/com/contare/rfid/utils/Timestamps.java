@@ -0,0 +1,89 @@
+package com.contare.rfid.utils;
+
+import java.time.Instant;
+
+/**
+ * Timestamps
+ * <p>
+ * - Tag reads are stamped with {@link System#nanoTime()}, which is cheap and monotonic.
+ * - This class converts those stamps to wall-clock time on demand, using an anchor taken once per JVM.
+ */
+public final class Timestamps {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // wall-clock (epoch nanos) and monotonic clock sampled at the same moment
+    private static final long ANCHOR_NANO_TIME;
+    private static final long ANCHOR_EPOCH_NANOS;
+
+    static {
+        final Instant now = Instant.now();
+        ANCHOR_NANO_TIME = System.nanoTime();
+        ANCHOR_EPOCH_NANOS = now.getEpochSecond() * NANOS_PER_SECOND + now.getNano();
+    }
+
+    private Timestamps() {
+        // no instantiation
+    }
+
+    /**
+     * Returns the current monotonic timestamp.
+     *
+     * @return {@link System#nanoTime()}.
+     */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Converts a {@link System#nanoTime()} stamp to nanoseconds since the epoch.
+     *
+     * @param nanoTime - monotonic stamp.
+     * @return nanoseconds since 1970-01-01T00:00:00Z.
+     */
+    public static long toEpochNanos(final long nanoTime) {
+        return ANCHOR_EPOCH_NANOS + (nanoTime - ANCHOR_NANO_TIME);
+    }
+
+    /**
+     * Converts a {@link System#nanoTime()} stamp to milliseconds since the epoch.
+     *
+     * @param nanoTime - monotonic stamp.
+     * @return milliseconds since 1970-01-01T00:00:00Z.
+     */
+    public static long toEpochMillis(final long nanoTime) {
+        return Math.floorDiv(toEpochNanos(nanoTime), 1_000_000L);
+    }
+
+    /**
+     * Converts a {@link System#nanoTime()} stamp to an {@link Instant}.
+     *
+     * @param nanoTime - monotonic stamp.
+     * @return the wall-clock instant.
+     */
+    public static Instant toInstant(final long nanoTime) {
+        final long epochNanos = toEpochNanos(nanoTime);
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+    }
+
+    /**
+     * Converts epoch milliseconds (e.g. a reader side timestamp) to a {@link System#nanoTime()} stamp.
+     *
+     * @param epochMillis - milliseconds since 1970-01-01T00:00:00Z.
+     * @return the equivalent monotonic stamp.
+     */
+    public static long fromEpochMillis(final long epochMillis) {
+        return ANCHOR_NANO_TIME + (epochMillis * 1_000_000L - ANCHOR_EPOCH_NANOS);
+    }
+
+    /**
+     * Converts epoch nanoseconds (e.g. a read recorded by a previous run) to a {@link System#nanoTime()} stamp.
+     *
+     * @param epochNanos - nanoseconds since 1970-01-01T00:00:00Z.
+     * @return the equivalent monotonic stamp.
+     */
+    public static long fromEpochNanos(final long epochNanos) {
+        return ANCHOR_NANO_TIME + (epochNanos - ANCHOR_EPOCH_NANOS);
+    }
+
+}
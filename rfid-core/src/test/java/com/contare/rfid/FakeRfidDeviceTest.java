@@ -1,10 +1,14 @@
 package com.contare.rfid;
 
 import com.contare.rfid.devices.FakeRfidDevice;
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class FakeRfidDeviceTest {
 
@@ -13,6 +17,43 @@ public class FakeRfidDeviceTest {
     public void EpcGeneratorReturnsValidSGTIN96() {
         final String result = FakeRfidDevice.EpcGenerator.generateSgtin("812345", 6789);
         assertEquals("3074257BF7194E4000001A85", result);
+        final Epc base = FakeRfidDevice.EpcGenerator.generateSgtinEpc("812345", 0);
+        assertEquals(result, FakeRfidDevice.EpcGenerator.generateSgtinEpc(base, 6789).toHex());
+    }
+
+    @Test
+    @DisplayName("Load generator instances keep their own buffer and report every distinct tag once")
+    public void LoadGenerator() throws Exception {
+        final FakeRfidDevice.Load load = FakeRfidDevice.Load.builder()
+            .population(50_000)
+            .rate(0)
+            .threads(4)
+            .duplicateRatio(0.3)
+            .seed(42L)
+            .build();
+        try (final FakeRfidDevice a = new FakeRfidDevice(load); final FakeRfidDevice b = new FakeRfidDevice(load)) {
+            final LongAdder reported = new LongAdder();
+            a.setCallback((event) -> {
+                if (event instanceof RfidDevice.TagEvent) reported.increment();
+            });
+            a.connect(RfidDevice.Options.builder().build());
+            b.connect(RfidDevice.Options.builder().build());
+
+            assertTrue(a.startInventory());
+            final long deadline = System.currentTimeMillis() + 5_000;
+            while (a.getDistinct() < 50_000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(a.stopInventory());
+            assertFalse(a.stopInventory());
+
+            assertEquals(50_000, a.getDistinct());
+            assertEquals(50_000, a.getStats().size());
+            assertEquals(50_000, reported.sum());
+            assertTrue(a.getGenerated() > 50_000);
+            assertTrue(b.getStats().isEmpty());
+            assertEquals(0, b.getGenerated());
+        }
     }
 
 }
@@ -0,0 +1,129 @@
+package com.contare.rfid.buffer;
+
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.objects.TagStats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeLogTest {
+
+    @Test
+    @DisplayName("Every slot is returned once, at its newest sequence, while old chunks are compacted and dropped")
+    public void CompactAndDrop() {
+        final ChangeLog log = new ChangeLog();
+        final TagSlot[] slots = slots(0x30740000L, 5_000);
+        for (TagSlot slot : slots) {
+            log.stamp(slot);
+        }
+        long cursor = assertChanges(log, 0, slots.length);
+
+        // every slot moves forward: the first chunks die and are dropped
+        for (TagSlot slot : slots) {
+            log.touch(slot);
+        }
+        cursor = assertChanges(log, cursor, slots.length);
+
+        // four out of five move forward again: the chunks they leave are compacted around the fifth
+        for (int i = 0; i < slots.length; i++) {
+            if (i % 5 != 0) log.touch(slots[i]);
+        }
+        assertChanges(log, cursor, slots.length - slots.length / 5);
+        assertChanges(log, 0, slots.length);
+
+        for (int i = 0; i < slots.length; i += 2) {
+            log.remove(slots[i]);
+        }
+        assertChanges(log, 0, slots.length / 2);
+        assertEquals(3 * slots.length - slots.length / 5, log.getSequence());
+    }
+
+    @Test
+    @DisplayName("A poller racing the stampers never misses the newest change of a slot")
+    public void ConcurrentStamps() throws Exception {
+        final ChangeLog log = new ChangeLog();
+        final int threads = 4;
+        final int count = 20_000;
+        final TagSlot[][] slots = new TagSlot[threads][];
+        for (int t = 0; t < threads; t++) {
+            slots[t] = slots(0xE2000000L + t, count);
+        }
+
+        final Map<Epc, Long> seen = new HashMap<>();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> stampers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final TagSlot[] own = slots[t];
+                stampers.add(pool.submit(() -> {
+                    for (TagSlot slot : own) {
+                        log.stamp(slot);
+                    }
+                    for (int round = 0; round < 5; round++) {
+                        for (TagSlot slot : own) {
+                            log.touch(slot);
+                        }
+                    }
+                }));
+            }
+            long cursor = 0;
+            boolean done = false;
+            while (!done) {
+                done = stampers.stream().allMatch(Future::isDone);
+                // drain completely once the stampers are done
+                for (List<TagStats> changes = log.since(cursor, 1_000); !changes.isEmpty(); changes = log.since(cursor, 1_000)) {
+                    for (TagStats stats : changes) {
+                        assertTrue(stats.getSequence() > cursor);
+                        cursor = stats.getSequence();
+                        seen.put(stats.getEpc(), cursor);
+                    }
+                }
+            }
+            for (Future<?> stamper : stampers) {
+                stamper.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(threads * count, seen.size());
+        for (TagSlot[] own : slots) {
+            for (TagSlot slot : own) {
+                assertEquals(slot.getSequence(), seen.get(slot.getTag().getEpc()));
+            }
+        }
+    }
+
+    // HELPERS
+    private static TagSlot[] slots(final long high, final int count) {
+        final TagSlot[] slots = new TagSlot[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = new TagSlot(new TagMetadata(Epc.of96(high, i), null, (short) -5000, 1, i));
+        }
+        return slots;
+    }
+
+    // returns the last sequence after checking the changes hold the expected number of distinct slots, in order
+    private static long assertChanges(final ChangeLog log, final long after, final int expected) {
+        final List<TagStats> changes = log.since(after, Integer.MAX_VALUE);
+        assertEquals(expected, changes.size());
+        assertEquals(expected, changes.stream().map(TagStats::getEpc).distinct().count());
+        long previous = after;
+        for (TagStats stats : changes) {
+            assertTrue(stats.getSequence() > previous);
+            previous = stats.getSequence();
+        }
+        return previous;
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.contare.rfid.buffer;
+
+import com.contare.rfid.objects.Epc;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpcTableTest {
+
+    @Test
+    @DisplayName("Insert, lookup and remove across segment resizes")
+    public void InsertLookupRemove() {
+        final EpcTable<Value> table = new EpcTable<>(0, 4);
+        final int count = 10_000;
+
+        for (int i = 0; i < count; i++) {
+            assertNull(table.putIfAbsent(Epc.of96(0x30740000L, i), new Value(Epc.of96(0x30740000L, i), i)));
+        }
+        assertEquals(count, table.size());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, table.putIfAbsent(Epc.of96(0x30740000L, i), new Value(Epc.of96(0x30740000L, i), -1)).number);
+        }
+
+        // remove every other epc, the remaining ones must still be reachable
+        for (int i = 0; i < count; i += 2) {
+            assertEquals(i, table.remove(Epc.of96(0x30740000L, i)).number);
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals((i % 2 == 0) ? null : i, number(table.get(Epc.of96(0x30740000L, i))));
+        }
+        assertEquals(count / 2, table.size());
+
+        table.clear();
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Concurrent inserts of the same EPCs keep a single slot per EPC")
+    public void ConcurrentInserts() throws Exception {
+        final EpcTable<Value> table = new EpcTable<>();
+        final AtomicInteger inserted = new AtomicInteger();
+        final int threads = 4;
+        final int count = 50_000;
+
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < count; i++) {
+                        if (table.putIfAbsent(Epc.of96(0xE2000000L, i), new Value(Epc.of96(0xE2000000L, i), i)) == null) {
+                            inserted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(count, inserted.get());
+        assertEquals(count, table.size());
+    }
+
+    @Test
+    @DisplayName("Lock-free lookups keep finding stable EPCs while others are inserted, shifted and resized")
+    public void LookupsDuringWrites() throws Exception {
+        final EpcTable<Value> table = new EpcTable<>(0, 1);
+        final int stable = 1_000;
+        final int churn = 20_000;
+        // stable EPCs inserted after the churn ones sit past them, so removals shift them back
+        for (int i = 0; i < churn; i++) {
+            table.putIfAbsent(Epc.of96(0xE2000000L, i), new Value(Epc.of96(0xE2000000L, i), -i));
+        }
+        for (int i = 0; i < stable; i++) {
+            table.putIfAbsent(Epc.of96(0x30740000L, i), new Value(Epc.of96(0x30740000L, i), i));
+        }
+
+        final AtomicInteger missed = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            final Future<?> writer = pool.submit(() -> {
+                for (int round = 0; round < 5; round++) {
+                    for (int i = 0; i < churn; i++) {
+                        table.remove(Epc.of96(0xE2000000L, i));
+                    }
+                    for (int i = 0; i < churn; i++) {
+                        table.putIfAbsent(Epc.of96(0xE2000000L, i), new Value(Epc.of96(0xE2000000L, i), -i));
+                    }
+                }
+            });
+            final List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                readers.add(pool.submit(() -> {
+                    while (!writer.isDone()) {
+                        for (int i = 0; i < stable; i++) {
+                            final Value value = table.get(Epc.of96(0x30740000L, i));
+                            if (value == null || value.number != i) {
+                                missed.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+            }
+            writer.get();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, missed.get());
+        assertEquals(stable + churn, table.size());
+    }
+
+    @Test
+    @DisplayName("Snapshots keep their entries while the table is written, resized and cleared")
+    public void SnapshotIsolation() {
+        final EpcTable<Value> table = new EpcTable<>(0, 4);
+        for (int i = 0; i < 1_000; i++) {
+            table.putIfAbsent(Epc.of96(0x30740000L, i), new Value(Epc.of96(0x30740000L, i), i));
+        }
+
+        final EpcTable.Snapshot<Value> first = table.snapshot();
+        for (int i = 0; i < 1_000; i += 2) {
+            table.remove(Epc.of96(0x30740000L, i));
+        }
+        final EpcTable.Snapshot<Value> second = table.snapshot();
+        for (int i = 1_000; i < 5_000; i++) {
+            table.putIfAbsent(Epc.of96(0x30740000L, i), new Value(Epc.of96(0x30740000L, i), i));
+        }
+        table.clear();
+
+        assertEquals(1_000, first.size());
+        assertEquals(500, second.size());
+        final AtomicInteger visited = new AtomicInteger();
+        first.forEach(value -> visited.incrementAndGet());
+        assertEquals(1_000, visited.get());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(i, number(first.get(Epc.of96(0x30740000L, i))));
+            assertEquals((i % 2 == 0) ? null : i, number(second.get(Epc.of96(0x30740000L, i))));
+        }
+        assertNull(first.get(Epc.of96(0x30740000L, 1_000)));
+        assertTrue(table.isEmpty());
+    }
+
+    // HELPERS
+    private static Integer number(final Value value) {
+        return (value != null) ? value.number : null;
+    }
+
+    // NESTED TYPES
+    private static final class Value implements EpcTable.Entry {
+
+        private final Epc epc;
+        private final int number;
+
+        private Value(final Epc epc, final int number) {
+            this.epc = epc;
+            this.number = number;
+        }
+
+        @Override
+        public boolean hasEpc(final Epc epc) {
+            return this.epc.equals(epc);
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.contare.rfid.buffer;
+
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.objects.TagStats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagSlotTest {
+
+    @Test
+    @DisplayName("Aggregate count, rssi, first/last seen and antennas")
+    public void Aggregate() {
+        final Epc epc = Epc.fromHex("E2801160600002054C7A1D3A");
+        final TagSlot slot = new TagSlot(new TagMetadata(epc, null, (short) -6000, 1, 1_000L));
+
+        slot.record((short) -5000, 2, 3_000L);
+        slot.record(TagMetadata.RSSI_UNKNOWN, TagMetadata.ANTENNA_UNKNOWN, 2_000L);
+        slot.record((short) -7000, 64, 4_000L);
+
+        final TagStats stats = slot.snapshot();
+        assertEquals(epc, stats.getEpc());
+        assertEquals(4, stats.getReads());
+        assertEquals(-7000, stats.getMinRssi());
+        assertEquals(-5000, stats.getMaxRssi());
+        assertEquals(-6000, stats.getMeanRssi());
+        assertEquals(-60.0, stats.getMeanRssiDbm(), 1e-9);
+        assertEquals(1_000L, stats.getFirstSeen());
+        assertEquals(4_000L, stats.getLastSeen());
+        assertTrue(stats.hasAntenna(1));
+        assertTrue(stats.hasAntenna(2));
+        assertTrue(stats.hasAntenna(64));
+        assertFalse(stats.hasAntenna(3));
+    }
+
+    @Test
+    @DisplayName("Stats without rssi")
+    public void NoRssi() {
+        final Epc epc = Epc.of96(0x30740000L, 1);
+        final TagSlot slot = new TagSlot(new TagMetadata(epc, null, TagMetadata.RSSI_UNKNOWN, TagMetadata.ANTENNA_UNKNOWN, 0L));
+
+        final TagStats stats = slot.snapshot();
+        assertEquals(1, stats.getReads());
+        assertFalse(stats.hasRssi());
+        assertEquals(TagMetadata.RSSI_UNKNOWN, stats.getMeanRssi());
+        assertTrue(Double.isNaN(stats.getMeanRssiDbm()));
+        assertEquals(0L, stats.getAntennas());
+    }
+
+    @Test
+    @DisplayName("The reported read is rebuilt from the inline fields, or kept when they cannot hold it")
+    public void Reported() {
+        final TagMetadata inline = new TagMetadata(Epc.of96(0x30740000L, 7), null, (short) -5837, 4, 1_000L);
+        final TagMetadata withTid = new TagMetadata(Epc.of96(0x30740000L, 8), "E2003412", (short) -5837, 4, 1_000L);
+        final TagMetadata farAntenna = new TagMetadata(Epc.of96(0x30740000L, 9), null, (short) -5837, 200, 1_000L);
+        final TagMetadata longEpc = new TagMetadata(Epc.fromHex("E2801160600002054C7A1D3A00112233445566778899"), null, (short) -5837, 4, 1_000L);
+
+        for (TagMetadata tag : new TagMetadata[]{ inline, withTid, farAntenna, longEpc }) {
+            final TagSlot slot = new TagSlot(tag);
+            slot.record((short) -4000, 2, 2_000L);
+            assertEquals(tag, slot.getTag());
+            assertEquals(tag.getEpc(), slot.getEpc());
+            assertTrue(slot.hasEpc(tag.getEpc()));
+            assertTrue(slot.isReported(tag));
+            assertFalse(slot.isReported(new TagMetadata(tag.getEpc(), tag.getTid(), (short) -4000, 2, 2_000L)));
+            assertFalse(slot.hasEpc(Epc.of96(0x30740000L, 10)));
+        }
+    }
+
+}
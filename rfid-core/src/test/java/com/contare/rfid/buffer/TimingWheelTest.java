@@ -0,0 +1,100 @@
+package com.contare.rfid.buffer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 1_000;
+
+    private static final class Timer extends TimingWheel.Node {
+
+        private final long deadline;
+
+        private Timer(final long deadline) {
+            this.deadline = deadline;
+        }
+
+    }
+
+    @Test
+    @DisplayName("Nodes expire on the tick of their deadline, across every level")
+    public void ExpireAcrossLevels() {
+        final long origin = 123_456_789L;
+        final TimingWheel<Timer> wheel = new TimingWheel<>(TICK, origin);
+
+        final long[] delays = { 1, 5, 63, 64, 65, 4_095, 4_096, 70_000, 300_000, 17_000_000, 20_000_000 };
+        for (long delay : delays) {
+            final Timer timer = new Timer(origin + delay * TICK);
+            wheel.schedule(timer, timer.deadline);
+        }
+        assertEquals(delays.length, wheel.size());
+
+        final List<Long> expired = new ArrayList<>();
+        for (long tick = 1; tick <= 20_000_000; tick += 1 + (tick / 1_000)) {
+            final long now = origin + tick * TICK;
+            wheel.advance(now, (timer) -> {
+                assertTrue(timer.deadline <= now, "expired before its deadline");
+                expired.add((timer.deadline - origin) / TICK);
+            });
+        }
+        wheel.advance(origin + 20_000_000 * TICK, (timer) -> expired.add((timer.deadline - origin) / TICK));
+
+        assertEquals(delays.length, expired.size());
+        for (int i = 0; i < delays.length; i++) {
+            assertEquals(delays[i], expired.get(i));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Cancelled and re-scheduled nodes")
+    public void CancelAndReschedule() {
+        final TimingWheel<Timer> wheel = new TimingWheel<>(TICK, 0);
+        final Timer a = new Timer(10 * TICK);
+        final Timer b = new Timer(10 * TICK);
+
+        wheel.schedule(a, 10 * TICK);
+        wheel.schedule(b, 10 * TICK);
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+
+        // re-schedule b further away, from inside the expiry callback
+        final List<Timer> expired = new ArrayList<>();
+        wheel.advance(10 * TICK, (timer) -> {
+            expired.add(timer);
+            if (expired.size() == 1) {
+                wheel.schedule(timer, 20 * TICK);
+            }
+        });
+        assertEquals(1, expired.size());
+        assertTrue(b.isScheduled());
+
+        wheel.advance(19 * TICK, (timer) -> fail("expired too early"));
+        wheel.advance(20 * TICK, expired::add);
+        assertEquals(2, expired.size());
+        assertFalse(b.isScheduled());
+    }
+
+    @Test
+    @DisplayName("Deadlines in the past expire on the next tick")
+    public void PastDeadline() {
+        final TimingWheel<Timer> wheel = new TimingWheel<>(TICK, 0);
+        wheel.advance(100 * TICK, (timer) -> fail("wheel is empty"));
+
+        final Timer timer = new Timer(5 * TICK);
+        wheel.schedule(timer, timer.deadline);
+
+        final List<Timer> expired = new ArrayList<>();
+        wheel.advance(100 * TICK, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(101 * TICK, expired::add);
+        assertEquals(1, expired.size());
+    }
+
+}
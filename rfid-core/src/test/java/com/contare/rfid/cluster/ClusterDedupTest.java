@@ -0,0 +1,67 @@
+package com.contare.rfid.cluster;
+
+import com.contare.rfid.objects.Epc;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterDedupTest {
+
+    private static ClusterDedup node() throws Exception {
+        return new ClusterDedup(ClusterDedup.Options.builder().host("127.0.0.1").gossipInterval(10).build()).start();
+    }
+
+    private static void await(final ClusterDedup node, final long received) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (node.getReceived() < received && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Tags claimed by a peer on localhost are suppressed")
+    public void Gossip() throws Exception {
+        try (final ClusterDedup a = node(); final ClusterDedup b = node()) {
+            final InetSocketAddress addressA = a.getLocalAddress();
+            final InetSocketAddress addressB = b.getLocalAddress();
+            a.addPeer(addressB);
+            b.addPeer(addressA);
+
+            final int tags = 1_000;
+            for (int i = 0; i < tags; i++) {
+                assertTrue(a.claim(Epc.of96(0x30740000L, i)));
+            }
+            await(b, tags);
+            assertEquals(tags, b.getReceived());
+
+            for (int i = 0; i < tags; i++) {
+                assertFalse(b.claim(Epc.of96(0x30740000L, i)));
+            }
+            assertTrue(b.claim(Epc.of96(0x30740000L, tags)));
+            assertEquals(tags, b.getSuppressed());
+            assertEquals(1, b.getClaimed());
+
+            await(a, 1);
+            assertFalse(a.claim(Epc.of96(0x30740000L, tags)));
+        }
+    }
+
+    @Test
+    @DisplayName("Rotating bloom filter forgets digests after its generations")
+    public void Rotate() {
+        final RotatingBloomFilter filter = new RotatingBloomFilter(1 << 16, 4, 3);
+        final long digest = ClusterDedup.digest(Epc.of96(0x30740000L, 1));
+        filter.add(digest);
+        assertTrue(filter.mightContain(digest));
+        filter.rotate();
+        filter.rotate();
+        assertTrue(filter.mightContain(digest));
+        filter.rotate();
+        assertFalse(filter.mightContain(digest));
+        assertFalse(filter.mightContain(ClusterDedup.digest(Epc.of96(0x30740000L, 2))));
+    }
+
+}
@@ -0,0 +1,374 @@
+package com.contare.rfid.devices;
+
+import com.contare.rfid.buffer.BufferSnapshot;
+import com.contare.rfid.jfr.DispatchWaitEvent;
+import com.contare.rfid.jfr.SdkCallEvent;
+import com.contare.rfid.jfr.TagIngestEvent;
+import com.contare.rfid.metrics.DeviceLatency;
+import com.contare.rfid.metrics.DeviceMetrics;
+import com.contare.rfid.metrics.Metrics;
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.objects.TagStats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferedRfidDeviceTest {
+
+    @Test
+    @DisplayName("Tag sink sees every read, typed callbacks follow the event callback")
+    public void SinkAndCallbacks() throws Exception {
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(RfidDevice.Options.builder().readerId(7).build());
+
+            final List<long[]> reads = new ArrayList<>();
+            device.setTagSink((reader, high, low, length, rssi, antenna, nanos) -> reads.add(new long[]{ reader, high, low, length, rssi, antenna }));
+            final List<RfidDevice.Status> statuses = new ArrayList<>();
+            device.setStatusCallback(statuses::add);
+            final List<RfidDevice.Event> events = new ArrayList<>();
+            device.setCallback(events::add);
+
+            final Epc epc = Epc.of96(0x30740000L, 42);
+            assertTrue(device.read(epc, (short) -5000, 1));
+            assertFalse(device.read(epc, (short) -4000, 2));
+            device.dispatch(new RfidDevice.StatusEvent(RfidDevice.Status.CONNECTED));
+
+            assertEquals(2, reads.size());
+            assertArrayEquals(new long[]{ 7, 0x30740000L, 42, 12, -5000, 1 }, reads.get(0));
+            assertArrayEquals(new long[]{ 7, 0x30740000L, 42, 12, -4000, 2 }, reads.get(1));
+            assertEquals(2, events.size());
+            assertEquals(List.of(RfidDevice.Status.CONNECTED), statuses);
+
+            device.setTagSink(null);
+            device.read(epc, (short) -3000, 3);
+            assertEquals(2, reads.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Sliding dedup reports a tag again after it was absent for the ttl, even on a quiet reader")
+    public void Sliding() throws Exception {
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(RfidDevice.Options.builder().dedup(RfidDevice.Dedup.SLIDING).reportTtl(200).build());
+            final Epc epc = Epc.of96(0x30740000L, 42);
+
+            assertTrue(device.read(epc, (short) -5000, 1));
+            Thread.sleep(100);
+            assertFalse(device.read(epc, (short) -5000, 1));
+            Thread.sleep(100);
+            // seen 100 ms ago, the ttl slides with every read
+            assertFalse(device.read(epc, (short) -5000, 1));
+
+            Thread.sleep(600);
+            assertTrue(device.read(epc, (short) -4000, 2));
+            assertFalse(device.read(epc, (short) -4000, 2));
+            assertEquals(1, device.getBuffer().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Vendor fields are only decoded for duplicates, or for every read with a tag sink")
+    public void DecodeOnHit() throws Exception {
+        final int[] decoded = new int[1];
+        final BufferedRfidDevice.ReadFields<String> fields = new BufferedRfidDevice.ReadFields<>() {
+            @Override
+            public short rssi(final String read) {
+                decoded[0]++;
+                return Short.parseShort(read);
+            }
+
+            @Override
+            public int antenna(final String read) {
+                return 1;
+            }
+        };
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(RfidDevice.Options.builder().build());
+            final Epc epc = Epc.of96(0x30740000L, 42);
+
+            assertFalse(device.isBuffered(epc, "-5000", fields, System.nanoTime()));
+            assertEquals(0, decoded[0]);
+            device.buffer(new TagMetadata(epc, null, (short) -5000, 1, System.nanoTime()));
+            assertTrue(device.isBuffered(epc, "-4000", fields, System.nanoTime()));
+            assertEquals(1, decoded[0]);
+            assertEquals(2, device.getStats(epc).getReads());
+
+            device.setTagSink((reader, high, low, length, rssi, antenna, nanos) -> { });
+            assertFalse(device.isBuffered(Epc.of96(0x30740000L, 43), "-3000", fields, System.nanoTime()));
+            assertEquals(2, decoded[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Changes since a sequence return new and updated tags only, in order")
+    public void ChangesSince() throws Exception {
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(RfidDevice.Options.builder().build());
+            final Epc a = Epc.of96(0x30740000L, 1);
+            final Epc b = Epc.of96(0x30740000L, 2);
+            final Epc c = Epc.of96(0x30740000L, 3);
+            device.read(a, (short) -5000, 1);
+            device.read(b, (short) -5000, 1);
+            device.read(c, (short) -5000, 1);
+
+            final List<TagStats> first = device.changesSince(0, 2);
+            assertEquals(2, first.size());
+            assertEquals(a, first.get(0).getEpc());
+            assertEquals(b, first.get(1).getEpc());
+            final List<TagStats> rest = device.changesSince(first.get(1).getSequence(), 100);
+            assertEquals(1, rest.size());
+            assertEquals(c, rest.get(0).getEpc());
+            final long cursor = rest.get(0).getSequence();
+            assertEquals(cursor, device.getSequence());
+            assertTrue(device.changesSince(cursor, 100).isEmpty());
+
+            // updates after the poll move the tag forward, once however many reads
+            device.read(b, (short) -4000, 2);
+            device.read(a, (short) -4000, 2);
+            device.read(b, (short) -3000, 3);
+            final List<TagStats> updated = device.changesSince(cursor, 100);
+            assertEquals(2, updated.size());
+            assertEquals(b, updated.get(0).getEpc());
+            assertEquals(3, updated.get(0).getReads());
+            assertEquals(a, updated.get(1).getEpc());
+            assertTrue(updated.get(1).getSequence() > updated.get(0).getSequence());
+        }
+    }
+
+    @Test
+    @DisplayName("Rotation seals every read in exactly one epoch while readers keep going")
+    public void Rotate() throws Exception {
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(RfidDevice.Options.builder().build());
+            final int threads = 4;
+            final int reads = 50_000;
+
+            final List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final long prefix = 0x30740000L + t;
+                final Thread reader = new Thread(() -> {
+                    for (int i = 0; i < reads; i++) {
+                        device.read(Epc.of96(prefix, i), (short) -5000, 1);
+                    }
+                });
+                readers.add(reader);
+                reader.start();
+            }
+
+            final List<BufferSnapshot> snapshots = new ArrayList<>();
+            final List<Integer> sizes = new ArrayList<>();
+            while (readers.stream().anyMatch(Thread::isAlive)) {
+                final BufferSnapshot snapshot = device.rotate();
+                snapshots.add(snapshot);
+                sizes.add(snapshot.size());
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            snapshots.add(device.rotate());
+            sizes.add(snapshots.get(snapshots.size() - 1).size());
+
+            int total = 0;
+            for (int i = 0; i < snapshots.size(); i++) {
+                assertEquals(i, snapshots.get(i).getEpoch());
+                // sealed epochs never change after rotate returned
+                assertEquals(sizes.get(i), snapshots.get(i).size());
+                total += snapshots.get(i).size();
+            }
+            assertEquals(threads * reads, total);
+            assertTrue(device.getStats().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots keep their tags while the live buffer keeps changing")
+    public void Snapshot() throws Exception {
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(RfidDevice.Options.builder().build());
+            for (int i = 0; i < 1_000; i++) {
+                device.read(Epc.of96(0x30740000L, i), (short) -5000, 1);
+            }
+            final BufferSnapshot snapshot = device.snapshot();
+            for (int i = 1_000; i < 2_000; i++) {
+                device.read(Epc.of96(0x30740000L, i), (short) -5000, 1);
+            }
+            device.read(Epc.of96(0x30740000L, 0), (short) -4000, 2);
+
+            assertEquals(1_000, snapshot.size());
+            assertEquals(1_000, snapshot.getTags().size());
+            assertTrue(snapshot.contains(Epc.of96(0x30740000L, 999)));
+            assertFalse(snapshot.contains(Epc.of96(0x30740000L, 1_000)));
+            assertEquals(2, snapshot.getStats(Epc.of96(0x30740000L, 0)).getReads());
+            assertEquals(2_000, device.snapshot().size());
+        }
+    }
+
+    @Test
+    @DisplayName("The journal rebuilds the buffer of a device that died, without reporting it again")
+    public void Journal(@TempDir final Path directory) throws Exception {
+        final RfidDevice.Options opts = RfidDevice.Options.builder()
+            .journal(RfidDevice.Journal.RAW)
+            .journalDirectory(directory.toString())
+            .build();
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(opts);
+            device.read(Epc.of96(0x30740000L, 1), (short) -5000, 1);
+            device.read(Epc.of96(0x30740000L, 2), (short) -5000, 1);
+            device.read(Epc.of96(0x30740000L, 1), (short) -4000, 2);
+        }
+
+        try (final TestDevice device = new TestDevice()) {
+            final List<RfidDevice.Event> events = new ArrayList<>();
+            device.setCallback(events::add);
+            device.connect(opts);
+            assertEquals(2, device.getStats().size());
+            assertEquals(2, device.getStats(Epc.of96(0x30740000L, 1)).getReads());
+            assertFalse(device.read(Epc.of96(0x30740000L, 2), (short) -5000, 1));
+            assertTrue(events.isEmpty());
+
+            // a cleared buffer stays cleared after a crash
+            device.clearBuffer();
+            device.read(Epc.of96(0x30740000L, 3), (short) -5000, 1);
+        }
+
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(opts);
+            assertEquals(1, device.getStats().size());
+            assertNotNull(device.getStats(Epc.of96(0x30740000L, 3)));
+        }
+    }
+
+    @Test
+    @DisplayName("Reads, duplicates and callbacks are counted, metrics are registered while connected")
+    public void Metrics() throws Exception {
+        final DeviceMetrics metrics;
+        try (final TestDevice device = new TestDevice()) {
+            metrics = device.getMetrics();
+            assertFalse(Metrics.getSources().contains(metrics));
+            device.connect(RfidDevice.Options.builder().readerId(9).build());
+            assertTrue(Metrics.getSources().contains(metrics));
+            assertEquals("9", metrics.getLabels().get("reader"));
+
+            final long callbacks = metrics.getCallbacks();
+            device.read(Epc.of96(0x30740000L, 1), (short) -5000, 1);
+            device.read(Epc.of96(0x30740000L, 2), (short) -5000, 1);
+            device.read(Epc.of96(0x30740000L, 1), (short) -4000, 2);
+            device.read(Epc.of96(0x30740000L, 1), (short) -4000, 3);
+
+            assertEquals(4, metrics.getReads());
+            assertEquals(2, metrics.getUnique());
+            assertEquals(2, metrics.getDuplicates());
+            assertEquals(callbacks + 2, metrics.getCallbacks());
+            assertTrue(metrics.getCallbackMaxNanos() <= metrics.getCallbackNanos());
+
+            final List<String> gauges = new ArrayList<>();
+            metrics.collect(new DeviceMetrics.Visitor() {
+                @Override
+                public void counter(final String name, final String help, final double value) {
+                }
+
+                @Override
+                public void gauge(final String name, final String help, final double value) {
+                    gauges.add(name + "=" + (long) value);
+                }
+            });
+            assertTrue(gauges.contains("rfid_buffer_tags=2"));
+            assertTrue(gauges.contains("rfid_queue_depth=0"));
+        }
+        assertFalse(Metrics.getSources().contains(metrics));
+    }
+
+    @Test
+    @DisplayName("Latency is tracked per stage only when enabled, and exported as summaries")
+    public void Latency() throws Exception {
+        try (final TestDevice device = new TestDevice()) {
+            device.connect(RfidDevice.Options.builder().readerId(13).build());
+            assertNull(device.getLatency());
+
+            device.connect(RfidDevice.Options.builder().readerId(13).trackLatency(true).build());
+            final DeviceLatency latency = device.getLatency();
+            assertNotNull(latency);
+            device.read(Epc.of96(0x30740000L, 1), (short) -5000, 1);
+            device.read(Epc.of96(0x30740000L, 2), (short) -5000, 1);
+            device.read(Epc.of96(0x30740000L, 1), (short) -4000, 2);
+
+            assertEquals(3, latency.get(DeviceLatency.Stage.PARSE).getCount());
+            assertEquals(5, latency.get(DeviceLatency.Stage.DEDUP).getCount()); // three lookups, two inserts
+            assertEquals(2, latency.get(DeviceLatency.Stage.END_TO_END).getCount());
+            assertEquals(2, latency.get(DeviceLatency.Stage.CALLBACK).getCount());
+            assertEquals(0, latency.get(DeviceLatency.Stage.READER).getCount());
+
+            final List<String> summaries = new ArrayList<>();
+            device.getMetrics().collect(new DeviceMetrics.Visitor() {
+                @Override
+                public void counter(final String name, final String help, final double value) {
+                }
+
+                @Override
+                public void gauge(final String name, final String help, final double value) {
+                }
+
+                @Override
+                public void summary(final String name, final String help, final double[] quantiles, final double[] values, final long count, final double sum) {
+                    summaries.add(name + "=" + count);
+                }
+            });
+            assertTrue(summaries.contains("rfid_latency_end_to_end_seconds=2"), summaries.toString());
+            assertTrue(summaries.contains("rfid_latency_reader_seconds=0"), summaries.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("SDK calls, ingest batches and dispatch waits reach a flight recording")
+    public void FlightRecorder(@TempDir final Path directory) throws Exception {
+        final Path file = directory.resolve("rfid.jfr");
+        try (final Recording recording = new Recording()) {
+            recording.enable(SdkCallEvent.NAME);
+            recording.enable(TagIngestEvent.NAME);
+            recording.enable(DispatchWaitEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            try (final TestDevice device = new TestDevice()) {
+                device.connect(RfidDevice.Options.builder().readerId(11).build());
+                final SdkCallEvent call = device.beginSdkCall("setPower");
+                assertFalse(device.endSdkCall(call, false));
+
+                final TagIngestEvent ingest = device.beginIngest();
+                device.read(Epc.of96(0x30740000L, 1), (short) -5000, 1);
+                device.read(Epc.of96(0x30740000L, 1), (short) -5000, 2);
+                device.endIngest(ingest, 2, 1);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+            .filter((event) -> event.getEventType().getName().startsWith("com.contare.rfid."))
+            .filter((event) -> event.getInt("reader") == 11)
+            .collect(Collectors.toList());
+
+        final RecordedEvent call = events.stream().filter((event) -> event.getEventType().getName().equals(SdkCallEvent.NAME)).findFirst().orElseThrow();
+        assertEquals("setPower", call.getString("operation"));
+        assertEquals("TestDevice", call.getString("device"));
+        assertFalse(call.getBoolean("succeeded"));
+
+        final RecordedEvent ingest = events.stream().filter((event) -> event.getEventType().getName().equals(TagIngestEvent.NAME)).findFirst().orElseThrow();
+        assertEquals(2, ingest.getInt("reads"));
+        assertEquals(1, ingest.getInt("tags"));
+
+        assertTrue(events.stream().anyMatch((event) -> event.getEventType().getName().equals(DispatchWaitEvent.NAME)
+            && "TagEvent".equals(event.getString("eventType"))));
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.contare.rfid.devices;
+
+import com.contare.rfid.objects.Epc;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceGroupTest {
+
+    @Test
+    @DisplayName("Tags read by many readers are reported once, by the first reader")
+    public void Dedup() throws Exception {
+        final TestDevice a = new TestDevice();
+        final TestDevice b = new TestDevice();
+        a.connect(RfidDevice.Options.builder().readerId(1).build());
+        b.connect(RfidDevice.Options.builder().readerId(2).build());
+        try (final DeviceGroup group = new DeviceGroup().add(a).add(b)) {
+            final List<DeviceGroup.ReaderEvent> events = Collections.synchronizedList(new ArrayList<>());
+            group.setCallback(events::add);
+
+            final Epc shared = Epc.of96(0x30740000L, 1);
+            final Epc only = Epc.of96(0x30740000L, 2);
+            a.read(shared, (short) -5000, 1);
+            b.read(shared, (short) -4000, 1);
+            b.read(only, (short) -4000, 2);
+            b.dispatch(new RfidDevice.StatusEvent(RfidDevice.Status.CONNECTED));
+
+            assertEquals(3, events.size());
+            assertEquals(1, events.get(0).getReader());
+            assertSame(a, events.get(0).getDevice());
+            assertEquals(shared, ((RfidDevice.TagEvent) events.get(0).getEvent()).getTag().getEpc());
+            assertEquals(2, events.get(1).getReader());
+            assertEquals(only, ((RfidDevice.TagEvent) events.get(1).getEvent()).getTag().getEpc());
+            assertTrue(events.get(2).getEvent() instanceof RfidDevice.StatusEvent);
+
+            assertEquals(2, group.size());
+            assertEquals(1, group.getClaim(shared).getReader());
+            assertEquals(0b11, group.getClaim(shared).getSeenBy());
+            assertEquals(1, group.getStats(a).getFirst());
+            assertEquals(1, group.getStats(b).getFirst());
+            assertEquals(1, group.getStats(b).getDuplicates());
+
+            group.clearBuffer();
+            assertEquals(0, group.size());
+            b.read(shared, (short) -4000, 1);
+            assertEquals(2, group.getClaim(shared).getReader());
+        }
+    }
+
+    @Test
+    @DisplayName("Claims follow the buffer of the reader that made them, reader ids are read per event")
+    public void Release() throws Exception {
+        final TestDevice a = new TestDevice();
+        final TestDevice b = new TestDevice();
+        a.connect(RfidDevice.Options.builder().readerId(1).dedup(RfidDevice.Dedup.SLIDING).reportTtl(200).build());
+        b.connect(RfidDevice.Options.builder().readerId(2).build());
+        try (final DeviceGroup group = new DeviceGroup().add(a).add(b)) {
+            final List<DeviceGroup.ReaderEvent> events = Collections.synchronizedList(new ArrayList<>());
+            group.setCallback(events::add);
+            final Epc epc = Epc.of96(0x30740000L, 1);
+
+            // sliding re-report of the owner after the ttl is a new claim, not a duplicate
+            a.read(epc, (short) -5000, 1);
+            Thread.sleep(400);
+            assertTrue(a.read(epc, (short) -5000, 1));
+            assertEquals(2, events.size());
+            assertEquals(0, group.getStats(a).getDuplicates());
+            assertEquals(1, group.size());
+
+            // the owner cleared its buffer, another reader claims the tag
+            a.clearBuffer();
+            b.read(epc, (short) -4000, 2);
+            assertEquals(3, events.size());
+            assertEquals(2, group.getClaim(epc).getReader());
+
+            // reconfigured reader id shows up in the next event and the stats
+            b.connect(RfidDevice.Options.builder().readerId(5).build());
+            b.dispatch(new RfidDevice.StatusEvent(RfidDevice.Status.CONNECTED));
+            assertEquals(5, events.get(events.size() - 1).getReader());
+            assertEquals(5, group.getStats(b).getReader());
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent readers claim every tag exactly once")
+    public void Concurrent() throws Exception {
+        final int readers = 4;
+        final int tags = 20_000;
+        final List<TestDevice> devices = new ArrayList<>();
+        final DeviceGroup group = new DeviceGroup();
+        for (int r = 0; r < readers; r++) {
+            final TestDevice device = new TestDevice();
+            device.connect(RfidDevice.Options.builder().build());
+            devices.add(device);
+            group.add(device);
+        }
+        try (group) {
+            final List<Thread> threads = new ArrayList<>();
+            for (TestDevice device : devices) {
+                final Thread thread = new Thread(() -> {
+                    for (int i = 0; i < tags; i++) {
+                        device.read(Epc.of96(0x30740000L, i), (short) -5000, 1);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(tags, group.size());
+            long first = 0;
+            long duplicates = 0;
+            for (DeviceGroup.ReaderStats stats : group.getStats()) {
+                assertEquals(tags, stats.getReported());
+                first += stats.getFirst();
+                duplicates += stats.getDuplicates();
+            }
+            assertEquals(tags, first);
+            assertEquals((long) tags * (readers - 1), duplicates);
+            assertEquals(0b1111, group.getClaim(Epc.of96(0x30740000L, 0)).getSeenBy());
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.contare.rfid.devices;
+
+import com.contare.rfid.journal.ReadJournal;
+import com.contare.rfid.objects.Epc;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayRfidDeviceTest {
+
+    private static void await(final RfidDevice device) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (device.isReading() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(device.isReading());
+    }
+
+    @Test
+    @DisplayName("CSV reads are deduplicated and paced by their recorded times")
+    public void Csv(@TempDir final Path directory) throws Exception {
+        final Path csv = directory.resolve("session.csv");
+        Files.write(csv, List.of(
+            "epc,rssi,antenna,time",
+            "E2801160600002084F21A5B5,-58.37,1,1700000000000",
+            "E2801160600002084F21A5B6,-61,2,1700000000100",
+            "",
+            "E2801160600002084F21A5B5,-55.5,3,2023-11-14T22:13:20.200Z"
+        ));
+
+        // 200 ms recorded, replayed at 2x
+        try (final ReplayRfidDevice device = new ReplayRfidDevice(csv, 2)) {
+            final List<RfidDevice.Event> events = Collections.synchronizedList(new ArrayList<>());
+            device.setCallback(events::add);
+            device.connect(RfidDevice.Options.builder().build());
+            final long start = System.nanoTime();
+            assertTrue(device.startInventory());
+            await(device);
+            final long elapsed = (System.nanoTime() - start) / 1_000_000L;
+
+            assertTrue(elapsed >= 90, "replay took " + elapsed + " ms");
+            assertEquals(3, device.getReplayed());
+            final long tags = events.stream().filter((event) -> event instanceof RfidDevice.TagEvent).count();
+            assertEquals(2, tags);
+            assertEquals(2, device.getStats(Epc.fromHex("E2801160600002084F21A5B5")).getReads());
+            assertEquals((short) -5837, device.getStats(Epc.fromHex("E2801160600002084F21A5B5")).getMinRssi());
+        }
+    }
+
+    @Test
+    @DisplayName("Journals replay as fast as possible")
+    public void Journal(@TempDir final Path directory) throws Exception {
+        try (final ReadJournal journal = ReadJournal.open(directory, ReadJournal.DEFAULT_SEGMENT_SIZE, 10)) {
+            final long base = System.nanoTime();
+            for (int i = 0; i < 10_000; i++) {
+                // one hour of recorded traffic
+                journal.append(Epc.of96(0x30740000L, i % 1_000), (short) -5000, 1, base + i * 360_000_000L);
+            }
+        }
+        try (final ReplayRfidDevice device = new ReplayRfidDevice(directory, ReplayRfidDevice.AS_FAST_AS_POSSIBLE)) {
+            device.connect(RfidDevice.Options.builder().build());
+            device.startInventory();
+            await(device);
+            assertEquals(10_000, device.getReplayed());
+            assertEquals(1_000, device.getStats().size());
+        }
+    }
+
+}
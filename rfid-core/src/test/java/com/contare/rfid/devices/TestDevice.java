@@ -0,0 +1,20 @@
+package com.contare.rfid.devices;
+
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+
+/**
+ * Drives the buffered read path the way adapters do, delivering on the calling thread.
+ */
+class TestDevice extends FakeRfidDevice {
+
+    boolean read(final Epc epc, final short rssi, final int antenna) {
+        final long nanos = System.nanoTime();
+        if (isBuffered(epc, rssi, antenna, nanos)) return false;
+        final TagMetadata tag = new TagMetadata(epc, null, rssi, antenna, nanos);
+        if (!buffer(tag)) return false;
+        publish(tag);
+        return true;
+    }
+
+}
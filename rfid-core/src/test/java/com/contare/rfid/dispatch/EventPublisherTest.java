@@ -0,0 +1,115 @@
+package com.contare.rfid.dispatch;
+
+import com.contare.rfid.devices.RfidDevice;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventPublisherTest {
+
+    private static final class Recorder implements Flow.Subscriber<RfidDevice.Event> {
+
+        private final List<RfidDevice.Event> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final long initial;
+        private volatile Flow.Subscription subscription;
+
+        private Recorder(final long initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initial > 0) {
+                subscription.request(initial);
+            }
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(final RfidDevice.Event item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+    }
+
+    @Test
+    @DisplayName("Each subscriber is served at its own demand, overflow is skipped per subscriber")
+    public void Demand() throws InterruptedException {
+        final DispatchCounters counters = new DispatchCounters();
+        final EventPublisher publisher = new EventPublisher(4, 0, counters);
+        final Recorder fast = new Recorder(Long.MAX_VALUE);
+        final Recorder slow = new Recorder(0);
+        publisher.subscribe(fast);
+        publisher.subscribe(slow);
+        assertTrue(fast.subscribed.await(5, TimeUnit.SECONDS));
+        assertTrue(slow.subscribed.await(5, TimeUnit.SECONDS));
+        assertEquals(2, publisher.getNumberOfSubscribers());
+
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(new RfidDevice.BatteryEvent(i));
+            // let the fast subscriber keep up, its buffer is as small as the slow one
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (fast.received.size() <= i && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+        }
+        assertEquals(10, fast.received.size());
+        assertTrue(slow.received.isEmpty());
+        assertEquals(6, counters.getSubscriberDrops());
+
+        slow.subscription.request(10);
+        publisher.close();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(fast.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(4, slow.received.size());
+        assertEquals(0, ((RfidDevice.BatteryEvent) slow.received.get(0)).getLevel());
+    }
+
+    @Test
+    @DisplayName("A subscriber that never requests delays the others by the timeout at most")
+    public void Stalled() throws InterruptedException {
+        final DispatchCounters counters = new DispatchCounters();
+        final EventPublisher publisher = new EventPublisher(2, TimeUnit.MILLISECONDS.toNanos(20), counters);
+        final Recorder fast = new Recorder(Long.MAX_VALUE);
+        final Recorder stalled = new Recorder(0);
+        publisher.subscribe(fast);
+        publisher.subscribe(stalled);
+        assertTrue(fast.subscribed.await(5, TimeUnit.SECONDS));
+        assertTrue(stalled.subscribed.await(5, TimeUnit.SECONDS));
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            publisher.publish(new RfidDevice.BatteryEvent(i));
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        publisher.close();
+        assertTrue(fast.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(20, fast.received.size());
+        assertTrue(stalled.received.isEmpty());
+        assertEquals(18, counters.getSubscriberDrops());
+        // 18 drops waited 20 ms each, instead of blocking forever on the stalled subscriber
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(3), elapsed + " ns");
+    }
+
+}
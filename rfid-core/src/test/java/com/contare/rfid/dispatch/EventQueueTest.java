@@ -0,0 +1,163 @@
+package com.contare.rfid.dispatch;
+
+import com.contare.rfid.devices.RfidDevice;
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventQueueTest {
+
+    private static RfidDevice.TagEvent event(final int serial, final short rssi) {
+        return new RfidDevice.TagEvent(new TagMetadata(Epc.of96(0x30740000L, serial), "E280", rssi, 1, serial));
+    }
+
+    private static int serial(final RfidDevice.Event event) {
+        return (int) ((RfidDevice.TagEvent) event).getTag().getEpc().getLow();
+    }
+
+    // executor that only runs its tasks when asked to, like a stalled callback thread
+    private static final class ManualExecutor extends ArrayDeque<Runnable> implements Executor {
+
+        @Override
+        public void execute(final Runnable task) {
+            add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = poll()) != null) {
+                task.run();
+            }
+        }
+
+    }
+
+    @Test
+    @DisplayName("Drop newest and drop oldest keep the queue bounded")
+    public void Drop() {
+        for (RfidDevice.Backpressure policy : new RfidDevice.Backpressure[]{ RfidDevice.Backpressure.DROP_NEWEST, RfidDevice.Backpressure.DROP_OLDEST }) {
+            final ManualExecutor executor = new ManualExecutor();
+            final List<RfidDevice.Event> received = new ArrayList<>();
+            final DispatchCounters counters = new DispatchCounters();
+            final EventQueue queue = new EventQueue(executor, received::add, policy, 4, null, counters);
+
+            for (int i = 0; i < 10; i++) {
+                queue.offer(event(i, (short) 0));
+            }
+            queue.offer(new RfidDevice.StatusEvent(RfidDevice.Status.CONNECTED));
+            assertEquals(5, queue.size());
+            assertEquals(1, executor.size());
+
+            executor.runAll();
+            assertEquals(5, received.size());
+            final int first = (policy == RfidDevice.Backpressure.DROP_NEWEST) ? 0 : 6;
+            for (int i = 0; i < 4; i++) {
+                assertEquals(first + i, serial(received.get(i)));
+            }
+            assertTrue(received.get(4) instanceof RfidDevice.StatusEvent);
+
+            assertEquals(10, counters.getOffered());
+            assertEquals(4, counters.getDelivered());
+            assertEquals(6, counters.getDropped());
+        }
+    }
+
+    @Test
+    @DisplayName("Coalesce keeps the newest read of each pending EPC")
+    public void Coalesce() {
+        final ManualExecutor executor = new ManualExecutor();
+        final List<RfidDevice.Event> received = new ArrayList<>();
+        final DispatchCounters counters = new DispatchCounters();
+        final EventQueue queue = new EventQueue(executor, received::add, RfidDevice.Backpressure.COALESCE, 2, null, counters);
+
+        for (short rssi = 0; rssi < 5; rssi++) {
+            queue.offer(event(1, (short) -rssi));
+            queue.offer(event(2, (short) -rssi));
+            queue.offer(event(3, (short) -rssi));
+        }
+        executor.runAll();
+
+        assertEquals(2, received.size());
+        assertEquals(1, serial(received.get(0)));
+        assertEquals(-4, ((RfidDevice.TagEvent) received.get(0)).getTag().getRssi());
+        assertEquals(2, serial(received.get(1)));
+        assertEquals(8, counters.getCoalesced());
+        assertEquals(5, counters.getDropped());
+    }
+
+    @Test
+    @DisplayName("Spill writes overflow to disk and delivers it back in order")
+    public void Spill() {
+        final ManualExecutor executor = new ManualExecutor();
+        final List<RfidDevice.Event> received = new ArrayList<>();
+        final DispatchCounters counters = new DispatchCounters();
+        final EventQueue queue = new EventQueue(executor, received::add, RfidDevice.Backpressure.SPILL, 8, null, counters);
+
+        for (int i = 0; i < 1_000; i++) {
+            queue.offer(event(i, (short) -i));
+        }
+        assertEquals(8, queue.size());
+        assertEquals(992, counters.getSpilled());
+
+        executor.runAll();
+        queue.close();
+
+        assertEquals(1_000, received.size());
+        for (int i = 0; i < 1_000; i++) {
+            final TagMetadata tag = ((RfidDevice.TagEvent) received.get(i)).getTag();
+            assertEquals(i, serial(received.get(i)));
+            assertEquals((short) -i, tag.getRssi());
+            assertEquals("E280", tag.getTid());
+            assertEquals(i, tag.getNanos());
+        }
+        assertEquals(1_000, counters.getDelivered());
+        assertEquals(0, counters.getDropped());
+    }
+
+    @Test
+    @DisplayName("Coalesced and spilled events keep their latency stamp and batch identity")
+    public void Identity() {
+        final ManualExecutor executor = new ManualExecutor();
+        final List<RfidDevice.Event> received = new ArrayList<>();
+        final DispatchCounters counters = new DispatchCounters();
+
+        final EventQueue coalescing = new EventQueue(executor, received::add, RfidDevice.Backpressure.COALESCE, 1, null, counters);
+        final StampedTagEvent newest = new StampedTagEvent(event(1, (short) -2).getTag(), 42);
+        coalescing.offer(new StampedTagEvent(event(1, (short) -1).getTag(), 41));
+        coalescing.offer(newest);
+        executor.runAll();
+        assertSame(newest, received.get(0));
+
+        received.clear();
+        final TagBatcher batcher = new TagBatcher(received::add, 8, 1_000_000);
+        final TagBatcher.Batch batch = new TagBatcher.Batch(batcher, List.of(event(3, (short) -3).getTag()), 10, 20, true);
+        final EventQueue spilling = new EventQueue(executor, received::add, RfidDevice.Backpressure.SPILL, 1, null, counters);
+        spilling.offer(event(2, (short) -2));
+        spilling.offer(new StampedTagEvent(event(4, (short) -4).getTag(), 43));
+        spilling.offer(batch);
+        spilling.offer(new RfidDevice.TagBatchEvent(List.of(event(5, (short) -5).getTag())));
+        assertEquals(3, counters.getSpilled());
+        executor.runAll();
+        spilling.close();
+
+        assertEquals(4, received.size());
+        assertEquals(43, ((StampedTagEvent) received.get(1)).getDispatchedAt());
+        assertEquals(4, serial(received.get(1)));
+        final TagBatcher.Batch spilled = (TagBatcher.Batch) received.get(2);
+        assertSame(batcher, spilled.getBatcher());
+        assertEquals(10, spilled.getOpenedAt());
+        assertEquals(20, spilled.getClosedAt());
+        assertTrue(spilled.isFull());
+        assertEquals(batch.getTags().get(0).getEpc(), spilled.getTags().get(0).getEpc());
+        assertFalse(received.get(3) instanceof TagBatcher.Batch);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.contare.rfid.dispatch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferTest {
+
+    @Test
+    @DisplayName("Offer fails when full, drain releases the slots")
+    public void OfferAndDrain() {
+        final RingBuffer<Integer> ring = new RingBuffer<>(6, false, WaitStrategy.busySpin());
+        assertEquals(8, ring.capacity());
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(8));
+        assertEquals(8, ring.size());
+
+        final List<Integer> drained = new ArrayList<>();
+        assertEquals(3, ring.drain(drained::add, 3));
+        assertTrue(ring.offer(8));
+        assertEquals(6, ring.drain(drained::add, 100));
+        assertEquals(0, ring.drain(drained::add, 100));
+
+        for (int i = 0; i < 9; i++) {
+            assertEquals(i, drained.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Multiple producers, every event delivered once and in per-producer order")
+    public void MultiProducer() throws InterruptedException {
+        final int producers = 4;
+        final int events = 100_000;
+        final long[] last = new long[producers];
+        final int[] received = new int[1];
+        final CountDownLatch done = new CountDownLatch(1);
+
+        final RingBuffer<Object> ring = new RingBuffer<>(1_024, true, WaitStrategy.yielding());
+        final RingDispatcher<Long> dispatcher = new RingDispatcher<Long>("ring-test", ring, WaitStrategy.yielding(), (value) -> {
+            final int producer = (int) (value >>> 32);
+            final long sequence = value & 0xFFFFFFFFL;
+            assertTrue(sequence > last[producer] || (sequence == 0 && last[producer] == 0));
+            last[producer] = sequence;
+            if (++received[0] == producers * events) {
+                done.countDown();
+            }
+        }).start();
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final long id = p;
+            final Thread t = new Thread(() -> {
+                for (long i = 0; i < events; i++) {
+                    dispatcher.publish((id << 32) | i);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        dispatcher.close();
+        for (int p = 0; p < producers; p++) {
+            assertEquals(events - 1, last[p]);
+        }
+    }
+
+    @Test
+    @DisplayName("Publishing into a closed dispatcher fails fast, even on a full ring")
+    public void Closed() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Long> received = new CopyOnWriteArrayList<>();
+        final RingBuffer<Object> ring = new RingBuffer<>(2, true, WaitStrategy.yielding());
+        final RingDispatcher<Long> dispatcher = new RingDispatcher<Long>("ring-test", ring, WaitStrategy.yielding(), (value) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(value);
+        }).start();
+
+        // the handler holds the first event, slots are released once it returns, so the ring is full
+        assertTrue(dispatcher.publish(0L));
+        assertTrue(dispatcher.publish(1L));
+        final boolean[] published = { true };
+        final Thread producer = new Thread(() -> published[0] = dispatcher.publish(2L));
+        producer.start();
+
+        dispatcher.close();
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(producer.isAlive());
+        assertFalse(published[0]);
+        assertFalse(dispatcher.publish(4L));
+        assertFalse(dispatcher.offer(4L));
+
+        release.countDown();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.size() < 2 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(List.of(0L, 1L), received);
+    }
+
+}
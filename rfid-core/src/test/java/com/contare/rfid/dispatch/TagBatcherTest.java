@@ -0,0 +1,69 @@
+package com.contare.rfid.dispatch;
+
+import com.contare.rfid.objects.Epc;
+import com.contare.rfid.objects.TagMetadata;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagBatcherTest {
+
+    private static TagMetadata tag(final int serial) {
+        return new TagMetadata(Epc.of96(0x30740000L, serial), null, TagMetadata.RSSI_UNKNOWN, TagMetadata.ANTENNA_UNKNOWN);
+    }
+
+    @Test
+    @DisplayName("Batches are bounded by size and flushed after the linger time")
+    public void SizeAndLinger() throws InterruptedException {
+        final List<List<TagMetadata>> batches = new CopyOnWriteArrayList<>();
+        final CountDownLatch lingered = new CountDownLatch(3);
+        final TagBatcher batcher = new TagBatcher((batch) -> {
+            batches.add(batch.getTags());
+            lingered.countDown();
+        }, 10, TimeUnit.SECONDS.toNanos(1));
+
+        for (int i = 0; i < 25; i++) {
+            batcher.add(tag(i));
+        }
+        assertEquals(2, batches.size());
+        assertEquals(10, batches.get(0).size());
+        assertEquals(10, batches.get(1).size());
+
+        // the remaining 5 tags are delivered by the linger timer
+        assertTrue(lingered.await(5, TimeUnit.SECONDS));
+        assertEquals(5, batches.get(2).size());
+        assertEquals(tag(24).getEpc(), batches.get(2).get(4).getEpc());
+    }
+
+    @Test
+    @DisplayName("Batch size shrinks when the latency target is missed")
+    public void AdaptToLatency() {
+        final TagBatcher batcher = new TagBatcher((batch) -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batch.delivered();
+        }, 64, TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertEquals(64, batcher.getLimit());
+        for (int i = 0; i < 64; i++) {
+            batcher.add(tag(i));
+        }
+        assertEquals(32, batcher.getLimit());
+
+        batcher.flush();
+        for (int i = 0; i < 1_000 && batcher.getLimit() > 1; i++) {
+            batcher.add(tag(i));
+        }
+        assertEquals(1, batcher.getLimit());
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.contare.rfid.journal;
+
+import com.contare.rfid.objects.Epc;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadJournalTest {
+
+    private static List<Epc> replay(final Path directory) throws Exception {
+        final List<Epc> list = new ArrayList<>();
+        ReadJournal.replay(directory, (epc, rssi, antenna, nanos) -> list.add(epc));
+        return list;
+    }
+
+    @Test
+    @DisplayName("Reads survive across segments and runs, torn records end a segment")
+    public void Replay(@TempDir final Path directory) throws Exception {
+        // small segments: about 30 reads each
+        try (final ReadJournal journal = ReadJournal.open(directory, 1_000, 5)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append(Epc.of96(0x30740000L, i), (short) -5000, 1 + (i % 4), System.nanoTime());
+            }
+            journal.sync();
+            assertEquals(100, journal.getCommitted());
+        }
+        final List<Short> rssi = new ArrayList<>();
+        final List<Integer> antennas = new ArrayList<>();
+        assertEquals(100, ReadJournal.replay(directory, (epc, r, antenna, nanos) -> {
+            rssi.add(r);
+            antennas.add(antenna);
+        }));
+        assertEquals((short) -5000, rssi.get(0));
+        assertEquals(List.of(1, 2, 3, 4), antennas.subList(0, 4));
+
+        // a second run appends to the same cycle
+        try (final ReadJournal journal = ReadJournal.open(directory, 1_000, 5)) {
+            journal.append(Epc.fromHex("E2801160600002084F21A5B5"), (short) -4000, 2, System.nanoTime());
+        }
+        final List<Epc> epcs = replay(directory);
+        assertEquals(101, epcs.size());
+        assertEquals(Epc.of96(0x30740000L, 0), epcs.get(0));
+        assertEquals(Epc.fromHex("E2801160600002084F21A5B5"), epcs.get(100));
+
+        // corrupt the checksum of the last record of the first segment
+        final Path first;
+        try (Stream<Path> stream = Files.list(directory)) {
+            first = stream.sorted().collect(Collectors.toList()).get(0);
+        }
+        final int records = (1_000 - 8) / 29;
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{ 0x55 }), 8 + records * 29 - 1);
+        }
+        assertEquals(100, replay(directory).size());
+    }
+
+    @Test
+    @DisplayName("Reset starts a new cycle, replay skips the previous ones")
+    public void Reset(@TempDir final Path directory) throws Exception {
+        try (final ReadJournal journal = ReadJournal.open(directory, 4_096, 5)) {
+            journal.append(Epc.of96(0x30740000L, 1), (short) -5000, 1, System.nanoTime());
+            journal.reset();
+            journal.append(Epc.of96(0x30740000L, 2), (short) -5000, 1, System.nanoTime());
+        }
+        assertEquals(List.of(Epc.of96(0x30740000L, 2)), replay(directory));
+        try (Stream<Path> stream = Files.list(directory)) {
+            assertEquals(1, stream.count());
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.contare.rfid.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Buckets are contiguous and each value maps to a bucket that contains it")
+    public void Buckets() {
+        assertEquals(0, LatencyHistogram.index(0));
+        assertEquals(127, LatencyHistogram.highestEquivalent(127));
+        long previous = -1;
+        for (int i = 0; i < LatencyHistogram.index(LatencyHistogram.HIGHEST_TRACKABLE); i++) {
+            final long highest = LatencyHistogram.highestEquivalent(i);
+            assertTrue(highest > previous, "bucket " + i);
+            assertEquals(i, LatencyHistogram.index(previous + 1), "bucket " + i);
+            assertEquals(i, LatencyHistogram.index(highest), "bucket " + i);
+            previous = highest;
+        }
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE, LatencyHistogram.highestEquivalent(LatencyHistogram.index(LatencyHistogram.HIGHEST_TRACKABLE)));
+        assertEquals(LatencyHistogram.index(LatencyHistogram.HIGHEST_TRACKABLE), LatencyHistogram.index(Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Percentiles are within the bucket precision of the exact values")
+    public void Percentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram(4);
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        histogram.record(-5);
+
+        assertEquals(100_001, histogram.getCount());
+        assertEquals(5_000_050_000_000L, histogram.getSum());
+        final long[] values = histogram.getValuesAtPercentiles(50, 90, 99, 99.9);
+        final long[] expected = { 50_000_000, 90_000_000, 99_000_000, 99_900_000 };
+        for (int i = 0; i < values.length; i++) {
+            assertTrue(values[i] >= expected[i] && values[i] <= expected[i] * 1.016, values[i] + " ~ " + expected[i]);
+        }
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertTrue(histogram.getMax() >= 100_000_000 && histogram.getMax() <= 101_600_000);
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+
+    @Test
+    @DisplayName("Concurrent recording on striped buckets loses nothing")
+    public void Concurrent() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(3);
+        final Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80_000, histogram.getCount());
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+    }
+
+}
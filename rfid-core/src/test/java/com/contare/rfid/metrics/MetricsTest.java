@@ -0,0 +1,66 @@
+package com.contare.rfid.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    private static DeviceMetrics metrics(final String device, final int reader) {
+        return new DeviceMetrics(device, () -> reader)
+            .gauge("rfid_queue_depth", "Events waiting for the user callback.", () -> 3);
+    }
+
+    @Test
+    @DisplayName("Prometheus text groups samples of every source under one header")
+    public void Prometheus() {
+        final DeviceMetrics a = metrics("ChainwayDevice", 1);
+        final DeviceMetrics b = metrics("Zebra\"FX\"", 2);
+        a.recordUnique();
+        a.recordDuplicate();
+        a.recordDuplicate();
+        b.recordCallback(1_500_000);
+
+        final String text = PrometheusRenderer.render(List.of(a, b));
+        assertTrue(text.startsWith("# HELP rfid_reads_total Reads reported by the reader, duplicates included.\n"
+            + "# TYPE rfid_reads_total counter\n"
+            + "rfid_reads_total{device=\"ChainwayDevice\",reader=\"1\"} 3\n"
+            + "rfid_reads_total{device=\"Zebra\\\"FX\\\"\",reader=\"2\"} 0\n"), text);
+        assertTrue(text.contains("rfid_callback_seconds_total{device=\"Zebra\\\"FX\\\"\",reader=\"2\"} 0.0015\n"), text);
+        assertTrue(text.contains("# TYPE rfid_queue_depth gauge\n"), text);
+        assertEquals(1, text.split("# TYPE rfid_queue_depth ", -1).length - 1);
+    }
+
+    @Test
+    @DisplayName("JMX exporter follows the registry")
+    public void Jmx() throws Exception {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final JmxExporter exporter = new JmxExporter(server, "test.rfid");
+        final DeviceMetrics metrics = metrics("FakeRfidDevice", 5);
+        metrics.recordUnique();
+
+        Metrics.register(metrics);
+        try {
+            Metrics.addExporter(exporter);
+            final ObjectName name = new ObjectName("test.rfid:type=Metrics,device=FakeRfidDevice,reader=5");
+            assertEquals(name, exporter.getObjectName(metrics));
+            assertEquals(1.0, server.getAttribute(name, "rfid_reads_total"));
+            metrics.recordDuplicate();
+            assertEquals(2.0, server.getAttribute(name, "rfid_reads_total"));
+            assertEquals(3.0, server.getAttribute(name, "rfid_queue_depth"));
+
+            Metrics.unregister(metrics);
+            assertFalse(server.isRegistered(name));
+        } finally {
+            Metrics.removeExporter(exporter);
+            Metrics.unregister(metrics);
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.contare.rfid.objects;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpcTest {
+
+    @Test
+    @DisplayName("96-bit EPC parsed from hex and bytes are equal")
+    public void HexAndBytesAreEqual() {
+        final Epc a = Epc.fromHex("3074257bf7194e4000001a85");
+        final Epc b = Epc.of(new byte[]{ 0x30, 0x74, 0x25, 0x7B, (byte) 0xF7, 0x19, 0x4E, 0x40, 0x00, 0x00, 0x1A, (byte) 0x85 });
+        final Epc c = Epc.of96(0x3074257BL, 0xF7194E4000001A85L);
+
+        assertEquals(a, b);
+        assertEquals(a, c);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals("3074257BF7194E4000001A85", a.toHex());
+        assertEquals(96, a.bits());
+        assertFalse(a.isLong());
+    }
+
+    @Test
+    @DisplayName("EPCs with the same words but different lengths are not equal")
+    public void LengthIsPartOfIdentity() {
+        assertNotEquals(Epc.fromHex("00001A85"), Epc.fromHex("1A85"));
+    }
+
+    @Test
+    @DisplayName("EPCs longer than 128 bits keep every byte")
+    public void LongEpcRoundTrip() {
+        final String hex = "E2801160600002084D7F1A2B3C4D5E6F708192A3B4C5D6E7";
+        final Epc epc = Epc.fromHex(hex);
+        assertTrue(epc.isLong());
+        assertEquals(hex, epc.toHex());
+        assertEquals(epc, Epc.of(epc.toBytes()));
+        assertNotEquals(epc, Epc.fromHex("0000000000000000" + hex.substring(16)));
+    }
+
+    @Test
+    @DisplayName("Invalid hex EPC is rejected")
+    public void InvalidHexIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Epc.fromHex("30742"));
+        assertThrows(IllegalArgumentException.class, () -> Epc.fromHex("3074ZZ"));
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.contare.rfid.objects;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TagMetadataTest {
+
+    @Test
+    @DisplayName("Lazy views decode each field once, on first access")
+    public void LazyFieldsAreDecodedOnDemand() {
+        final AtomicInteger decodes = new AtomicInteger();
+        final TagMetadata tag = new TagMetadata(Epc.fromHex("E200"), 0L) {
+            @Override
+            protected short decodeRssi() {
+                decodes.incrementAndGet();
+                return -5837;
+            }
+        };
+
+        assertEquals(0, decodes.get());
+        assertEquals(-5837, tag.getRssi());
+        assertEquals(-58.37, tag.getRssiDbm());
+        assertEquals(1, decodes.get());
+        assertEquals(TagMetadata.ANTENNA_UNKNOWN, tag.getAntenna());
+    }
+
+    @Test
+    @DisplayName("Lazy and eager tags with the same values are equal")
+    public void LazyAndEagerAreEqual() {
+        final Epc epc = Epc.fromHex("E200");
+        final TagMetadata eager = new TagMetadata(epc, null, (short) -5837, 2, 42L);
+        final TagMetadata lazy = new TagMetadata(epc, 42L) {
+            @Override
+            protected short decodeRssi() {
+                return -5837;
+            }
+
+            @Override
+            protected int decodeAntenna() {
+                return 2;
+            }
+        };
+        assertEquals(eager, lazy);
+        assertEquals(eager.hashCode(), lazy.hashCode());
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.contare.rfid.utils;
+
+import com.contare.rfid.objects.Epc;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HexTest {
+
+    @Test
+    public void EncodeAndDecodeBytes() {
+        final byte[] bytes = { 0x00, 0x1A, (byte) 0xFF, 0x7E };
+        assertEquals("001AFF7E", Hex.toHex(bytes));
+        assertArrayEquals(bytes, Hex.decode("001aff7e"));
+    }
+
+    @Test
+    public void EncodeWordsIntoReusableBuffer() {
+        final char[] buffer = new char[32];
+        final int end = Hex.encode(0x3074257BL, 0xF7194E4000001A85L, 12, buffer, 0);
+        assertEquals("3074257BF7194E4000001A85", new String(buffer, 0, end));
+    }
+
+    @Test
+    public void ValidatesHexRanges() {
+        assertTrue(Hex.isHex("xx3074AFxx", 2, 8));
+        assertFalse(Hex.isHex("3074G", 0, 5));
+        assertFalse(Hex.isHex("", 0, 0));
+        assertEquals(0xE280L, Hex.parseLong("e280", 0, 4));
+    }
+
+    @Test
+    public void ConvertsEpcBatches() {
+        final Epc a = Epc.fromHex("E200");
+        final Epc b = Epc.fromHex("3074257BF7194E4000001A85");
+        assertArrayEquals(new String[]{ "E200", "3074257BF7194E4000001A85" }, Hex.toHex(new Epc[]{ a, b }));
+        assertEquals("E200,3074257BF7194E4000001A85", Hex.appendHex(List.of(a, b), ',', new StringBuilder()).toString());
+    }
+
+}
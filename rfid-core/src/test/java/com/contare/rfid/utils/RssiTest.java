@@ -0,0 +1,28 @@
+package com.contare.rfid.utils;
+
+import com.contare.rfid.objects.TagMetadata;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RssiTest {
+
+    @Test
+    public void NormalizesVendorValuesToCentiDbm() {
+        assertEquals(-5837, Rssi.fromDbm(-58.37));
+        assertEquals(-6500, Rssi.fromDbm(-65));
+        assertEquals(-5837, Rssi.parse("-58.37"));
+        assertEquals(-5830, Rssi.parse("-58.3"));
+        assertEquals(-5838, Rssi.parse("-58.375"));
+        assertEquals(-5800, Rssi.parse("-58"));
+    }
+
+    @Test
+    public void InvalidValuesAreUnknown() {
+        assertEquals(TagMetadata.RSSI_UNKNOWN, Rssi.parse(null));
+        assertEquals(TagMetadata.RSSI_UNKNOWN, Rssi.parse(""));
+        assertEquals(TagMetadata.RSSI_UNKNOWN, Rssi.parse("-"));
+        assertEquals(TagMetadata.RSSI_UNKNOWN, Rssi.parse("n/a"));
+    }
+
+}
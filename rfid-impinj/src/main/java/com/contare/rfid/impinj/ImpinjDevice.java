@@ -3,7 +3,10 @@ package com.contare.rfid.impinj;
 import com.contare.rfid.devices.BufferedRfidDevice;
 import com.contare.rfid.devices.RfidDevice;
 import com.contare.rfid.exceptions.RfidDeviceException;
+import com.contare.rfid.jfr.TagIngestEvent;
+import com.contare.rfid.objects.Epc;
 import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.utils.Rssi;
 import com.impinj.octane.*;
 import lombok.extern.slf4j.Slf4j;
 import org.jboss.logging.Logger;
@@ -13,8 +16,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
@@ -26,13 +27,11 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
 
     private final ImpinjReader reader = new ImpinjReader();
 
-    private final ExecutorService executor;
-    private Consumer<RfidDevice.Event> _callback;
     private RfidDevice.Options opts;
     private boolean reading = false;
 
     public ImpinjDevice(final ExecutorService executor) {
-        this.executor = executor;
+        super(executor);
     }
 
     @Override
@@ -50,18 +49,17 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
         Objects.requireNonNull(opts, "Options must not be null.");
 
         this.opts = opts;
+        configure(opts);
 
         try {
-            reader.connect(opts.getIp(), opts.getPort());
+            call("connect", () -> reader.connect(opts.getIp(), opts.getPort()));
 
-            final Settings settings = reader.queryDefaultSettings();
-            reader.applySettings(settings);
+            final Settings settings = query("queryDefaultSettings", reader::queryDefaultSettings);
+            applySettings(settings);
 
             reader.setConnectionLostListener(_impinjReader -> {
                 logger.warnf("Connection lost.");
-                executor.execute(() -> {
-                    _callback.accept(new StatusEvent(Status.DISCONNECTED));
-                });
+                dispatch(new StatusEvent(Status.DISCONNECTED));
             });
 
             reader.setConnectionCloseListener((impinjReader, event) -> {
@@ -88,7 +86,7 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
 
     @Override
     public void disconnect() throws RfidDeviceException {
-        reader.disconnect();
+        call("disconnect", reader::disconnect);
     }
 
     @Override
@@ -106,11 +104,6 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
         return false;
     }
 
-    @Override
-    public void setCallback(final Consumer<RfidDevice.Event> callback) {
-        _callback = callback;
-    }
-
     @Override
     public boolean startInventory() throws RfidDeviceException {
         try {
@@ -122,12 +115,13 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
                 throw new RfidDeviceException("Reader is already reading.");
             }
 
-            final Settings settings = reader.querySettings();
+            final Settings settings = querySettings();
             settings.setRfMode(1003);
 
             final ReportConfig report = settings.getReport();
             report.setIncludeAntennaPortNumber(true);
             report.setIncludePeakRssi(true);
+            report.setIncludeFirstSeenTime(opts.isTrackLatency());
 
             final AntennaConfigGroup antennas = settings.getAntennas();
 
@@ -145,31 +139,47 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
 
             settings.setAntennas(antennas);
 
-            reader.applySettings(settings);
+            applySettings(settings);
 
             reader.setTagReportListener((_reader, tagReport) -> {
+                final TagIngestEvent ingest = beginIngest();
+                int reads = 0, reported = 0;
                 try {
                     final List<Tag> tags = tagReport.getTags();
                     logger.infof("Tag reported: %s", tags.size());
+                    reads = tags.size();
+
+                    final long nanos = System.nanoTime();
+                    final List<TagMetadata> list = new ArrayList<>(tags.size());
+                    for (Tag row : tags) {
+                        // reader-side first seen time, in microseconds since the epoch
+                        if (row.isFirstSeenTimePresent()) {
+                            recordReaderLatency(row.getFirstSeenTime().getUtcTimestamp().longValue() * 1_000L, nanos);
+                        }
 
-                    final List<TagMetadata> list = tags.stream()
-                        .map(v -> toTagMetadata(v))
-                        .filter(t -> _uniques.add(t.rfid))
-                        .filter(t -> _buffer.add(t))
-                        .collect(Collectors.toList());
+                        // reject duplicates on the epc, aggregating their rssi and antenna
+                        final Epc epc = Epc.fromHex(row.getEpc().toHexString());
+                        if (isBuffered(epc, Rssi.fromDbm(row.getPeakRssiInDbm()), row.getAntennaPortNumber(), nanos)) continue;
 
-                    // dispatch tag to user callback
-                    executor.execute(() -> {
-                        for (TagMetadata row : list) {
-                            _callback.accept(new TagEvent(row));
+                        // other fields are decoded on demand
+                        final TagMetadata tag = new ImpinjTag(epc, row, nanos);
+                        if (buffer(tag)) {
+                            list.add(tag);
                         }
-                    });
+                    }
+
+                    // dispatch the whole report to user callback
+                    publish(list);
+                    reported = list.size();
                 } catch (Exception e) {
                     logger.errorf("Error processing tag metadata: %s", e.getMessage());
+                } finally {
+                    // a failed report still closes its event
+                    endIngest(ingest, reads, reported);
                 }
             });
 
-            reader.start();
+            call("start", reader::start);
 
             reading = true;
 
@@ -187,8 +197,9 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
         }
 
         try {
-            reader.stop();
+            call("stop", reader::stop);
             reading = false;
+            flush();
             return true;
         } catch (OctaneSdkException e) {
             logger.errorf("Failed to stop inventory: %s", e.getMessage());
@@ -217,9 +228,9 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
             sequence.getOps().add(op);
             sequence.setExecutionCount((short) 1);
 
-            reader.addOpSequence(sequence);
+            call("addOpSequence", () -> reader.addOpSequence(sequence));
 
-            reader.start();
+            call("start", reader::start);
 
             // TODO: wait for tag to be killed ???
             return true;
@@ -231,7 +242,7 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
     @Override
     public RfidDevice.Frequency getFrequency() {
         try {
-            final Settings settings = reader.querySettings();
+            final Settings settings = querySettings();
             final List<Double> frequencies = settings.getTxFrequenciesInMhz();
             logger.debugf("Frequency: %s", Arrays.toString(frequencies.toArray()));
             // TODO: how to translate Impinj frequency to 'RfidDevice.Frequency'?
@@ -245,9 +256,9 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
     public boolean setFrequency(final RfidDevice.Frequency value) {
         try {
             final ImpinjFrequency freq = ImpinjFrequency.of(value);
-            final Settings settings = reader.querySettings();
+            final Settings settings = querySettings();
             settings.setTxFrequenciesInMhz(new ArrayList<>(freq.getArray()));
-            reader.applySettings(settings);
+            applySettings(settings);
             return true;
         } catch (OctaneSdkException e) {
             logger.errorf("Failed to set frequency: %s", e.getMessage());
@@ -258,7 +269,7 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
     @Override
     public int getPower() {
         try {
-            final Settings settings = reader.querySettings();
+            final Settings settings = querySettings();
 
             final List<Double> list = new ArrayList<>();
             for (AntennaConfig antennaConfig : settings.getAntennas()) {
@@ -282,14 +293,14 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
         }
 
         try {
-            final Settings settings = reader.querySettings();
+            final Settings settings = querySettings();
 
             final AntennaConfigGroup antennas = settings.getAntennas();
             for (AntennaConfig antennaConfig : antennas.getAntennaConfigs()) {
                 antennaConfig.setTxPowerinDbm(value);
             }
 
-            reader.applySettings(settings);
+            applySettings(settings);
 
             return true;
         } catch (OctaneSdkException e) {
@@ -313,11 +324,11 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
             final SearchMode searchMode = (enabled) ? SearchMode.TagFocus : SearchMode.DualTarget;
             final int session = (enabled) ? 1 : 2;
 
-            final Settings settings = reader.querySettings();
+            final Settings settings = querySettings();
             settings.setSearchMode(searchMode);
             settings.setSession(session);
 
-            reader.applySettings(settings);
+            applySettings(settings);
 
             return true;
         } catch (OctaneSdkException e) {
@@ -332,16 +343,52 @@ public class ImpinjDevice extends BufferedRfidDevice implements RfidDevice {
             this.disconnect();
         } catch (RfidDeviceException e) {
             logger.errorf(e, "Failed to close device.");
+        } finally {
+            closeDispatch();
         }
     }
 
     // HELPERS
-    private TagMetadata toTagMetadata(final Tag tag) {
-        final String epc = tag.getEpc().toHexString();
-        final String tid = tag.getTid().toHexString();
-        final String rssi = Double.toString(tag.getPeakRssiInDbm());
-        final short antenna = tag.getAntennaPortNumber();
-        return new TagMetadata(epc, tid, rssi, (int) antenna);
+
+    private Settings querySettings() throws OctaneSdkException {
+        return query("querySettings", reader::querySettings);
+    }
+
+    private void applySettings(final Settings settings) throws OctaneSdkException {
+        call("applySettings", () -> reader.applySettings(settings));
+    }
+
+    // NESTED TYPES
+
+    /**
+     * Tag view over the octane {@link Tag}, the tid is only converted to hex when read.
+     */
+    private static final class ImpinjTag extends TagMetadata {
+
+        private final Tag tag;
+
+        private ImpinjTag(final Epc epc, final Tag tag, final long nanos) {
+            super(epc, nanos);
+            this.tag = tag;
+        }
+
+        @Override
+        protected String decodeTid() {
+            // only present when the report config includes it
+            final TagData tid = tag.getTid();
+            return (tid != null) ? tid.toHexString() : null;
+        }
+
+        @Override
+        protected short decodeRssi() {
+            return Rssi.fromDbm(tag.getPeakRssiInDbm());
+        }
+
+        @Override
+        protected int decodeAntenna() {
+            return tag.getAntennaPortNumber();
+        }
+
     }
 
 }
@@ -52,7 +52,11 @@ public class Main {
                 if (event instanceof RfidDevice.TagEvent) {
                     final RfidDevice.TagEvent tEvent = (RfidDevice.TagEvent) event;
                     logger.infof("Tag: %s", tEvent.getTag());
-                    epcs.add(tEvent.getTag().rfid);
+                    epcs.add(tEvent.getTag().getRfid());
+                } else if (event instanceof RfidDevice.TagBatchEvent) {
+                    final RfidDevice.TagBatchEvent bEvent = (RfidDevice.TagBatchEvent) event;
+                    logger.infof("Tags: %d", bEvent.getTags().size());
+                    bEvent.getTags().forEach((tag) -> epcs.add(tag.getRfid()));
                 } else if (event instanceof RfidDevice.StatusEvent) {
                     final RfidDevice.StatusEvent sEvent = (RfidDevice.StatusEvent) event;
                     logger.infof("Status: %s", sEvent.getStatus());
@@ -3,14 +3,16 @@ package com.contare.rfid.zebra;
 import com.contare.rfid.devices.BufferedRfidDevice;
 import com.contare.rfid.devices.RfidDevice;
 import com.contare.rfid.exceptions.RfidDeviceException;
+import com.contare.rfid.objects.Epc;
 import com.contare.rfid.objects.TagMetadata;
+import com.contare.rfid.utils.Rssi;
 import com.mot.rfid.api3.*;
 import org.jboss.logging.Logger;
 
+import java.time.LocalDate;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
-import java.util.function.Consumer;
 
 public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
 
@@ -20,12 +22,10 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
     private final Logger logger = Logger.getLogger(ZebraFX7500.class);
 
     private RFIDReader reader;
-    private final ExecutorService executor;
-    private volatile Consumer<RfidDevice.Event> _callback;
     private boolean reading = false;
 
     public ZebraFX7500(final ExecutorService executor) {
-        this.executor = executor;
+        super(executor);
     }
 
     @Override
@@ -38,13 +38,6 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
         return maxPower;
     }
 
-    private TagMetadata toTagMetadata(final Events.ReadEventData data) {
-        final String epc = data.tagData.getTagID();
-        final String rssi = Short.toString(data.tagData.getPeakRSSI());
-        final Integer ant = (int) data.tagData.getAntennaID();
-        return new TagMetadata(epc, null, rssi, ant);
-    }
-
     @Override
     public boolean connect(final RfidDevice.Options opts) throws RfidDeviceException {
         Objects.requireNonNull(opts, "Options cannot be null.");
@@ -54,31 +47,41 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
 
         final int port = Optional.ofNullable(opts.getPort()).orElse(5084);
 
+        configure(opts);
+
         reader = new RFIDReader(host, port, 0);
         try {
-            reader.connect();
-            reader.Actions.purgeTags();
+            sdkCall("connect", () -> reader.connect());
+            sdkCall("purgeTags", () -> reader.Actions.purgeTags());
 
             reader.Events.addEventsListener(new RfidEventsListener() {
                 @Override
                 public void eventReadNotify(final RfidReadEvents events) {
                     try {
+                        final long nanos = System.nanoTime();
                         final Events.ReadEventData data = events.getReadEventData();
-                        final TagMetadata tag = toTagMetadata(data);
-
-                        // check if 'epc' is a new tag
-                        if (_uniques.add(tag.rfid)) {
-                            // insert it into the buffer
-                            if (_buffer.add(tag)) {
-                                // dispatch tag to user callback
-                                executor.execute(() -> {
-                                    _callback.accept(new TagEvent(tag));
-                                });
-                            } else {
-                                logger.warnf("Tag already in buffer: %s", tag);
-                            }
-                        } else {
-                            logger.debugf("Tag already seen: %s", tag);
+                        final short rssi = Rssi.fromDbm(data.tagData.getPeakRSSI());
+                        final short ant = data.tagData.getAntennaID();
+
+                        // reader-side first seen time, only reported when requested in the tag fields
+                        final SeenTime seen = data.tagData.SeenTime;
+                        if (seen != null && seen.getUTCTime() != null && seen.getUTCTime().getFirstSeenTimeStamp() != null) {
+                            recordReaderLatency(toEpochNanos(seen.getUTCTime().getFirstSeenTimeStamp()), nanos);
+                        }
+
+                        // reject duplicates on the epc, aggregating their rssi and antenna
+                        final Epc epc = Epc.fromHex(data.tagData.getTagID());
+                        if (isBuffered(epc, rssi, ant, nanos)) {
+                            logger.debugf("Tag already seen: %s", epc);
+                            return;
+                        }
+
+                        final TagMetadata tag = new TagMetadata(epc, null, rssi, ant, nanos);
+
+                        // insert it into the buffer
+                        if (buffer(tag)) {
+                            // dispatch tag to user callback
+                            publish(tag);
                         }
                     } catch (Exception e) {
                         logger.errorf("Error processing tag metadata: %s", e.getMessage());
@@ -99,9 +102,7 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
                     }
 
                     if (data.DisconnectionEventData != null) {
-                        executor.execute(() -> {
-                            _callback.accept(new StatusEvent(RfidDevice.Status.DISCONNECTED));
-                        });
+                        dispatch(new StatusEvent(RfidDevice.Status.DISCONNECTED));
                     }
                 }
             });
@@ -124,19 +125,19 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
 
             // EPC-ID ja vem por padrão, documentação fala que se a gente definir quais campos vem,
             // a leitura pode ser mais rapida e aparecer menos tag repitida na leitura
-            final TAG_FIELD[] fields = new TAG_FIELD[2];
-            fields[0] = TAG_FIELD.PEAK_RSSI;
-            fields[1] = TAG_FIELD.ANTENNA_ID;
+            final TAG_FIELD[] fields = opts.isTrackLatency()
+                ? new TAG_FIELD[]{ TAG_FIELD.PEAK_RSSI, TAG_FIELD.ANTENNA_ID, TAG_FIELD.FIRST_SEEN_TIME_STAMP }
+                : new TAG_FIELD[]{ TAG_FIELD.PEAK_RSSI, TAG_FIELD.ANTENNA_ID };
 
-            final TagStorageSettings settings = reader.Config.getTagStorageSettings();
+            final TagStorageSettings settings = sdkQuery("getTagStorageSettings", () -> reader.Config.getTagStorageSettings());
             settings.discardTagsOnInventoryStop(true);
             settings.enableAccessReports(true);
             settings.setTagFields(fields);
 
-            reader.Config.setTagStorageSettings(settings);
+            sdkCall("setTagStorageSettings", () -> reader.Config.setTagStorageSettings(settings));
 
             final TRACE_LEVEL traceLevel = opts.isVerbose() ? TRACE_LEVEL.TRACE_LEVEL_VERBOSE : TRACE_LEVEL.TRACE_LEVEL_OFF;
-            reader.Config.setTraceLevel(traceLevel);
+            sdkCall("setTraceLevel", () -> reader.Config.setTraceLevel(traceLevel));
 
             return true;
         } catch (OperationFailureException | InvalidUsageException e) {
@@ -148,7 +149,7 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
     public void disconnect() throws RfidDeviceException {
         try {
             if (reader != null) {
-                reader.disconnect();
+                sdkCall("disconnect", () -> reader.disconnect());
             }
         } catch (InvalidUsageException | OperationFailureException e) {
             throw new RfidDeviceException(e, "Failed to disconnect device");
@@ -170,11 +171,6 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
         return false;
     }
 
-    @Override
-    public void setCallback(final Consumer<RfidDevice.Event> callback) {
-        _callback = callback;
-    }
-
     @Override
     public boolean startInventory() throws RfidDeviceException {
         if (reader == null) {
@@ -186,7 +182,7 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
         }
 
         try {
-            reader.Actions.Inventory.perform();
+            sdkCall("Inventory.perform", () -> reader.Actions.Inventory.perform());
             reading = true;
             return true;
         } catch (InvalidUsageException | OperationFailureException e) {
@@ -197,9 +193,10 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
     @Override
     public boolean stopInventory() {
         try {
-            reader.Actions.Inventory.stop();
-            reader.Actions.purgeTags();
+            sdkCall("Inventory.stop", () -> reader.Actions.Inventory.stop());
+            sdkCall("purgeTags", () -> reader.Actions.purgeTags());
             reading = false;
+            flush();
             return true;
         } catch (InvalidUsageException | OperationFailureException e) {
             // throw new RfidDeviceException(e, "Failed to stop inventory.");
@@ -223,7 +220,7 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
 
             final short[] antennas = reader.Config.Antennas.getAvailableAntennas();
 
-            reader.Actions.TagAccess.killWait(rfid, params, new AntennaInfo(antennas));
+            sdkCall("TagAccess.killWait", () -> reader.Actions.TagAccess.killWait(rfid, params, new AntennaInfo(antennas)));
             logger.debugf("Tag '%s' killed.", rfid);
 
             return true;
@@ -245,7 +242,7 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
         }
 
         try {
-            final Antennas.AntennaRfConfig config = reader.Config.Antennas.getAntennaRfConfig((short) 1);
+            final Antennas.AntennaRfConfig config = sdkQuery("getAntennaRfConfig", () -> reader.Config.Antennas.getAntennaRfConfig((short) 1));
             final long index = config.getrfModeTableIndex();
 
             logger.debugf("Frequency Index = '%d'", index);
@@ -267,12 +264,12 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
                 throw new IllegalArgumentException("Frequency " + frequency.getLabel() + " is not supported.");
             }
 
-            final Antennas.AntennaRfConfig config = reader.Config.Antennas.getAntennaRfConfig((short) 1);
+            final Antennas.AntennaRfConfig config = sdkQuery("getAntennaRfConfig", () -> reader.Config.Antennas.getAntennaRfConfig((short) 1));
             config.setrfModeTableIndex(freq.getIndex());
 
             final short[] antennas = reader.Config.Antennas.getAvailableAntennas();
             for (int ant : antennas) {
-                reader.Config.Antennas.setAntennaRfConfig(ant, config);
+                sdkCall("setAntennaRfConfig", () -> reader.Config.Antennas.setAntennaRfConfig(ant, config));
             }
 
             return true;
@@ -289,7 +286,7 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
         try {
             final int antennnaIndex = 1;
             // final short[] antennas = reader.Config.Antennas.getAvailableAntennas();
-            final Antennas.Config config = reader.Config.Antennas.getAntennaConfig(antennnaIndex);
+            final Antennas.Config config = sdkQuery("getAntennaConfig", () -> reader.Config.Antennas.getAntennaConfig(antennnaIndex));
             final short powerIndex = config.getTransmitPowerIndex();
             final int[] powerLevelValues = reader.ReaderCapabilities.getTransmitPowerLevelValues();
             final int powerLevelValue = powerLevelValues[powerIndex];
@@ -316,9 +313,9 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
             // não consegui saber qual esta ativa ou não, por isso eu pego a configuração de cada uma que o leitor aceita e mando a mesma potencia.
             final short[] antennas = reader.Config.Antennas.getAvailableAntennas();
             for (int ant : antennas) {
-                final Antennas.Config config = reader.Config.Antennas.getAntennaConfig(ant);
+                final Antennas.Config config = sdkQuery("getAntennaConfig", () -> reader.Config.Antennas.getAntennaConfig(ant));
                 config.setTransmitPowerIndex(powerIndex);
-                reader.Config.Antennas.setAntennaConfig(ant, config);
+                sdkCall("setAntennaConfig", () -> reader.Config.Antennas.setAntennaConfig(ant, config));
             }
 
             return true;
@@ -342,14 +339,14 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
         final short[] antennas = reader.Config.Antennas.getAvailableAntennas();
         for (int ant : antennas) {
             try {
-                final Antennas.AntennaRfConfig rfConfig = reader.Config.Antennas.getAntennaRfConfig(ant);
+                final Antennas.AntennaRfConfig rfConfig = sdkQuery("getAntennaRfConfig", () -> reader.Config.Antennas.getAntennaRfConfig(ant));
                 rfConfig.setrfModeTableIndex(enabled ? 23 : 1);
 
-                final Antennas.SingulationControl singulation = reader.Config.Antennas.getSingulationControl(ant);
+                final Antennas.SingulationControl singulation = sdkQuery("getSingulationControl", () -> reader.Config.Antennas.getSingulationControl(ant));
                 singulation.setTagPopulation(enabled ? (short) 100 : (short) 300);  // 100 para Tag Focus, 300 para desativar
 
-                reader.Config.Antennas.setAntennaRfConfig(ant, rfConfig);
-                reader.Config.Antennas.setSingulationControl(ant, singulation);
+                sdkCall("setAntennaRfConfig", () -> reader.Config.Antennas.setAntennaRfConfig(ant, rfConfig));
+                sdkCall("setSingulationControl", () -> reader.Config.Antennas.setSingulationControl(ant, singulation));
             } catch (InvalidUsageException | OperationFailureException e) {
                 return false;
             }
@@ -364,10 +361,37 @@ public class ZebraFX7500 extends BufferedRfidDevice implements RfidDevice {
             this.disconnect();
         } catch (RfidDeviceException e) {
             logger.errorf(e, "Failed to close device.");
+        } finally {
+            closeDispatch();
         }
     }
 
     // HELPERS
+
+    // every api3 call throws the same two exceptions, named once here instead of at each call site
+    @FunctionalInterface
+    private interface ZebraCall extends SdkAction<InvalidUsageException, OperationFailureException> {
+    }
+
+    @FunctionalInterface
+    private interface ZebraQuery<T> extends SdkQuery<T, InvalidUsageException, OperationFailureException> {
+    }
+
+    private void sdkCall(final String operation, final ZebraCall action) throws InvalidUsageException, OperationFailureException {
+        call(operation, action);
+    }
+
+    private <T> T sdkQuery(final String operation, final ZebraQuery<T> query) throws InvalidUsageException, OperationFailureException {
+        return query(operation, query);
+    }
+
+    // reader timestamps are UTC calendar fields with millisecond precision
+    private static long toEpochNanos(final SYSTEMTIME time) {
+        final long days = LocalDate.of(time.Year, time.Month, time.Day).toEpochDay();
+        final long seconds = ((days * 24 + time.Hour) * 60 + time.Minute) * 60 + time.Second;
+        return (seconds * 1_000L + time.Milliseconds) * 1_000_000L;
+    }
+
     private int toPowerDbm(final int index) {
         return index / 100;
     }